@@ -0,0 +1,183 @@
+package com.m12i.minque;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Java Beansのプロパティにアクセスするアクセサ.
+ * プロパティ名にマッチするgetterメソッドはクラスとプロパティの組ごとに一度だけ探索され、
+ * {@link MethodHandle}に変換したリーダーとしてクラスごとにキャッシュされます。
+ * 要素の評価時にはリフレクションによるメソッド呼び出しは行われません。
+ * {@link #reader(String)}を通じて、getterメソッドを解決済みの{@link PropertyReader}を取得することもできます。
+ * @param <T> 対象の要素の型
+ */
+final class BeanAccessor<T> implements Accessor<T> {
+	// getterをコールする際に使用するダミーの引数リスト
+	private static final Object[] args = new Object[0];
+	// 該当するgetterが存在しないプロパティのためのリーダー
+	private static final PropertyReader<Object> nullReader = new PropertyReader<Object>() {
+		@Override
+		public Object read(Object elem) {
+			return null;
+		}
+	};
+	// クラスごとのgetterとリーダーのキャッシュ
+	private static final ClassValue<Getters> getters = new ClassValue<Getters>() {
+		@Override
+		protected Getters computeValue(final Class<?> type) {
+			return new Getters(type);
+		}
+	};
+	private final Getters g;
+	
+	BeanAccessor(final Class<T> elemType) {
+		this.g = getters.get(elemType);
+	}
+	
+	/**
+	 * プロパティ名にマッチするgetterメソッドを返す.
+	 * @param prop プロパティ名
+	 * @return getterメソッド（存在しない場合は{@code null}）
+	 */
+	Method getter(String prop) {
+		return g.getter(prop);
+	}
+	
+	/**
+	 * プロパティ名にマッチするgetterメソッドを解決済みのリーダーを返す.
+	 * getterメソッドの探索とリーダーの生成はクラスとプロパティの組ごとに一度だけ行われる。
+	 * getterメソッドの戻り値が{@code int}・{@code long}・{@code double}などの数値型である場合、
+	 * 返却されるリーダーは大小比較のためにボクシングを伴わずに値を読み取る手段を備える。
+	 * @param prop プロパティ名
+	 * @return リーダー
+	 */
+	@SuppressWarnings("unchecked")
+	PropertyReader<T> reader(String prop) {
+		return (PropertyReader<T>) g.reader(prop);
+	}
+	
+	@Override
+	public Object accsess(T elem, String prop) {
+		return reader(prop).read(elem);
+	}
+	
+	/**
+	 * クラスのgetterっぽいメソッドと、プロパティごとに生成したリーダーを保持するオブジェクト.
+	 */
+	private static final class Getters {
+		// getterっぽいメソッドを格納しておくマップ（初期化後は変更されない）
+		private final Map<String, Method> methods = new HashMap<String, Method>();
+		// プロパティ名とリーダーの対応
+		private final ConcurrentMap<String, PropertyReader<Object>> readers =
+				new ConcurrentHashMap<String, PropertyReader<Object>>();
+		
+		private Getters(final Class<?> type) {
+			try {
+				// 引数で指定されたクラスのpublicメソッドについて繰り返し処理
+				for (final Method m : type.getMethods()) {
+					// メソッドのシグネチャをチェック
+					if (m.getParameterTypes().length == 0 && m.getReturnType() != void.class) {
+						// 「引数の数がゼロであり かつ 戻り値がvoidでない」場合はgetterとみなす
+						methods.put(m.getName(), m);
+					}
+				}
+			} catch(Exception e) {
+				// Do nothing.
+			}
+		}
+		
+		private Method getter(String prop) {
+			// JavaBeans規約に則ったgetter名を構成
+			final String getterName = "get" +
+					prop.substring(0, 1).toUpperCase() + prop.substring(1);
+			final String checkerName = "is" +
+					prop.substring(0, 1).toUpperCase() + prop.substring(1);
+			
+			// getterっぽいメソッドを格納したマップの要素キーと照合
+			if (methods.containsKey(getterName)) {
+				// JavaBeans規約に則ったgetterが存在すればそれを返す
+				return methods.get(getterName);
+				
+			} else if (methods.containsKey(checkerName)) {
+				// JavaBeans規約に則ったgetterが存在すればそれを返す
+				return methods.get(checkerName);
+				
+			} else if (methods.containsKey(prop)) {
+				// プロパティと同名のメソッドが存在すればそれを返す
+				return methods.get(prop);
+				
+			} else {
+				// いずれにも該当しなければnullを返す
+				return null;
+			}
+		}
+		
+		private PropertyReader<Object> reader(final String prop) {
+			final PropertyReader<Object> cached = readers.get(prop);
+			if (cached != null) {
+				return cached;
+			}
+			final PropertyReader<Object> created = create(getter(prop));
+			final PropertyReader<Object> raced = readers.putIfAbsent(prop, created);
+			return raced == null ? created : raced;
+		}
+	}
+	
+	/**
+	 * getterメソッドを呼び出すリーダーを生成する.
+	 * getterメソッドは{@link MethodHandle}に変換され、{@link HandleReaders#create(MethodHandle)}によってリーダーとなる。
+	 * アクセス・チェックによって変換できない場合に限り、リフレクションによってメソッドを呼び出すリーダーを返す。
+	 * @param m getterメソッド（存在しない場合は{@code null}）
+	 * @return リーダー
+	 */
+	private static PropertyReader<Object> create(final Method m) {
+		if (m == null) {
+			return nullReader;
+		}
+		try {
+			// アクセス・チェックを省略させる
+			m.setAccessible(true);
+		} catch (final SecurityException e) {
+			// Do nothing.
+		}
+		MethodHandle h;
+		try {
+			h = MethodHandles.lookup().unreflect(m);
+		} catch (final IllegalAccessException e) {
+			return new GetterReader(m);
+		}
+		if (Modifier.isStatic(m.getModifiers())) {
+			// staticメソッドは要素を無視して呼び出す
+			h = MethodHandles.dropArguments(h, 0, m.getDeclaringClass());
+		}
+		return HandleReaders.create(h);
+	}
+	
+	/**
+	 * リフレクションによって解決済みのgetterメソッドを呼び出すリーダー.
+	 * getterメソッドを{@link MethodHandle}に変換できない場合にだけ使用される。
+	 */
+	private static final class GetterReader implements PropertyReader<Object> {
+		private final Method getter;
+		private GetterReader(final Method getter) {
+			this.getter = getter;
+		}
+		@Override
+		public Object read(Object elem) {
+			try {
+				// メソッドをダミーの引数リストに適用する
+				return getter.invoke(elem, args);
+				
+			} catch (Exception e) {
+				// 何らかの理由でメソッドコールが失敗したらともかくnullを返す
+				return null;
+			}
+		}
+	}
+}
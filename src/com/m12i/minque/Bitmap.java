@@ -0,0 +1,182 @@
+package com.m12i.minque;
+
+import java.util.Arrays;
+
+/**
+ * 行番号の集合を64行ごとに{@code long}の1語にまとめて表現するビットマップ.
+ * 論理演算は語単位で行われるため、行数の多い集合同士の積・和・補集合を高速に求めることができます。
+ * インスタンスは変更できません。
+ */
+final class Bitmap {
+	private final long[] words;
+	private final int size;
+	
+	private Bitmap(final long[] words, final int size) {
+		this.words = words;
+		this.size = size;
+	}
+	
+	/**
+	 * 行番号の集合からビットマップを生成する.
+	 * @param rows 行番号の集合（重複のない昇順の配列）
+	 * @param size 行数
+	 * @return ビットマップ
+	 */
+	static Bitmap of(final int[] rows, final int size) {
+		final long[] words = new long[wordCount(size)];
+		for (final int row : rows) {
+			words[row >>> 6] |= 1L << row;
+		}
+		return new Bitmap(words, size);
+	}
+	
+	/**
+	 * 64行ごとに1語にまとめたビット列からビットマップを生成する.
+	 * 配列は複製されずにそのまま使用されるため、呼び出し側はそれ以降配列を変更してはならない。
+	 * 行数を超える位置のビットは0である必要がある。
+	 * @param words ビット列
+	 * @param size 行数
+	 * @return ビットマップ
+	 */
+	static Bitmap wrap(final long[] words, final int size) {
+		return new Bitmap(words, size);
+	}
+	
+	/**
+	 * 行数に対応するビット列の語数を返す.
+	 * @param size 行数
+	 * @return 語数
+	 */
+	static int wordCount(final int size) {
+		return (size + 63) >>> 6;
+	}
+	
+	/**
+	 * 空のビットマップを生成する.
+	 * @param size 行数
+	 * @return ビットマップ
+	 */
+	static Bitmap empty(final int size) {
+		return new Bitmap(new long[wordCount(size)], size);
+	}
+	
+	/**
+	 * 積集合を返す.
+	 * @param other ビットマップ
+	 * @return 積集合
+	 */
+	Bitmap and(final Bitmap other) {
+		final long[] result = new long[words.length];
+		for (int i = 0; i < result.length; i ++) {
+			result[i] = words[i] & other.words[i];
+		}
+		return new Bitmap(result, size);
+	}
+	
+	/**
+	 * 和集合を返す.
+	 * @param other ビットマップ
+	 * @return 和集合
+	 */
+	Bitmap or(final Bitmap other) {
+		final long[] result = new long[words.length];
+		for (int i = 0; i < result.length; i ++) {
+			result[i] = words[i] | other.words[i];
+		}
+		return new Bitmap(result, size);
+	}
+	
+	/**
+	 * この集合から引数の集合に含まれる要素を取り除いた差集合を返す.
+	 * @param other 取り除く要素のビットマップ
+	 * @return 差集合
+	 */
+	Bitmap andNot(final Bitmap other) {
+		final long[] result = new long[words.length];
+		for (int i = 0; i < result.length; i ++) {
+			result[i] = words[i] & ~ other.words[i];
+		}
+		return new Bitmap(result, size);
+	}
+	
+	/**
+	 * 補集合を返す.
+	 * @return 補集合
+	 */
+	Bitmap not() {
+		final long[] result = new long[words.length];
+		for (int i = 0; i < result.length; i ++) {
+			result[i] = ~ words[i];
+		}
+		// 行数を超える位置のビットは常に0にしておく
+		mask(result, size);
+		return new Bitmap(result, size);
+	}
+	
+	/**
+	 * 行の範囲に対応する部分のビット列を返す.
+	 * @param from 範囲の最初の行番号（64の倍数）
+	 * @param to 範囲の最後の行番号の次の行番号
+	 * @return 最初のビットが{@code from}行目に対応するビット列（範囲を超える位置のビットは0）
+	 */
+	long[] words(final int from, final int to) {
+		final int start = from >>> 6;
+		final long[] result = Arrays.copyOfRange(words, start, start + wordCount(to - from));
+		mask(result, to - from);
+		return result;
+	}
+	
+	/**
+	 * ビット列の行数を超える位置のビットを0にする.
+	 * @param words ビット列
+	 * @param size 行数
+	 */
+	static void mask(final long[] words, final int size) {
+		if ((size & 63) != 0) {
+			words[words.length - 1] &= (1L << size) - 1;
+		}
+	}
+	
+	/**
+	 * 行が集合に含まれるかどうかを返す.
+	 * @param row 行番号
+	 * @return 含まれる場合は{@code true}
+	 */
+	boolean get(final int row) {
+		return (words[row >>> 6] & (1L << row)) != 0;
+	}
+	
+	/**
+	 * 集合に含まれる行の数を返す.
+	 * @return 行の数
+	 */
+	int cardinality() {
+		int result = 0;
+		for (final long word : words) {
+			result += Long.bitCount(word);
+		}
+		return result;
+	}
+	
+	/**
+	 * 行番号の集合に変換する.
+	 * @return 行番号の集合（重複のない昇順の配列）
+	 */
+	int[] toRows() {
+		final int[] result = new int[cardinality()];
+		int k = 0;
+		for (int i = 0; i < words.length; i ++) {
+			long word = words[i];
+			while (word != 0) {
+				result[k ++] = (i << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return result;
+	}
+	
+	@Override
+	public String toString() {
+		return Arrays.toString(toRows());
+	}
+}
@@ -0,0 +1,111 @@
+package com.m12i.minque;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * プロパティの値ごとに行番号の集合をビットマップとして保持する索引.
+ * 状態や区分のように値の種類が少ないプロパティに適しています。
+ * {@code ==}・{@code !=}・{@code is null}・{@code is not null}に対応します。
+ * 
+ * <p>値は{@link HashIndex}と同様に{@link Object#toString()}による文字列表現をキーとして保持されます。
+ * 右辺が文字列である場合、この索引は比較式にマッチする行を過不足なく求められるため、
+ * {@link IndexedCollection}はこの索引だけで評価できる論理式をビットマップ同士の論理演算として評価し、
+ * 要素の再評価を省略します。</p>
+ * 
+ * <p>行数に比べて出現回数の少ない値については、ビットマップの代わりに行番号の配列を保持してメモリを節約します。</p>
+ */
+final class BitmapIndex implements ExactIndex {
+	private final Map<String, Posting> postings;
+	private final Posting nulls;
+	private final int size;
+	
+	<E> BitmapIndex(final List<E> rows, final PropertyReader<E> reader) {
+		final Map<String, Rows.Builder> builders = new HashMap<String, Rows.Builder>();
+		final Rows.Builder nullsBuilder = new Rows.Builder();
+		final int size = rows.size();
+		for (int i = 0; i < size; i ++) {
+			final Object value = reader.read(rows.get(i));
+			if (value == null) {
+				nullsBuilder.add(i);
+				continue;
+			}
+			final String key = value.toString();
+			Rows.Builder b = builders.get(key);
+			if (b == null) {
+				b = new Rows.Builder();
+				builders.put(key, b);
+			}
+			b.add(i);
+		}
+		this.postings = new HashMap<String, Posting>(builders.size() * 4 / 3 + 1);
+		for (final Map.Entry<String, Rows.Builder> e : builders.entrySet()) {
+			postings.put(e.getKey(), new Posting(e.getValue().toArray(), size));
+		}
+		this.nulls = new Posting(nullsBuilder.toArray(), size);
+		this.size = size;
+	}
+	
+	@Override
+	public int[] lookup(final Operator op, final Object expected) {
+		switch (op) {
+		case IS_NULL:
+		case IS_NOT_NULL:
+			return bitmap(op, expected).toRows();
+		case EQUALS:
+			return posting(expected.toString()).rows();
+		case NOT_EQUALS:
+			// 右辺が文字列でない場合は非nullの行をすべて候補とする
+			return expected instanceof String
+					? bitmap(op, expected).toRows()
+					: nulls.bitmap().not().toRows();
+		default:
+			return null;
+		}
+	}
+	
+	@Override
+	public Bitmap bitmap(final Operator op, final Object expected) {
+		switch (op) {
+		case IS_NULL:
+			return nulls.bitmap();
+		case IS_NOT_NULL:
+			return nulls.bitmap().not();
+		case EQUALS:
+			return expected instanceof String ? posting((String) expected).bitmap() : null;
+		case NOT_EQUALS:
+			return expected instanceof String ? nulls.bitmap().or(posting((String) expected).bitmap()).not() : null;
+		default:
+			return null;
+		}
+	}
+	
+	private Posting posting(final String key) {
+		final Posting result = postings.get(key);
+		return result == null ? new Posting(Rows.EMPTY, size) : result;
+	}
+	
+	/**
+	 * ひとつの値に対応する行の集合.
+	 * 出現回数の少ない値は行番号の配列として、多い値はビットマップとして保持する。
+	 */
+	private static final class Posting {
+		private final int[] rows;
+		private final Bitmap bitmap;
+		private final int size;
+		private Posting(final int[] rows, final int size) {
+			// 行番号の配列は1行あたり32ビットを使うため、それより疎な集合だけを配列で保持する
+			final boolean sparse = (long) rows.length * 32 < size;
+			this.rows = sparse ? rows : null;
+			this.bitmap = sparse ? null : Bitmap.of(rows, size);
+			this.size = size;
+		}
+		private int[] rows() {
+			return rows != null ? rows : bitmap.toRows();
+		}
+		private Bitmap bitmap() {
+			return bitmap != null ? bitmap : Bitmap.of(rows, size);
+		}
+	}
+}
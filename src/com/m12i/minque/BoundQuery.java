@@ -0,0 +1,147 @@
+package com.m12i.minque;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * バインド変数の値が確定した解析済みクエリを表わすオブジェクト.
+ * このオブジェクトは不変であり、複数のスレッドから同時に使用することができます。
+ * @param <E> 検索対象の{@link Iterable}実装の要素型
+ */
+public interface BoundQuery<E> {
+	/**
+	 * クエリにマッチしたすべての要素を返す.
+	 * 返却されるリストに含まれる要素の順序は、検索対象の{@link Iterable}実装の実装次第となります。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチしたすべての要素
+	 */
+	List<E> selectFrom(Iterable<E> target);
+	/**
+	 * クエリにマッチした最初の要素を返す.
+	 * クエリにマッチする要素が複数あった場合にいずれの要素が「最初の」要素とみなされるかは、
+	 * 検索対象の{@link Iterable}実装の実装次第となります。
+	 * マッチする要素がなかった場合は{@code null}を返します。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素
+	 */
+	E selectOneFrom(Iterable<E> target);
+	/**
+	 * クエリにマッチした要素の数を返す.
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素の数
+	 */
+	int countIn(Iterable<E> target);
+	/**
+	 * クエリにマッチした要素を先頭から指定された数まで返す.
+	 * 指定された数の要素が見つかった時点で検索対象の走査を打ち切ります。
+	 * @param target 検索対象
+	 * @param limit 返却する要素の数の上限
+	 * @return クエリ内容にマッチした要素
+	 * @throws IllegalArgumentException 上限が負の値である場合
+	 */
+	List<E> selectFrom(Iterable<E> target, int limit);
+	/**
+	 * クエリにマッチした要素のうち指定された数だけ読み飛ばした後の要素を指定された数まで返す.
+	 * 指定された数の要素が見つかった時点で検索対象の走査を打ち切ります。
+	 * @param target 検索対象
+	 * @param offset 読み飛ばす要素の数
+	 * @param limit 返却する要素の数の上限
+	 * @return クエリ内容にマッチした要素
+	 * @throws IllegalArgumentException 読み飛ばす要素の数もしくは上限が負の値である場合
+	 */
+	List<E> selectFrom(Iterable<E> target, int offset, int limit);
+	/**
+	 * クエリにマッチした要素が存在するかどうかを返す.
+	 * マッチする要素が見つかった時点で検索対象の走査を打ち切ります。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素が存在する場合は{@code true}
+	 */
+	boolean existsIn(Iterable<E> target);
+	/**
+	 * クエリにマッチした要素の数を指定された数を上限として返す.
+	 * マッチした要素の数が上限に達した時点で検索対象の走査を打ち切ります。
+	 * 「少なくともN件存在するか」を確認する場合などに使用します。
+	 * @param target 検索対象
+	 * @param max 上限
+	 * @return クエリ内容にマッチした要素の数（上限を超える場合は上限）
+	 * @throws IllegalArgumentException 上限が負の値である場合
+	 */
+	int countIn(Iterable<E> target, int max);
+	/**
+	 * クエリにマッチしたすべての要素を並列に検索して返す.
+	 * 検索対象が{@link java.util.RandomAccess}を実装した{@link List}である場合、
+	 * それを固定長のモーセルに分割し、デフォルトの{@link ForkJoinPool}のスレッドと呼び出し元のスレッドが
+	 * 未処理のモーセルを1つずつ取り出しながら並列に評価します。
+	 * 検索対象が{@link ColumnarTable}や{@link MappedTable}である場合は、列の走査がモーセルごとに並列に行われます。
+	 * それ以外の検索対象は呼び出し元のスレッドで逐次的に走査します。
+	 * 返却されるリストに含まれる要素の順序は検索対象における順序と同じになります。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチしたすべての要素
+	 */
+	List<E> selectFromParallel(Iterable<E> target);
+	/**
+	 * クエリにマッチしたすべての要素を指定された{@link ForkJoinPool}上で並列に検索して返す.
+	 * 返却されるリストに含まれる要素の順序は検索対象における順序と同じになります。
+	 * @param target 検索対象
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}
+	 * @return クエリ内容にマッチしたすべての要素
+	 */
+	List<E> selectFromParallel(Iterable<E> target, ForkJoinPool pool);
+	/**
+	 * クエリにマッチした要素をいずれか1つ並列に検索して返す.
+	 * クエリにマッチする要素が複数あった場合にいずれの要素が返されるかは定まりません。
+	 * いずれかのモーセルでマッチする要素が見つかった時点で残りのモーセルの評価は打ち切られます。
+	 * マッチする要素がなかった場合は{@code null}を返します。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素
+	 */
+	E selectOneFromParallel(Iterable<E> target);
+	/**
+	 * クエリにマッチした要素をいずれか1つ指定された{@link ForkJoinPool}上で並列に検索して返す.
+	 * クエリにマッチする要素が複数あった場合にいずれの要素が返されるかは定まりません。
+	 * マッチする要素がなかった場合は{@code null}を返します。
+	 * @param target 検索対象
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}
+	 * @return クエリ内容にマッチした要素
+	 */
+	E selectOneFromParallel(Iterable<E> target, ForkJoinPool pool);
+	/**
+	 * クエリにマッチした要素の数を並列に数えて返す.
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素の数
+	 */
+	long countInParallel(Iterable<E> target);
+	/**
+	 * クエリにマッチした要素の数を指定された{@link ForkJoinPool}上で並列に数えて返す.
+	 * @param target 検索対象
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}
+	 * @return クエリ内容にマッチした要素の数
+	 */
+	long countInParallel(Iterable<E> target, ForkJoinPool pool);
+	/**
+	 * クエリにマッチした要素を順に返すイテレータを返す.
+	 * 要素の評価はイテレータから要素が取り出される時点で必要な分だけ行われます。
+	 * そのため検索結果がリストとして保持されることはなく、途中で走査をやめることもできます。
+	 * 返却されるイテレータは{@link Iterator#remove()}をサポートしません。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素を返すイテレータ
+	 */
+	Iterator<E> iterator(Iterable<E> target);
+	/**
+	 * クエリにマッチした要素だけを返す{@link Iterable}を返す.
+	 * 返却されるオブジェクトは検索対象のビューであり、{@link Iterable#iterator()}が呼び出されるたびに
+	 * {@link #iterator(Iterable)}と同様のイテレータを生成します。
+	 * 拡張for文で検索結果を1件ずつ処理する場合などに使用します。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素だけを返す{@link Iterable}
+	 */
+	Iterable<E> filter(Iterable<E> target);
+	/**
+	 * 検索対象の変更に追随して検索結果を維持し続けるクエリを返す.
+	 * 検索対象の全要素はこの時点で一度だけ評価され、それ以降は変更された要素だけが評価し直されます。
+	 * @param target 検索対象
+	 * @return 検索結果を維持し続けるクエリ
+	 */
+	LiveQuery<E> live(ObservableCollection<E> target);
+}
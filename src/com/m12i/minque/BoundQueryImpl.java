@@ -0,0 +1,243 @@
+package com.m12i.minque;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+final class BoundQueryImpl<E> implements BoundQuery<E> {
+	private final Expression expression;
+	private final Object[] vars;
+	private final PropertyResolver<E> resolver;
+	private final Map<String, PropertyReader<E>> readers;
+	private final Node<E> node;
+	private final Node<E> always = new Nodes.Constant<E>(true);
+	public BoundQueryImpl(final Expression expression, final Object[] vars, final PropertyResolver<E> resolver,
+			final Map<String, PropertyReader<E>> readers, final Node<E> node) {
+		this.expression = expression;
+		this.vars = vars;
+		this.resolver = resolver;
+		this.readers = readers;
+		this.node = node;
+	}
+
+	@Override
+	public List<E> selectFrom(Iterable<E> source) {
+		final List<E> result = new ArrayList<E>();
+		final Iterable<E> candidates = narrow(source);
+		final Node<E> node = nodeFor(candidates);
+		for (final E elem : candidates) {
+			if (node.test(elem)) {
+				result.add(elem);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public int countIn(Iterable<E> source) {
+		int result = 0;
+		final Iterable<E> candidates = narrow(source);
+		final Node<E> node = nodeFor(candidates);
+		for (final E elem : candidates) {
+			if (node.test(elem)) {
+				result ++;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public List<E> selectFrom(Iterable<E> source, int limit) {
+		return selectFrom(source, 0, limit);
+	}
+
+	@Override
+	public List<E> selectFrom(Iterable<E> source, int offset, int limit) {
+		if (offset < 0 || limit < 0) {
+			throw new IllegalArgumentException("Offset and limit must not be negative.");
+		}
+		final List<E> result = new ArrayList<E>();
+		if (limit == 0) {
+			return result;
+		}
+		int skipped = 0;
+		final Iterable<E> candidates = narrow(source);
+		final Node<E> node = nodeFor(candidates);
+		for (final E elem : candidates) {
+			if (node.test(elem)) {
+				if (skipped < offset) {
+					skipped ++;
+				} else {
+					result.add(elem);
+					if (result.size() == limit) {
+						break;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public boolean existsIn(Iterable<E> source) {
+		final Iterable<E> candidates = narrow(source);
+		final Node<E> node = nodeFor(candidates);
+		for (final E elem : candidates) {
+			if (node.test(elem)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int countIn(Iterable<E> source, int max) {
+		if (max < 0) {
+			throw new IllegalArgumentException("Max must not be negative.");
+		}
+		int result = 0;
+		if (max == 0) {
+			return result;
+		}
+		final Iterable<E> candidates = narrow(source);
+		final Node<E> node = nodeFor(candidates);
+		for (final E elem : candidates) {
+			if (node.test(elem) && ++ result == max) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public E selectOneFrom(Iterable<E> source) {
+		final Iterable<E> candidates = narrow(source);
+		final Node<E> node = nodeFor(candidates);
+		for (final E elem : candidates) {
+			if (node.test(elem)) {
+				return elem;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public List<E> selectFromParallel(Iterable<E> source) {
+		return selectFromParallel(source, ParallelScan.defaultPool());
+	}
+
+	@Override
+	public List<E> selectFromParallel(Iterable<E> source, ForkJoinPool pool) {
+		final Iterable<E> candidates = narrow(source, pool);
+		return ParallelScan.selectFrom(pool, nodeFor(candidates), candidates);
+	}
+
+	@Override
+	public E selectOneFromParallel(Iterable<E> source) {
+		return selectOneFromParallel(source, ParallelScan.defaultPool());
+	}
+
+	@Override
+	public E selectOneFromParallel(Iterable<E> source, ForkJoinPool pool) {
+		final Iterable<E> candidates = narrow(source, pool);
+		return ParallelScan.selectOneFrom(pool, nodeFor(candidates), candidates);
+	}
+
+	@Override
+	public long countInParallel(Iterable<E> source) {
+		return countInParallel(source, ParallelScan.defaultPool());
+	}
+
+	@Override
+	public long countInParallel(Iterable<E> source, ForkJoinPool pool) {
+		final Iterable<E> candidates = narrow(source, pool);
+		return ParallelScan.countIn(pool, nodeFor(candidates), candidates);
+	}
+
+	@Override
+	public Iterator<E> iterator(Iterable<E> source) {
+		final Iterable<E> candidates = narrow(source);
+		return new FilteringIterator<E>(nodeFor(candidates), candidates.iterator());
+	}
+
+	@Override
+	public Iterable<E> filter(final Iterable<E> source) {
+		return new Iterable<E>() {
+			@Override
+			public Iterator<E> iterator() {
+				return BoundQueryImpl.this.iterator(source);
+			}
+		};
+	}
+
+	@Override
+	public LiveQuery<E> live(ObservableCollection<E> source) {
+		return new LiveQuery<E>(node, source);
+	}
+
+	Expression expression() {
+		return expression;
+	}
+
+	Object[] vars() {
+		return vars;
+	}
+
+	PropertyResolver<E> resolver() {
+		return resolver;
+	}
+
+	Map<String, PropertyReader<E>> readers() {
+		return readers;
+	}
+
+	Node<E> node() {
+		return node;
+	}
+
+	/**
+	 * 検索対象が索引を備えている場合は、それを使って走査すべき要素を絞り込む.
+	 * 絞り込まれた要素は原則として評価ノードによって再評価される。
+	 * 検索対象が列指向のテーブルである場合は、列ごとの走査によって式にマッチする要素だけに絞り込む。
+	 * 列の走査はモーセルごとに要素の取り出しに合わせて行われ、走査を打ち切った時点で残りのモーセルは走査されない。
+	 * @param source 検索対象
+	 * @return 走査すべき要素
+	 */
+	private Iterable<E> narrow(Iterable<E> source) {
+		return narrow(source, null);
+	}
+
+	/**
+	 * 検索対象が索引を備えている場合は、それを使って走査すべき要素を絞り込む.
+	 * 検索対象が列指向のテーブルである場合、プールが指定されていれば列ごとの走査はモーセルごとに並列に行われる。
+	 * @param source 検索対象
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}（逐次的に走査する場合は{@code null}）
+	 * @return 走査すべき要素
+	 */
+	@SuppressWarnings("unchecked")
+	private Iterable<E> narrow(Iterable<E> source, ForkJoinPool pool) {
+		if (source instanceof IndexedCollection) {
+			return ((IndexedCollection<E>) source).candidates(expression, vars);
+		} else if (source instanceof ColumnarTable) {
+			final ColumnarTable<E> table = (ColumnarTable<E>) source;
+			return pool == null ? table.scan(expression, vars) : table.select(pool, expression, vars);
+		} else if (source instanceof MappedTable) {
+			// MappedTableの要素型はMapであるため、検索対象の要素型もそれと一致している
+			final MappedTable table = (MappedTable) source;
+			return (Iterable<E>) (Iterable<?>) (pool == null ? table.scan(expression, vars) : table.select(pool, expression, vars));
+		}
+		return source;
+	}
+
+	/**
+	 * 走査すべき要素に対して使用する評価ノードを返す.
+	 * 索引によって式にマッチする要素だけに絞り込まれている場合、再評価は省略される。
+	 * @param candidates 走査すべき要素
+	 * @return 評価ノード
+	 */
+	private Node<E> nodeFor(Iterable<E> candidates) {
+		return RowList.isExact(candidates) ? always : node;
+	}
+}
@@ -0,0 +1,503 @@
+package com.m12i.minque;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link MappedTable}が使用する列ファイルの書式と、その読み書きのためのユーティリティ.
+ * 
+ * <p>列ファイルはリトル・エンディアンで記述され、次の3つの部分からなります。</p>
+ * <ol>
+ * <li>ヘッダー（{@link #HEADER_SIZE}バイト）：マジック・ナンバー、バージョン、行数、予約領域、フッターの位置</li>
+ * <li>列のデータ：列ごとに、{@code null}の行のビット列（{@code null}を含む列のみ）、値の配列、辞書（文字列の列のみ）</li>
+ * <li>フッター：列の数と、列ごとの名前・型・各データの位置</li>
+ * </ol>
+ * <p>値の配列は{@code int}・{@code long}・{@code double}の配列、もしくは辞書のコード（{@code int}）の配列です。
+ * 各データは8バイト境界から始まるため、メモリ・マップしたバッファをそのまま数値の配列として読み取ることができます。</p>
+ */
+final class ColumnFile {
+	private ColumnFile() {}
+	
+	static final int MAGIC = 0x4D514346;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 24;
+	
+	static final byte INT = 1;
+	static final byte LONG = 2;
+	static final byte DOUBLE = 3;
+	static final byte STRING = 4;
+	
+	static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	/**
+	 * 要素の集合を列ファイルに書き出す.
+	 * 要素は一度だけ走査され、列ごとのデータは同じディレクトリに作成される一時ファイルを経由して書き出されます。
+	 * @param file 列ファイル
+	 * @param source 要素の集合
+	 * @param accessor アクセサ
+	 * @param props 書き出すプロパティ
+	 * @throws IOException 書き出し中にエラーが発生した場合
+	 * @throws IllegalArgumentException プロパティ値が{@link Integer}・{@link Long}・{@link Double}・{@link String}以外である場合、
+	 *         もしくは複数のクラスの値が混在している場合
+	 */
+	static <E> void write(final File file, final Iterable<? extends E> source,
+			final Accessor<E> accessor, final String... props) throws IOException {
+		final File dir = file.getAbsoluteFile().getParentFile();
+		final List<Sink<E>> sinks = new ArrayList<Sink<E>>();
+		try {
+			for (final String prop : props) {
+				sinks.add(new Sink<E>(prop, accessor, dir));
+			}
+			int rows = 0;
+			for (final E elem : source) {
+				if (rows == Integer.MAX_VALUE) {
+					throw new IllegalArgumentException("Too many elements.");
+				}
+				for (final Sink<E> sink : sinks) {
+					sink.add(elem);
+				}
+				rows ++;
+			}
+			
+			final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(0);
+				final FileChannel out = raf.getChannel();
+				out.position(HEADER_SIZE);
+				for (final Sink<E> sink : sinks) {
+					sink.finish();
+					sink.transferTo(out);
+				}
+				final long footerOffset = out.position();
+				final Output footer = new Output(out);
+				footer.writeInt(sinks.size());
+				for (final Sink<E> sink : sinks) {
+					sink.writeFooter(footer);
+				}
+				footer.flush();
+				
+				final Output header = new Output(out.position(0));
+				header.writeInt(MAGIC);
+				header.writeInt(VERSION);
+				header.writeInt(rows);
+				header.writeInt(0);
+				header.writeLong(footerOffset);
+				header.flush();
+			} finally {
+				raf.close();
+			}
+		} finally {
+			for (final Sink<E> sink : sinks) {
+				sink.dispose();
+			}
+		}
+	}
+	
+	/**
+	 * 列ファイルのフッターに記述された列の情報.
+	 */
+	static final class Entry {
+		String name;
+		byte type;
+		boolean primitive;
+		boolean hasNulls;
+		long nullsOffset;
+		long dataOffset;
+		long dictionaryOffset;
+		long dictionaryLength;
+		int dictionarySize;
+	}
+	
+	/**
+	 * 列ファイルのヘッダーとフッターを読み取る.
+	 * @param channel 列ファイルのチャネル
+	 * @param entries 列の情報を格納するマップ
+	 * @return 行数
+	 * @throws IOException 読み取り中にエラーが発生した場合、もしくは列ファイルでない場合
+	 */
+	static int readEntries(final FileChannel channel, final Map<String, Entry> entries) throws IOException {
+		final ByteBuffer header = read(channel, 0, HEADER_SIZE);
+		if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+			throw new IOException("Not a column file.");
+		}
+		final int rows = header.getInt();
+		header.getInt();
+		final long footerOffset = header.getLong();
+		final ByteBuffer footer = read(channel, footerOffset, (int) (channel.size() - footerOffset));
+		final int count = footer.getInt();
+		for (int i = 0; i < count; i ++) {
+			final Entry e = new Entry();
+			final byte[] name = new byte[footer.getInt()];
+			footer.get(name);
+			e.name = new String(name, UTF_8);
+			e.type = footer.get();
+			e.primitive = footer.get() != 0;
+			e.hasNulls = footer.get() != 0;
+			e.nullsOffset = footer.getLong();
+			e.dataOffset = footer.getLong();
+			e.dictionaryOffset = footer.getLong();
+			e.dictionaryLength = footer.getLong();
+			e.dictionarySize = footer.getInt();
+			entries.put(e.name, e);
+		}
+		return rows;
+	}
+	
+	/**
+	 * 列ファイルの辞書を読み取る.
+	 * @param channel 列ファイルのチャネル
+	 * @param entry 列の情報
+	 * @return 辞書
+	 * @throws IOException 読み取り中にエラーが発生した場合
+	 */
+	static String[] readDictionary(final FileChannel channel, final Entry entry) throws IOException {
+		final String[] result = new String[entry.dictionarySize];
+		if (result.length == 0) {
+			return result;
+		}
+		final ByteBuffer buff = channel.map(FileChannel.MapMode.READ_ONLY,
+				entry.dictionaryOffset, entry.dictionaryLength).order(ORDER);
+		for (int i = 0; i < result.length; i ++) {
+			final byte[] bytes = new byte[buff.getInt()];
+			buff.get(bytes);
+			result[i] = new String(bytes, UTF_8);
+		}
+		return result;
+	}
+	
+	/**
+	 * 列ファイルの{@code null}の行のビット列を読み取る.
+	 * @param channel 列ファイルのチャネル
+	 * @param entry 列の情報
+	 * @param rows 行数
+	 * @return {@code null}の行のビットマップ
+	 * @throws IOException 読み取り中にエラーが発生した場合
+	 */
+	static Bitmap readNulls(final FileChannel channel, final Entry entry, final int rows) throws IOException {
+		if (!entry.hasNulls) {
+			return Bitmap.empty(rows);
+		}
+		final long[] words = new long[Bitmap.wordCount(rows)];
+		channel.map(FileChannel.MapMode.READ_ONLY, entry.nullsOffset, words.length * 8L)
+		.order(ORDER).asLongBuffer().get(words);
+		return Bitmap.wrap(words, rows);
+	}
+	
+	/**
+	 * 列ファイルの値の配列をセグメントごとにメモリ・マップする.
+	 * @param channel 列ファイルのチャネル
+	 * @param entry 列の情報
+	 * @param rows 行数
+	 * @param segmentRows セグメントあたりの行数（64の倍数）
+	 * @return セグメントごとのバッファ
+	 * @throws IOException マップ中にエラーが発生した場合
+	 */
+	static ByteBuffer[] mapSegments(final FileChannel channel, final Entry entry,
+			final int rows, final int segmentRows) throws IOException {
+		final int width = entry.type == LONG || entry.type == DOUBLE ? 8 : 4;
+		final int count = rows <= 0 ? 0 : (rows - 1) / segmentRows + 1;
+		final ByteBuffer[] result = new ByteBuffer[count];
+		for (int i = 0; i < count; i ++) {
+			final long from = (long) i * segmentRows;
+			final long length = Math.min(segmentRows, rows - from) * width;
+			result[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+					entry.dataOffset + from * width, length).order(ORDER);
+		}
+		return result;
+	}
+	
+	private static ByteBuffer read(final FileChannel channel, final long position, final int length) throws IOException {
+		final ByteBuffer buff = ByteBuffer.allocate(length).order(ORDER);
+		while (buff.hasRemaining()) {
+			if (channel.read(buff, position + buff.position()) < 0) {
+				throw new EOFException();
+			}
+		}
+		buff.flip();
+		return buff;
+	}
+	
+	/**
+	 * ひとつの列のデータを一時ファイルに書き出すためのオブジェクト.
+	 * 列の型は最初に現れた{@code null}でない値によって決まる。
+	 * それまでに現れた{@code null}の行は、型が決まった時点でまとめて書き出される。
+	 */
+	private static final class Sink<E> {
+		private final String prop;
+		private final PropertyReader<E> reader;
+		private final boolean primitive;
+		private final File nullsFile;
+		private final File dataFile;
+		private final FileOutputStream nullsStream;
+		private final FileOutputStream dataStream;
+		private final Output nullsOut;
+		private final Output dataOut;
+		private final Map<String, Integer> dictionary = new LinkedHashMap<String, Integer>();
+		private byte type = 0;
+		private int pending = 0;
+		private int rows = 0;
+		private long nullsWord = 0;
+		private boolean hasNulls = false;
+		private long nullsOffset;
+		private long dataOffset;
+		private long dictionaryOffset;
+		private long dictionaryLength;
+		
+		private Sink(final String prop, final Accessor<E> accessor, final File dir) throws IOException {
+			this.prop = prop;
+			this.reader = Nodes.reader(accessor, prop);
+			this.primitive = Nodes.comparesAsNumber(reader);
+			// 途中で失敗した場合、呼び出し側はこのオブジェクトを後始末できないため、作成済みの一時ファイルはここで削除する
+			File nullsFile = null;
+			File dataFile = null;
+			FileOutputStream nullsStream = null;
+			FileOutputStream dataStream = null;
+			boolean created = false;
+			try {
+				nullsFile = File.createTempFile("minque", ".nulls", dir);
+				dataFile = File.createTempFile("minque", ".data", dir);
+				nullsStream = new FileOutputStream(nullsFile);
+				dataStream = new FileOutputStream(dataFile);
+				created = true;
+			} finally {
+				if (!created) {
+					discard(nullsStream, nullsFile);
+					discard(dataStream, dataFile);
+				}
+			}
+			this.nullsFile = nullsFile;
+			this.dataFile = dataFile;
+			this.nullsStream = nullsStream;
+			this.dataStream = dataStream;
+			this.nullsOut = new Output(nullsStream.getChannel());
+			this.dataOut = new Output(dataStream.getChannel());
+		}
+		
+		private void add(final E elem) throws IOException {
+			final Object value = reader.read(elem);
+			if (value == null) {
+				nullsWord |= 1L << rows;
+				hasNulls = true;
+			}
+			if ((rows & 63) == 63) {
+				nullsOut.writeLong(nullsWord);
+				nullsWord = 0;
+			}
+			rows ++;
+			if (type == 0) {
+				if (value == null) {
+					pending ++;
+					return;
+				}
+				type = typeOf(value);
+				for (; pending > 0; pending --) {
+					writeValue(null);
+				}
+			}
+			writeValue(value);
+		}
+		
+		private byte typeOf(final Object value) {
+			if (value instanceof Integer) {
+				return INT;
+			} else if (value instanceof Long) {
+				return LONG;
+			} else if (value instanceof Double) {
+				return DOUBLE;
+			} else if (value instanceof String) {
+				return STRING;
+			}
+			throw new IllegalArgumentException(String.format("Unsupported value type for column \"%s\".", prop));
+		}
+		
+		private void writeValue(final Object value) throws IOException {
+			if (value != null && typeOf(value) != type) {
+				throw new IllegalArgumentException(String.format(
+						"Values of column \"%s\" must be instances of the same class.", prop));
+			}
+			switch (type) {
+			case INT:
+				dataOut.writeInt(value == null ? 0 : (Integer) value);
+				break;
+			case LONG:
+				dataOut.writeLong(value == null ? 0L : (Long) value);
+				break;
+			case DOUBLE:
+				dataOut.writeDouble(value == null ? 0.0 : (Double) value);
+				break;
+			default:
+				if (value == null) {
+					dataOut.writeInt(-1);
+				} else {
+					Integer code = dictionary.get(value);
+					if (code == null) {
+						code = dictionary.size();
+						dictionary.put((String) value, code);
+					}
+					dataOut.writeInt(code);
+				}
+			}
+		}
+		
+		private void finish() throws IOException {
+			if (type == 0) {
+				// 値がすべてnullの列は空の辞書を持つ文字列の列とする
+				type = STRING;
+				for (; pending > 0; pending --) {
+					writeValue(null);
+				}
+			}
+			if ((rows & 63) != 0) {
+				nullsOut.writeLong(nullsWord);
+			}
+			nullsOut.flush();
+			dataOut.flush();
+			nullsStream.close();
+			dataStream.close();
+		}
+		
+		private void transferTo(final FileChannel out) throws IOException {
+			if (hasNulls) {
+				nullsOffset = align(out);
+				transfer(nullsFile, out);
+			}
+			dataOffset = align(out);
+			transfer(dataFile, out);
+			if (type == STRING) {
+				dictionaryOffset = align(out);
+				final Output o = new Output(out);
+				for (final String value : dictionary.keySet()) {
+					final byte[] bytes = value.getBytes(UTF_8);
+					o.writeInt(bytes.length);
+					o.writeBytes(bytes);
+				}
+				o.flush();
+				dictionaryLength = out.position() - dictionaryOffset;
+			}
+		}
+		
+		private void writeFooter(final Output o) throws IOException {
+			final byte[] name = prop.getBytes(UTF_8);
+			o.writeInt(name.length);
+			o.writeBytes(name);
+			o.writeByte(type);
+			o.writeByte(primitive ? 1 : 0);
+			o.writeByte(hasNulls ? 1 : 0);
+			o.writeLong(nullsOffset);
+			o.writeLong(dataOffset);
+			o.writeLong(dictionaryOffset);
+			o.writeLong(dictionaryLength);
+			o.writeInt(dictionary.size());
+		}
+		
+		private void dispose() throws IOException {
+			nullsStream.close();
+			dataStream.close();
+			nullsFile.delete();
+			dataFile.delete();
+		}
+		
+		/**
+		 * 作成途中の一時ファイルを閉じて削除する.
+		 * 元の例外を隠さないように、ここで発生した例外は無視する。
+		 * @param stream ストリーム（作成されていない場合は{@code null}）
+		 * @param file ファイル（作成されていない場合は{@code null}）
+		 */
+		private static void discard(final FileOutputStream stream, final File file) {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (final IOException e) {
+					// Do nothing.
+				}
+			}
+			if (file != null) {
+				file.delete();
+			}
+		}
+		
+		private static long align(final FileChannel out) throws IOException {
+			final long position = out.position();
+			final long aligned = (position + 7) & ~ 7L;
+			if (aligned != position) {
+				out.write(ByteBuffer.allocate((int) (aligned - position)));
+			}
+			return aligned;
+		}
+		
+		private static void transfer(final File file, final FileChannel out) throws IOException {
+			final FileInputStream in = new FileInputStream(file);
+			try {
+				final FileChannel channel = in.getChannel();
+				final long size = channel.size();
+				long done = 0;
+				while (done < size) {
+					done += channel.transferTo(done, size - done, out);
+				}
+			} finally {
+				in.close();
+			}
+		}
+	}
+	
+	/**
+	 * チャネルにリトル・エンディアンで値を書き出すためのバッファ付き出力.
+	 */
+	private static final class Output {
+		private final WritableByteChannel channel;
+		private final ByteBuffer buff = ByteBuffer.allocate(1 << 16).order(ORDER);
+		private Output(final WritableByteChannel channel) {
+			this.channel = channel;
+		}
+		private void ensure(final int length) throws IOException {
+			if (buff.remaining() < length) {
+				flush();
+			}
+		}
+		private void writeByte(final int value) throws IOException {
+			ensure(1);
+			buff.put((byte) value);
+		}
+		private void writeInt(final int value) throws IOException {
+			ensure(4);
+			buff.putInt(value);
+		}
+		private void writeLong(final long value) throws IOException {
+			ensure(8);
+			buff.putLong(value);
+		}
+		private void writeDouble(final double value) throws IOException {
+			ensure(8);
+			buff.putDouble(value);
+		}
+		private void writeBytes(final byte[] bytes) throws IOException {
+			for (int i = 0; i < bytes.length; ) {
+				ensure(1);
+				final int length = Math.min(buff.remaining(), bytes.length - i);
+				buff.put(bytes, i, length);
+				i += length;
+			}
+		}
+		private void flush() throws IOException {
+			buff.flip();
+			while (buff.hasRemaining()) {
+				channel.write(buff);
+			}
+			buff.clear();
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package com.m12i.minque;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 要素のプロパティを列ごとに保持する検索対象テーブル.
+ * 構築時点の要素のスナップショットを保持し、クエリで参照されたプロパティごとに列を作成します。
+ * 列は{@code int}・{@code long}・{@code double}の配列、辞書によって符号化された文字列、もしくは値そのものの配列として保持されます。
+ * 
+ * <p>このテーブルを検索対象として{@link Query}や{@link BoundQuery}のAPIを呼び出すと、
+ * クエリの各比較式はひとつの列を先頭から走査する単純なループとして評価され、マッチした行のビットマップ（選択ベクトル）になります。
+ * 論理式はビットマップ同士の論理演算として評価され、最終的なビットマップに含まれる行の要素だけが結果となります。
+ * 要素ごとに{@link Accessor}を呼び出して評価ノードを評価することはありません。
+ * 同じデータセットに対して多くのクエリを繰り返し実行する分析的な用途に適しています。
+ * {@link BoundQuery#selectFromParallel(Iterable, ForkJoinPool)}などの並列版のAPIでは、
+ * テーブルの行を固定長のモーセルに分割し、列の走査をモーセルごとに複数のスレッドで行います。
+ * 逐次版のAPIでも列の走査はモーセルごとに行われ、{@link BoundQuery#existsIn(Iterable)}のように
+ * 結果が確定した時点で終了する検索では、残りのモーセルは走査されません。</p>
+ * 
+ * <p>列は構築時に指定された{@link Accessor}を使って、クエリで初めて参照された時点で作成されます。
+ * {@link #createColumn(String)}で事前に作成しておくこともできます。
+ * クエリを生成した{@link QueryFactory}のアクセサと同じ値を返すアクセサを指定する必要があります。</p>
+ * 
+ * <p>このテーブルは変更できません。
+ * 複数のスレッドから同時に検索対象として使用することができます。</p>
+ * @param <E> 要素型
+ */
+public final class ColumnarTable<E> extends AbstractList<E> implements RandomAccess {
+	private final List<E> rows;
+	private final Accessor<E> accessor;
+	private volatile Map<String, Columns.Column> columns = Collections.emptyMap();
+	private final Columns.Provider provider = new Columns.Provider() {
+		@Override
+		public Columns.Column column(final String prop) {
+			return ColumnarTable.this.column(prop);
+		}
+	};
+	
+	/**
+	 * テーブルを初期化する.
+	 * @param source 元になる要素の集合
+	 * @param accessor 列の作成に使用するアクセサ
+	 */
+	public ColumnarTable(final Iterable<? extends E> source, final Accessor<E> accessor) {
+		if (source == null || accessor == null) {
+			throw new IllegalArgumentException();
+		}
+		final List<E> rows = new ArrayList<E>();
+		for (final E elem : source) {
+			rows.add(elem);
+		}
+		this.rows = rows;
+		this.accessor = accessor;
+	}
+	
+	/**
+	 * プロパティの列を作成する.
+	 * すでに作成済みの場合は何もしません。
+	 * @param prop プロパティ
+	 */
+	public void createColumn(final String prop) {
+		column(prop);
+	}
+	
+	@Override
+	public E get(final int index) {
+		return rows.get(index);
+	}
+	
+	@Override
+	public int size() {
+		return rows.size();
+	}
+	
+	/**
+	 * 式にマッチする要素のリストを返す.
+	 * 返却されるリストの要素はこのテーブルにおける順序を保っており、式による再評価は不要である。
+	 * @param expr 式
+	 * @param vars バインド変数
+	 * @return 式にマッチする要素のリスト
+	 */
+	List<E> select(final Expression expr, final Object... vars) {
+		return select((ForkJoinPool) null, expr, vars);
+	}
+	
+	/**
+	 * 式にマッチする要素を順に返す{@link Iterable}を返す.
+	 * 列の走査はモーセルごとに要素の取り出しに合わせて進むため、反復を途中で打ち切った場合は残りのモーセルは走査されない。
+	 * 返却される要素はこのテーブルにおける順序を保っており、式による再評価は不要である。
+	 * @param expr 式
+	 * @param vars バインド変数
+	 * @return 式にマッチする要素
+	 */
+	Iterable<E> scan(final Expression expr, final Object... vars) {
+		return Columns.scan(rows, Columns.prepare(provider, expr, vars));
+	}
+	
+	/**
+	 * 式にマッチする要素のリストを返す.
+	 * テーブルの行はモーセルに分割され、プールが指定された場合は複数のスレッドで走査される。
+	 * 返却されるリストの要素はこのテーブルにおける順序を保っており、式による再評価は不要である。
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}（逐次的に走査する場合は{@code null}）
+	 * @param expr 式
+	 * @param vars バインド変数
+	 * @return 式にマッチする要素のリスト
+	 */
+	List<E> select(final ForkJoinPool pool, final Expression expr, final Object... vars) {
+		return new RowList<E>(rows, Columns.select(pool, size(), Columns.prepare(provider, expr, vars)), true);
+	}
+	
+	private Columns.Column column(final String prop) {
+		final Columns.Column column = columns.get(prop);
+		return column != null ? column : createColumnIfAbsent(prop);
+	}
+	
+	private synchronized Columns.Column createColumnIfAbsent(final String prop) {
+		final Columns.Column column = columns.get(prop);
+		if (column != null) {
+			return column;
+		}
+		// 検索中のスレッドに影響しないようマップを複製してから差し替える
+		final Columns.Column created = Columns.build(rows, accessor, prop);
+		final Map<String, Columns.Column> copy = new HashMap<String, Columns.Column>(columns);
+		copy.put(prop, created);
+		columns = copy;
+		return created;
+	}
+}
@@ -0,0 +1,782 @@
+package com.m12i.minque;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * {@link ColumnarTable}が保持する列と、その生成のためのユーティリティ.
+ * 列はプロパティ値の型に応じて{@code int}・{@code long}・{@code double}の配列、
+ * 文字列の辞書とそのコードの配列、もしくは値そのものの配列として保持されます。
+ * いずれの列も{@code null}の行をビットマップとして保持します。
+ * 
+ * <p>比較式はひとつの列に対する走査として評価され、その結果はマッチした行のビット列になります。
+ * 式は行の範囲ごとに評価できるため、テーブルをモーセルに分割して複数のスレッドで走査することができます。
+ * 評価結果は、同じプロパティ値に対して{@link Nodes}の評価ノードが返す結果と常に一致します。</p>
+ */
+final class Columns {
+	private Columns() {}
+	
+	/**
+	 * 行のリストからプロパティの列を生成する.
+	 * {@link PrimitiveAccessor}が{@code int}・{@code long}・{@code double}型であるとしたプロパティは、
+	 * ボクシングを伴わずにプリミティブ値の配列として読み取られます。
+	 * それ以外のプロパティは、{@code null}でない値がすべて{@link Integer}・{@link Long}・{@link Double}・{@link String}の
+	 * いずれかひとつのクラスである場合に限りそれぞれ専用の列として、そうでない場合は値そのものの配列として保持されます。
+	 * @param rows 行のリスト
+	 * @param accessor アクセサ
+	 * @param prop プロパティ
+	 * @return 列
+	 */
+	static <E> Column build(final List<E> rows, final Accessor<E> accessor, final String prop) {
+		final int size = rows.size();
+		if (accessor instanceof PrimitiveAccessor) {
+			final PrimitiveAccessor<E> pa = (PrimitiveAccessor<E>) accessor;
+			final Class<?> type = pa.typeOf(prop);
+			final Bitmap nulls = Bitmap.empty(size);
+			if (type == int.class) {
+				final int[] values = new int[size];
+				for (int i = 0; i < size; i ++) {
+					values[i] = pa.getInt(rows.get(i), prop);
+				}
+				return new IntColumn(values, nulls, true);
+			} else if (type == long.class) {
+				final long[] values = new long[size];
+				for (int i = 0; i < size; i ++) {
+					values[i] = pa.getLong(rows.get(i), prop);
+				}
+				return new LongColumn(values, nulls, true);
+			} else if (type == double.class) {
+				final double[] values = new double[size];
+				for (int i = 0; i < size; i ++) {
+					values[i] = pa.getDouble(rows.get(i), prop);
+				}
+				return new DoubleColumn(values, nulls, true);
+			}
+		}
+		
+		// 値を読み取ったうえで、null以外の値のクラスがひとつに揃っているかどうかを調べる
+		final PropertyReader<E> reader = Nodes.reader(accessor, prop);
+		// 評価ノードが数値同士として大小比較するプロパティは、列でも同じ規則で比較する
+		final boolean primitive = Nodes.comparesAsNumber(reader);
+		final Object[] values = new Object[size];
+		final long[] nullWords = new long[Bitmap.wordCount(size)];
+		Class<?> type = null;
+		boolean uniform = true;
+		for (int i = 0; i < size; i ++) {
+			final Object value = reader.read(rows.get(i));
+			values[i] = value;
+			if (value == null) {
+				nullWords[i >>> 6] |= 1L << i;
+			} else if (type == null) {
+				type = value.getClass();
+			} else if (type != value.getClass()) {
+				uniform = false;
+			}
+		}
+		final Bitmap nulls = Bitmap.wrap(nullWords, size);
+		if (!uniform || type == null) {
+			return new ObjectColumn(values, nulls);
+		} else if (type == Integer.class) {
+			final int[] ints = new int[size];
+			for (int i = 0; i < size; i ++) {
+				ints[i] = values[i] == null ? 0 : (Integer) values[i];
+			}
+			return new IntColumn(ints, nulls, primitive);
+		} else if (type == Long.class) {
+			final long[] longs = new long[size];
+			for (int i = 0; i < size; i ++) {
+				longs[i] = values[i] == null ? 0L : (Long) values[i];
+			}
+			return new LongColumn(longs, nulls, primitive);
+		} else if (type == Double.class) {
+			final double[] doubles = new double[size];
+			for (int i = 0; i < size; i ++) {
+				doubles[i] = values[i] == null ? 0.0 : (Double) values[i];
+			}
+			return new DoubleColumn(doubles, nulls, primitive);
+		} else if (type == String.class) {
+			// 文字列を出現順に辞書に登録し、各行をそのコードに置き換える
+			final Map<String, Integer> lookup = new HashMap<String, Integer>();
+			final int[] codes = new int[size];
+			for (int i = 0; i < size; i ++) {
+				if (values[i] == null) {
+					codes[i] = -1;
+					continue;
+				}
+				Integer code = lookup.get(values[i]);
+				if (code == null) {
+					code = lookup.size();
+					lookup.put((String) values[i], code);
+				}
+				codes[i] = code;
+			}
+			final String[] dictionary = new String[lookup.size()];
+			for (final Map.Entry<String, Integer> e : lookup.entrySet()) {
+				dictionary[e.getValue()] = e.getKey();
+			}
+			return new StringColumn(dictionary, codes, nulls);
+		} else {
+			return new ObjectColumn(values, nulls);
+		}
+	}
+	
+	/**
+	 * 式を行の範囲ごとに評価できるよう準備する.
+	 * 比較式は列ごとの走査として、論理式はビット列同士の論理演算として評価される。
+	 * 式が参照する列はこの時点ですべて取得される。
+	 * @param provider 列の提供元
+	 * @param expr 式
+	 * @param vars バインド変数
+	 * @return 準備済みの式
+	 */
+	static Selector prepare(final Provider provider, final Expression expr, final Object... vars) {
+		final Operator op = expr.getOperator();
+		if (expr.isComparative()) {
+			return provider.column(expr.getProperty()).prepare(op, expr.getValue(vars));
+		} else if (op == Operator.AND) {
+			return new And(prepare(provider, expr.getLeft(), vars), prepare(provider, expr.getRight(), vars));
+		} else if (op == Operator.OR) {
+			return new Or(prepare(provider, expr.getLeft(), vars), prepare(provider, expr.getRight(), vars));
+		} else if (op == Operator.NOT) {
+			return new Not(prepare(provider, expr.getRight(), vars));
+		} else {
+			throw new IllegalArgumentException("Unsupported logical expression.");
+		}
+	}
+	
+	/**
+	 * 準備済みの式にマッチする行を求める.
+	 * 行はモーセルに分割され、プールが指定された場合は複数のスレッドで走査される。
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}（逐次的に走査する場合は{@code null}）
+	 * @param size 行数
+	 * @param selector 準備済みの式
+	 * @return 式にマッチする行番号（重複のない昇順の配列）
+	 */
+	static int[] select(final ForkJoinPool pool, final int size, final Selector selector) {
+		return Morsels.select(pool, size, new Morsels.Task() {
+			@Override
+			public boolean scan(final int from, final int to, final Morsels.Buffer buffer) {
+				buffer.addAll(selector.select(from, to), from);
+				return true;
+			}
+		});
+	}
+	
+	/**
+	 * 準備済みの式にマッチする行の要素を順に返す{@link Iterable}を返す.
+	 * 行はモーセルごとに走査され、走査は要素が取り出されるのに合わせて進む。
+	 * 途中で反復を打ち切った場合、それ以降のモーセルは走査されない。
+	 * @param rows 行のリスト
+	 * @param selector 準備済みの式
+	 * @return 式にマッチする要素（再評価は不要）
+	 */
+	static <E> Iterable<E> scan(final List<E> rows, final Selector selector) {
+		return new Scan<E>(rows, selector);
+	}
+	
+	/**
+	 * 準備済みの式にマッチする行の要素をモーセルごとに遅延して求める{@link Iterable}.
+	 * @param <E> 要素型
+	 */
+	static final class Scan<E> implements Iterable<E> {
+		private final List<E> rows;
+		private final Selector selector;
+		
+		private Scan(final List<E> rows, final Selector selector) {
+			this.rows = rows;
+			this.selector = selector;
+		}
+		
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				private final int size = rows.size();
+				private int next = 0;
+				private int from = 0;
+				private long[] words = new long[0];
+				private int index = 0;
+				private long word = 0L;
+				
+				@Override
+				public boolean hasNext() {
+					while (word == 0L) {
+						if (index < words.length) {
+							word = words[index ++];
+						} else if (next < size) {
+							from = next;
+							next = from + Math.min(Morsels.MORSEL_SIZE, size - from);
+							words = selector.select(from, next);
+							index = 0;
+						} else {
+							return false;
+						}
+					}
+					return true;
+				}
+				
+				@Override
+				public E next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					final int row = from + ((index - 1) << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1L;
+					return rows.get(row);
+				}
+				
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+	
+	/**
+	 * プロパティに対応する列の提供元.
+	 */
+	interface Provider {
+		/**
+		 * プロパティの列を返す.
+		 * @param prop プロパティ
+		 * @return 列
+		 */
+		Column column(String prop);
+	}
+	
+	/**
+	 * 準備済みの式.
+	 * 右辺の値の変換や辞書の値ごとの評価は準備の時点で済まされており、
+	 * 行の範囲ごとの評価は列の値の走査だけになる。
+	 * 複数のスレッドから異なる範囲を同時に評価することができる。
+	 */
+	interface Selector {
+		/**
+		 * 行の範囲のうち式にマッチする行を求める.
+		 * @param from 範囲の最初の行番号（64の倍数）
+		 * @param to 範囲の最後の行番号の次の行番号
+		 * @return 最初のビットが{@code from}行目に対応するビット列（範囲を超える位置のビットは0）
+		 */
+		long[] select(int from, int to);
+	}
+	
+	/**
+	 * いずれの行にもマッチしない式.
+	 */
+	static final Selector NONE = new Selector() {
+		@Override
+		public long[] select(final int from, final int to) {
+			return new long[Bitmap.wordCount(to - from)];
+		}
+	};
+	
+	/**
+	 * 論理積.
+	 */
+	private static final class And implements Selector {
+		private final Selector left;
+		private final Selector right;
+		And(final Selector left, final Selector right) {
+			this.left = left;
+			this.right = right;
+		}
+		@Override
+		public long[] select(final int from, final int to) {
+			final long[] words = left.select(from, to);
+			final long[] other = right.select(from, to);
+			for (int i = 0; i < words.length; i ++) {
+				words[i] &= other[i];
+			}
+			return words;
+		}
+	}
+	
+	/**
+	 * 論理和.
+	 */
+	private static final class Or implements Selector {
+		private final Selector left;
+		private final Selector right;
+		Or(final Selector left, final Selector right) {
+			this.left = left;
+			this.right = right;
+		}
+		@Override
+		public long[] select(final int from, final int to) {
+			final long[] words = left.select(from, to);
+			final long[] other = right.select(from, to);
+			for (int i = 0; i < words.length; i ++) {
+				words[i] |= other[i];
+			}
+			return words;
+		}
+	}
+	
+	/**
+	 * 否定.
+	 */
+	private static final class Not implements Selector {
+		private final Selector operand;
+		Not(final Selector operand) {
+			this.operand = operand;
+		}
+		@Override
+		public long[] select(final int from, final int to) {
+			final long[] words = operand.select(from, to);
+			for (int i = 0; i < words.length; i ++) {
+				words[i] = ~ words[i];
+			}
+			Bitmap.mask(words, to - from);
+			return words;
+		}
+	}
+	
+	/**
+	 * 列の基底クラス.
+	 * 専用の走査を持たない比較式は、行ごとにプロパティ値を復元して評価ノードで評価する。
+	 */
+	abstract static class Column {
+		final Bitmap nulls;
+		final int size;
+		private final boolean nullable;
+		Column(final Bitmap nulls, final int size) {
+			this.nulls = nulls;
+			this.size = size;
+			this.nullable = nulls.cardinality() > 0;
+		}
+		/**
+		 * 行のプロパティ値を返す.
+		 * @param row 行番号
+		 * @return プロパティ値
+		 */
+		abstract Object get(int row);
+		/**
+		 * 比較式を行の範囲ごとに評価できるよう準備する.
+		 * @param op 演算子
+		 * @param expected 期待される値（右辺）
+		 * @return 準備済みの比較式
+		 */
+		Selector prepare(final Operator op, final Object expected) {
+			switch (op) {
+			case IS_NULL:
+				return new Selector() {
+					@Override
+					public long[] select(final int from, final int to) {
+						return nulls.words(from, to);
+					}
+				};
+			case IS_NOT_NULL:
+				return notNull();
+			default:
+				return scan(Nodes.comparative(op, expected));
+			}
+		}
+		/**
+		 * 値が{@code null}でない行にマッチする式を返す.
+		 * @return 準備済みの式
+		 */
+		final Selector notNull() {
+			return new Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = nulls.words(from, to);
+					for (int i = 0; i < words.length; i ++) {
+						words[i] = ~ words[i];
+					}
+					Bitmap.mask(words, to - from);
+					return words;
+				}
+			};
+		}
+		/**
+		 * 式のマッチする行から値が{@code null}の行を取り除いた式を返す.
+		 * @param selector 準備済みの式
+		 * @return 準備済みの式
+		 */
+		final Selector notNull(final Selector selector) {
+			if (!nullable) {
+				return selector;
+			}
+			return new Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = selector.select(from, to);
+					final long[] other = nulls.words(from, to);
+					for (int i = 0; i < words.length; i ++) {
+						words[i] &= ~ other[i];
+					}
+					return words;
+				}
+			};
+		}
+		/**
+		 * 行ごとにプロパティ値を復元して評価ノードで評価する式を返す.
+		 * @param node 評価ノード
+		 * @return 準備済みの式
+		 */
+		final Selector scan(final Node<Object> node) {
+			return new Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = new long[Bitmap.wordCount(to - from)];
+					for (int i = from; i < to; i ++) {
+						if (node.test(get(i))) {
+							words[(i - from) >>> 6] |= 1L << i;
+						}
+					}
+					return words;
+				}
+			};
+		}
+	}
+	
+	/**
+	 * 数値の列の基底クラス.
+	 * プロパティが{@link PrimitiveAccessor}によってプリミティブ値として読み取られるものである場合（{@link Nodes#comparesAsNumber(PropertyReader)}）、
+	 * 大小比較は{@link Nodes#numericLiteral(Object)}で数値に変換した右辺の値とのプリミティブ値同士の比較になる。
+	 * そうでない場合は、{@link Nodes#coerce(Class, Object)}で列の型に変換した右辺の値との比較になる。
+	 */
+	abstract static class NumericColumn extends Column {
+		final boolean primitive;
+		NumericColumn(final Bitmap nulls, final int size, final boolean primitive) {
+			super(nulls, size);
+			this.primitive = primitive;
+		}
+		/**
+		 * 列の値をボクシングした値のクラスを返す.
+		 * @return クラス
+		 */
+		abstract Class<?> type();
+		/**
+		 * 右辺の値を列の型の値に変換する.
+		 * 文字列の場合は、変換した値の文字列表現が元の文字列と一致する場合に限り変換に成功する。
+		 * そうでない場合は、列の型の値である場合に限り変換に成功する。
+		 * いずれも{@code ==}の評価ノードと同じ結果を得るためのものである。
+		 * @param expected 期待される値（右辺）
+		 * @return 変換結果（変換できなかった場合は{@code null}）
+		 */
+		final Object equalsLiteral(final Object expected) {
+			if (expected instanceof String) {
+				final Object lit = Nodes.coerce(type(), expected);
+				return lit != null && lit.toString().equals(expected) ? lit : null;
+			}
+			return type().isInstance(expected) ? expected : null;
+		}
+		@Override
+		final Selector prepare(final Operator op, final Object expected) {
+			switch (op) {
+			case EQUALS: {
+				final Object lit = equalsLiteral(expected);
+				return lit == null ? NONE : notNull(compare(Operator.EQUALS, lit));
+			}
+			case NOT_EQUALS: {
+				final Object lit = equalsLiteral(expected);
+				return lit == null ? notNull() : notNull(compare(Operator.NOT_EQUALS, lit));
+			}
+			case LESS_THAN:
+			case LESS_THAN_EQUAL:
+			case GREATER_THAN:
+			case GREATER_THAN_EQUAL: {
+				final Object lit = primitive ? Nodes.numericLiteral(expected) : Nodes.coerce(type(), expected);
+				return lit == null ? NONE : notNull(compare(op, lit));
+			}
+			default:
+				return super.prepare(op, expected);
+			}
+		}
+		/**
+		 * 列の値を右辺の値と比較する式を返す.
+		 * @param op 演算子
+		 * @param lit 変換済みの右辺の値
+		 * @return 比較結果が真となる行にマッチする式（{@code null}の行を含みうる）
+		 */
+		abstract Selector compare(Operator op, Object lit);
+	}
+	
+	/**
+	 * {@code int}型の列.
+	 */
+	static final class IntColumn extends NumericColumn {
+		final int[] values;
+		IntColumn(final int[] values, final Bitmap nulls, final boolean primitive) {
+			super(nulls, values.length, primitive);
+			this.values = values;
+		}
+		@Override
+		Object get(final int row) {
+			return nulls.get(row) ? null : Integer.valueOf(values[row]);
+		}
+		@Override
+		Class<?> type() {
+			return Integer.class;
+		}
+		@Override
+		Selector compare(final Operator op, final Object lit) {
+			if (lit instanceof Double) {
+				// 整数の列と小数の右辺はdouble同士で比較する
+				final double bound = (Double) lit;
+				return new Selector() {
+					@Override
+					public long[] select(final int from, final int to) {
+						final long[] words = new long[Bitmap.wordCount(to - from)];
+						final double[] doubles = new double[to - from];
+						for (int i = 0; i < doubles.length; i ++) {
+							doubles[i] = values[from + i];
+						}
+						Kernels.compare(doubles, 0, doubles.length, op, bound, words, 0);
+						return words;
+					}
+				};
+			}
+			final long bound = ((Number) lit).longValue();
+			return new Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = new long[Bitmap.wordCount(to - from)];
+					Kernels.compare(values, from, to - from, op, bound, words, 0);
+					return words;
+				}
+			};
+		}
+	}
+	
+	/**
+	 * {@code long}型の列.
+	 */
+	static final class LongColumn extends NumericColumn {
+		final long[] values;
+		LongColumn(final long[] values, final Bitmap nulls, final boolean primitive) {
+			super(nulls, values.length, primitive);
+			this.values = values;
+		}
+		@Override
+		Object get(final int row) {
+			return nulls.get(row) ? null : Long.valueOf(values[row]);
+		}
+		@Override
+		Class<?> type() {
+			return Long.class;
+		}
+		@Override
+		Selector compare(final Operator op, final Object lit) {
+			if (lit instanceof Double) {
+				// 整数の列と小数の右辺はdouble同士で比較する
+				final double bound = (Double) lit;
+				return new Selector() {
+					@Override
+					public long[] select(final int from, final int to) {
+						final long[] words = new long[Bitmap.wordCount(to - from)];
+						final double[] doubles = new double[to - from];
+						for (int i = 0; i < doubles.length; i ++) {
+							doubles[i] = values[from + i];
+						}
+						Kernels.compare(doubles, 0, doubles.length, op, bound, words, 0);
+						return words;
+					}
+				};
+			}
+			final long bound = ((Number) lit).longValue();
+			return new Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = new long[Bitmap.wordCount(to - from)];
+					Kernels.compare(values, from, to - from, op, bound, words, 0);
+					return words;
+				}
+			};
+		}
+	}
+	
+	/**
+	 * {@code double}型の列.
+	 * プリミティブ値として読み取られた場合はJavaの比較演算子で、
+	 * そうでない場合は{@link Double#compareTo(Double)}と同じ順序で比較する。
+	 */
+	static final class DoubleColumn extends NumericColumn {
+		final double[] values;
+		DoubleColumn(final double[] values, final Bitmap nulls, final boolean primitive) {
+			super(nulls, values.length, primitive);
+			this.values = values;
+		}
+		@Override
+		Object get(final int row) {
+			return nulls.get(row) ? null : Double.valueOf(values[row]);
+		}
+		@Override
+		Class<?> type() {
+			return Double.class;
+		}
+		@Override
+		Selector compare(final Operator op, final Object lit) {
+			final double bound = ((Number) lit).doubleValue();
+			final boolean total = !primitive || op == Operator.EQUALS || op == Operator.NOT_EQUALS;
+			return new Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = new long[Bitmap.wordCount(to - from)];
+					if (total) {
+						Kernels.compareTotal(values, from, to - from, op, bound, words, 0);
+					} else {
+						Kernels.compare(values, from, to - from, op, bound, words, 0);
+					}
+					return words;
+				}
+			};
+		}
+	}
+	
+	/**
+	 * 辞書によって符号化された文字列の列の基底クラス.
+	 * 各行には辞書の添字（コード）が格納される。
+	 * {@code null}の行のコードは{@code -1}となる。
+	 * {@code ==}・{@code !=}はコード同士の比較として評価する。
+	 * そのほかの比較式は準備の時点で辞書の値ごとに一度だけ評価してマッチするコードの集合を求め、
+	 * 行ごとにはコードがその集合に含まれるかどうかだけを調べる。
+	 */
+	abstract static class DictionaryColumn extends Column {
+		final String[] dictionary;
+		final Map<String, Integer> lookup;
+		DictionaryColumn(final String[] dictionary, final Bitmap nulls, final int size) {
+			super(nulls, size);
+			final Map<String, Integer> lookup = new HashMap<String, Integer>(dictionary.length * 4 / 3 + 1);
+			for (int i = 0; i < dictionary.length; i ++) {
+				lookup.put(dictionary[i], i);
+			}
+			this.dictionary = dictionary;
+			this.lookup = lookup;
+		}
+		/**
+		 * 行のコードを返す.
+		 * @param row 行番号
+		 * @return コード
+		 */
+		abstract int code(int row);
+		/**
+		 * 各行のコードを比較する式を返す.
+		 * @param op 演算子（{@code ==}もしくは{@code !=}）
+		 * @param code 比較対象のコード
+		 * @return 比較結果が真となる行にマッチする式（{@code null}の行を含みうる）
+		 */
+		abstract Selector compareCodes(Operator op, int code);
+		@Override
+		final Object get(final int row) {
+			final int code = code(row);
+			return code < 0 ? null : dictionary[code];
+		}
+		@Override
+		final Selector prepare(final Operator op, final Object expected) {
+			switch (op) {
+			case EQUALS: {
+				// 文字列以外の値と等しい文字列は存在しない
+				final Integer code = expected instanceof String ? lookup.get(expected) : null;
+				return code == null ? NONE : compareCodes(Operator.EQUALS, code);
+			}
+			case NOT_EQUALS: {
+				final Integer code = expected instanceof String ? lookup.get(expected) : null;
+				return code == null ? notNull() : notNull(compareCodes(Operator.NOT_EQUALS, code));
+			}
+			case IS_NULL:
+			case IS_NOT_NULL:
+				return super.prepare(op, expected);
+			default: {
+				// 比較式は辞書の値ごとに一度だけ評価し、行ごとにはコードがマッチしたかどうかだけを調べる
+				final Node<Object> node = Nodes.comparative(op, expected);
+				final long[] codeBits = new long[Bitmap.wordCount(dictionary.length)];
+				int matched = 0;
+				int last = -1;
+				for (int code = 0; code < dictionary.length; code ++) {
+					if (node.test(dictionary[code])) {
+						codeBits[code >>> 6] |= 1L << code;
+						matched ++;
+						last = code;
+					}
+				}
+				if (matched == 0) {
+					return NONE;
+				} else if (matched == dictionary.length) {
+					return notNull();
+				} else if (matched == 1) {
+					return compareCodes(Operator.EQUALS, last);
+				}
+				return probe(codeBits);
+			}
+			}
+		}
+		/**
+		 * 各行のコードがコードの集合に含まれるかどうかを調べる式を返す.
+		 * @param codeBits コードの集合を表わすビット列
+		 * @return コードが集合に含まれる行にマッチする式
+		 */
+		abstract Selector probe(long[] codeBits);
+	}
+	
+	/**
+	 * 辞書によって符号化された文字列の列.
+	 * 文字列は出現順に辞書に登録される。
+	 */
+	static final class StringColumn extends DictionaryColumn {
+		final int[] codes;
+		StringColumn(final String[] dictionary, final int[] codes, final Bitmap nulls) {
+			super(dictionary, nulls, codes.length);
+			this.codes = codes;
+		}
+		@Override
+		int code(final int row) {
+			return codes[row];
+		}
+		@Override
+		Selector compareCodes(final Operator op, final int code) {
+			return new Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = new long[Bitmap.wordCount(to - from)];
+					Kernels.compare(codes, from, to - from, op, code, words, 0);
+					return words;
+				}
+			};
+		}
+		@Override
+		Selector probe(final long[] codeBits) {
+			return new Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = new long[Bitmap.wordCount(to - from)];
+					Kernels.probe(codes, from, to - from, codeBits, words, 0);
+					return words;
+				}
+			};
+		}
+	}
+	
+	/**
+	 * すべての行の値が{@code null}である列.
+	 */
+	static final class NullColumn extends Column {
+		NullColumn(final int size) {
+			super(Bitmap.empty(size).not(), size);
+		}
+		@Override
+		Object get(final int row) {
+			return null;
+		}
+	}
+	
+	/**
+	 * 値そのものを保持する列.
+	 */
+	static final class ObjectColumn extends Column {
+		final Object[] values;
+		ObjectColumn(final Object[] values, final Bitmap nulls) {
+			super(nulls, values.length);
+			this.values = values;
+		}
+		@Override
+		Object get(final int row) {
+			return values[row];
+		}
+	}
+}
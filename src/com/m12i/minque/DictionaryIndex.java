@@ -0,0 +1,97 @@
+package com.m12i.minque;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文字列のプロパティ値を辞書として保持し、辞書の値ごとに行番号の集合を保持する索引.
+ * すべての比較演算子に対応します。
+ * 比較式は辞書の値ごとに一度だけ評価され、マッチした値の行番号の集合を合わせたものが結果となります。
+ * 値の種類に比べて行数が多いプロパティでは、行ごとに比較式を評価するよりも評価の回数を大幅に減らすことができます。
+ * 
+ * <p>比較式の評価には行の評価と同じ評価ノードを使用するため、この索引は比較式にマッチする行を過不足なく求めます。
+ * {@code null}でないプロパティ値はすべて{@link String}である必要があります。</p>
+ */
+final class DictionaryIndex implements ExactIndex {
+	private final String[] dictionary;
+	private final Map<String, Integer> lookup;
+	private final int[][] postings;
+	private final int[] nulls;
+	private final int size;
+	
+	/**
+	 * 索引を初期化する.
+	 * @param rows 行のリスト
+	 * @param reader プロパティを読み取るためのリーダー
+	 * @throws IllegalArgumentException プロパティ値が{@link String}でない場合
+	 */
+	<E> DictionaryIndex(final List<E> rows, final PropertyReader<E> reader) {
+		final Map<String, Integer> lookup = new HashMap<String, Integer>();
+		final List<Rows.Builder> builders = new ArrayList<Rows.Builder>();
+		final Rows.Builder nullsBuilder = new Rows.Builder();
+		final int size = rows.size();
+		for (int i = 0; i < size; i ++) {
+			final Object value = reader.read(rows.get(i));
+			if (value == null) {
+				nullsBuilder.add(i);
+				continue;
+			}
+			if (!(value instanceof String)) {
+				throw new IllegalArgumentException("Values must be instances of String.");
+			}
+			Integer code = lookup.get(value);
+			if (code == null) {
+				code = builders.size();
+				lookup.put((String) value, code);
+				builders.add(new Rows.Builder());
+			}
+			builders.get(code).add(i);
+		}
+		this.dictionary = new String[lookup.size()];
+		for (final Map.Entry<String, Integer> e : lookup.entrySet()) {
+			dictionary[e.getValue()] = e.getKey();
+		}
+		this.postings = new int[builders.size()][];
+		for (int code = 0; code < postings.length; code ++) {
+			postings[code] = builders.get(code).toArray();
+		}
+		this.lookup = lookup;
+		this.nulls = nullsBuilder.toArray();
+		this.size = size;
+	}
+	
+	@Override
+	public int[] lookup(final Operator op, final Object expected) {
+		return bitmap(op, expected).toRows();
+	}
+	
+	@Override
+	public Bitmap bitmap(final Operator op, final Object expected) {
+		switch (op) {
+		case IS_NULL:
+			return Bitmap.of(nulls, size);
+		case IS_NOT_NULL:
+			return Bitmap.of(nulls, size).not();
+		case EQUALS: {
+			// 文字列以外の値と等しい文字列は存在しない
+			final Integer code = expected instanceof String ? lookup.get(expected) : null;
+			return code == null ? Bitmap.empty(size) : Bitmap.of(postings[code], size);
+		}
+		default: {
+			// 比較式を辞書の値ごとに一度だけ評価し、マッチした値の行を合わせる
+			final Node<Object> node = Nodes.comparative(op, expected);
+			final long[] words = new long[Bitmap.wordCount(size)];
+			for (int code = 0; code < dictionary.length; code ++) {
+				if (node.test(dictionary[code])) {
+					for (final int row : postings[code]) {
+						words[row >>> 6] |= 1L << row;
+					}
+				}
+			}
+			return Bitmap.wrap(words, size);
+		}
+		}
+	}
+}
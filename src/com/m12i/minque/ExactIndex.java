@@ -0,0 +1,18 @@
+package com.m12i.minque;
+
+/**
+ * 比較式にマッチする行を過不足なく求めることのできる索引.
+ * {@link IndexedCollection}は、この索引だけで評価できる論理式をビットマップ同士の論理演算として評価し、
+ * 要素の再評価を省略します。
+ */
+interface ExactIndex extends Index {
+	/**
+	 * 比較式にマッチする行をビットマップとして返す.
+	 * {@link #lookup(Operator, Object)}と異なり、返却される集合は比較式にマッチする行だけからなります。
+	 * 正確な集合を求められない比較式の場合は{@code null}を返します。
+	 * @param op 演算子
+	 * @param expected 期待される値（右辺）
+	 * @return 比較式にマッチする行のビットマップ
+	 */
+	Bitmap bitmap(Operator op, Object expected);
+}
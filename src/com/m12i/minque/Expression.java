@@ -2,35 +2,37 @@ package com.m12i.minque;
 
 final class Expression {
 	private final String prop;
-	private Object value;
+	private final Object value;
 	private final Expression left;
 	private final Operator op;
 	private final Expression right;
+	private final int index;
 
-	private Expression(String prop, Object value, Expression left, Operator op, Expression right) {
+	private Expression(String prop, Object value, Expression left, Operator op, Expression right, int index) {
 		this.prop = prop;
 		this.value = value;
 		this.left = left;
 		this.op = op;
 		this.right = right;
+		this.index = index;
 	}
 	public static Expression property(String prop) {
-		return new Expression(prop, null, null, null, null);
+		return new Expression(prop, null, null, null, null, -1);
 	}
 	public static Expression value(Object value) {
-		return new Expression(null, value, null, null, null);
+		return new Expression(null, value, null, null, null, -1);
 	}
 	public static Expression comparative(Expression propExpr, Operator binary, Expression valueExpr) {
-		return new Expression(null, null, propExpr, binary, valueExpr);
+		return new Expression(null, null, propExpr, binary, valueExpr, -1);
 	}
 	public static Expression logical(Operator unary, Expression right) {
-		return new Expression(null, null, null, unary, right);
+		return new Expression(null, null, null, unary, right, -1);
 	}
 	public static Expression logical(Expression left, Operator binary, Expression right) {
-		return new Expression(null, null, left, binary, right);
+		return new Expression(null, null, left, binary, right, -1);
 	}
 	public static Expression placeholder(int index) {
-		return new Expression(null, null, null, null, null);
+		return new Expression(null, "?", null, null, null, index);
 	}
 	
 	public boolean isLogical() {
@@ -45,6 +47,9 @@ final class Expression {
 	public boolean isValue() {
 		return value != null;
 	}
+	public boolean isPlaceholder() {
+		return index >= 0;
+	}
 	public boolean hasLeft() {
 		return left != null;
 	}
@@ -57,11 +62,12 @@ final class Expression {
 	public Object getValue() {
 		return isComparative() ? getRight().getValue() : value;
 	}
-	public void setValue(final Object value) {
-		if (isValue()) {
-			if (value == null) throw new RuntimeException("Value must not be null.");
-			this.value = value;
-		}
+	public int getPlaceholderIndex() {
+		return isComparative() ? getRight().getPlaceholderIndex() : index;
+	}
+	public Object getValue(final Object... vars) {
+		final Expression valueExpr = isComparative() ? getRight() : this;
+		return valueExpr.isPlaceholder() ? vars[valueExpr.index] : valueExpr.value;
 	}
 	public Expression getLeft() {
 		return left;
@@ -111,9 +111,12 @@ final class ExpressionParser extends AbstractParser<ExpressionParser.ExpressionA
 				} else {
 					// 空白文字と特定の記号を含まない文字列としてパース
 					value = parseNonQuotedString(in);
-					valExp = Expression.value(value);
 					if (value.equals("?")){
+						// バインド変数のプレースホルダには出現順に添字を割り当てる
+						valExp = Expression.placeholder(ph.amount());
 						ph.register(valExp);
+					} else {
+						valExp = Expression.value(value);
 					}
 				}
 				expr0 = Expression.comparative(Expression.property(prop), op, valExp);
@@ -232,14 +235,14 @@ final class ExpressionParser extends AbstractParser<ExpressionParser.ExpressionA
 			return Operator.CONTAINS;
 		} else if (forwardIfRestStartsWithOprator(in, "$=")) {
 			return Operator.ENDS_WITH;
-		} else if (forwardIfRestStartsWithOprator(in, "<")) {
-			return Operator.LESS_THAN;
 		} else if (forwardIfRestStartsWithOprator(in, "<=")) {
 			return Operator.LESS_THAN_EQUAL;
-		} else if (forwardIfRestStartsWithOprator(in, ">")) {
-			return Operator.GREATER_THAN;
+		} else if (forwardIfRestStartsWithOprator(in, "<")) {
+			return Operator.LESS_THAN;
 		} else if (forwardIfRestStartsWithOprator(in, ">=")) {
 			return Operator.GREATER_THAN_EQUAL;
+		} else if (forwardIfRestStartsWithOprator(in, ">")) {
+			return Operator.GREATER_THAN;
 		} else if (forwardIfRestStartsWithOprator(in, "is null")) {
 			return Operator.IS_NULL;
 		} else if (forwardIfRestStartsWithOprator(in, "is not null")) {
@@ -0,0 +1,155 @@
+package com.m12i.minque;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * getterメソッドを介さずにオブジェクトのフィールドを直接読み取るアクセサ.
+ * プロパティ名はフィールド名にそのまま対応し、フィールドの読み取りは{@link MethodHandle}を通じて行われます。
+ * 
+ * <p>レコード・モードでは、クラス自身が宣言するインスタンス・フィールドのうち、
+ * 同名・同型の引数なしの{@code public}メソッドを持つもの──レコードの構成要素とそのアクセサ・メソッド──だけをプロパティとし、
+ * その値はアクセサ・メソッドを通じて読み取ります。</p>
+ * 
+ * <p>フィールドやメソッドの探索と{@link MethodHandle}への変換はクラスとモードの組ごとに一度だけ行われ、キャッシュされます。
+ * 該当するフィールドが存在しないプロパティの値は常に{@code null}となります。
+ * {@code .}を含むプロパティ名はフィールドをたどるパスとして解釈されます。</p>
+ * @param <T> 対象の要素の型
+ */
+final class FieldAccessor<T> implements Accessor<T>, PropertyResolver<T> {
+	// クラスごとの、フィールド名とリーダーの対応
+	private static final ClassValue<Map<String, PropertyReader<Object>>> fields = new ClassValue<Map<String, PropertyReader<Object>>>() {
+		@Override
+		protected Map<String, PropertyReader<Object>> computeValue(final Class<?> type) {
+			return fields(type);
+		}
+	};
+	// クラスごとの、レコードの構成要素名とリーダーの対応
+	private static final ClassValue<Map<String, PropertyReader<Object>>> components = new ClassValue<Map<String, PropertyReader<Object>>>() {
+		@Override
+		protected Map<String, PropertyReader<Object>> computeValue(final Class<?> type) {
+			return components(type);
+		}
+	};
+	private final Map<String, PropertyReader<Object>> readers;
+	private final boolean record;
+	
+	/**
+	 * アクセサを初期化する.
+	 * @param elemType 対象の要素の型
+	 * @param record レコード・モードの場合は{@code true}
+	 */
+	FieldAccessor(final Class<T> elemType, final boolean record) {
+		this.readers = (record ? components : fields).get(elemType);
+		this.record = record;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public PropertyReader<T> resolve(final String prop) {
+		if (Paths.isPath(prop)) {
+			return Paths.reader(prop, this, record ? Paths.RECORDS : Paths.FIELDS);
+		}
+		final PropertyReader<Object> reader = readers.get(prop);
+		return (PropertyReader<T>) (reader == null ? Nodes.nullReader() : reader);
+	}
+	
+	@Override
+	public Object accsess(final T elem, final String prop) {
+		return resolve(prop).read(elem);
+	}
+	
+	/**
+	 * クラスとそのスーパークラスが宣言するインスタンス・フィールドのリーダーを生成する.
+	 * サブクラスとスーパークラスが同名のフィールドを宣言している場合はサブクラスのものが優先される。
+	 * @param type クラス
+	 * @return フィールド名とリーダーの対応
+	 */
+	private static Map<String, PropertyReader<Object>> fields(final Class<?> type) {
+		final Map<String, PropertyReader<Object>> result = new HashMap<String, PropertyReader<Object>>();
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			for (final Field f : c.getDeclaredFields()) {
+				if (Modifier.isStatic(f.getModifiers()) || result.containsKey(f.getName())) {
+					continue;
+				}
+				final MethodHandle h = getter(f);
+				if (h != null) {
+					result.put(f.getName(), HandleReaders.create(h));
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * レコードの構成要素のリーダーを生成する.
+	 * @param type クラス
+	 * @return 構成要素名とリーダーの対応
+	 */
+	private static Map<String, PropertyReader<Object>> components(final Class<?> type) {
+		final Map<String, PropertyReader<Object>> result = new HashMap<String, PropertyReader<Object>>();
+		for (final Field f : type.getDeclaredFields()) {
+			if (Modifier.isStatic(f.getModifiers())) {
+				continue;
+			}
+			final Method m;
+			try {
+				m = type.getMethod(f.getName());
+			} catch (final NoSuchMethodException e) {
+				// アクセサ・メソッドを持たないフィールドは構成要素ではない
+				continue;
+			}
+			if (m.getReturnType() != f.getType() || Modifier.isStatic(m.getModifiers())) {
+				continue;
+			}
+			final MethodHandle h = accessor(m);
+			if (h != null) {
+				result.put(f.getName(), HandleReaders.create(h));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * フィールドを読み取るメソッド・ハンドルを返す.
+	 * @param f フィールド
+	 * @return メソッド・ハンドル（アクセス・チェックによって取得できない場合は{@code null}）
+	 */
+	private static MethodHandle getter(final Field f) {
+		try {
+			// アクセス・チェックを省略させる
+			f.setAccessible(true);
+		} catch (final SecurityException e) {
+			// Do nothing.
+		}
+		try {
+			return MethodHandles.lookup().unreflectGetter(f);
+		} catch (final IllegalAccessException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * アクセサ・メソッドを呼び出すメソッド・ハンドルを返す.
+	 * @param m アクセサ・メソッド
+	 * @return メソッド・ハンドル（アクセス・チェックによって取得できない場合は{@code null}）
+	 */
+	private static MethodHandle accessor(final Method m) {
+		try {
+			// アクセス・チェックを省略させる
+			m.setAccessible(true);
+		} catch (final SecurityException e) {
+			// Do nothing.
+		}
+		try {
+			return MethodHandles.lookup().unreflect(m);
+		} catch (final IllegalAccessException e) {
+			return null;
+		}
+	}
+}
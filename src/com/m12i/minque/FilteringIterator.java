@@ -0,0 +1,56 @@
+package com.m12i.minque;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 検索対象のイテレータをラップして評価ノードにマッチした要素だけを返すイテレータ.
+ * 要素の評価は{@link #hasNext()}もしくは{@link #next()}が呼び出された時点で、必要な分だけ行われます。
+ * @param <E> 検索対象の要素型
+ */
+final class FilteringIterator<E> implements Iterator<E> {
+	private final Node<E> node;
+	private final Iterator<E> source;
+	// 先読みしたマッチする要素とその有無
+	private E nextElem;
+	private boolean hasNextElem;
+	
+	FilteringIterator(final Node<E> node, final Iterator<E> source) {
+		this.node = node;
+		this.source = source;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if (hasNextElem) {
+			return true;
+		}
+		while (source.hasNext()) {
+			final E elem = source.next();
+			if (node.test(elem)) {
+				nextElem = elem;
+				hasNextElem = true;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public E next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final E result = nextElem;
+		// 参照を保持し続けないようにクリアしておく
+		nextElem = null;
+		hasNextElem = false;
+		return result;
+	}
+	
+	@Override
+	public void remove() {
+		// 先読みにより元のイテレータの位置は返却した要素の位置と一致しないためサポートしない
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,161 @@
+package com.m12i.minque;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
+/**
+ * 要素を受け取ってプロパティ値を返す{@link MethodHandle}を、{@link PropertyReader}に変換するためのユーティリティ.
+ * メソッド・ハンドルは{@code (Object)Object}型に適合させたうえで{@link MethodHandle#invokeExact(Object...)}によって呼び出されるため、
+ * 要素の評価時にリフレクションによるメソッド呼び出しやアクセス・チェックは行われません。
+ * メソッド・ハンドルの呼び出しが{@link Error}以外の例外をスローした場合、プロパティ値は{@code null}とみなされます。
+ * プリミティブ値としての読み取りでは、このとき{@link NumericReader.Unreadable}がスローされ、比較は{@code null}の場合と同じく成立しません。
+ */
+final class HandleReaders {
+	private HandleReaders() {}
+	
+	/**
+	 * メソッド・ハンドルを呼び出すリーダーを生成する.
+	 * メソッド・ハンドルの戻り値が{@code int}・{@code long}・{@code double}などの数値型である場合、
+	 * 返却されるリーダーは{@code (Object)long}型や{@code (Object)double}型に適合させたメソッド・ハンドルによって
+	 * ボクシングを伴わずに値を読み取る手段を備える。
+	 * 大小比較の結果は、戻り値をボクシングしたうえで比較する場合と同じになるように、
+	 * 右辺の値は戻り値をボクシングしたクラスの値に変換される（{@link NumericReader#boxedType()}）。
+	 * ただし{@code float}は{@code double}に拡張すると{@code 0.1}のような右辺の値と一致しなくなるため、
+	 * これまでどおり{@link Float}として比較されるように対象外とする。
+	 * @param h 要素を唯一の引数とするメソッド・ハンドル
+	 * @return リーダー
+	 */
+	static PropertyReader<Object> create(final MethodHandle h) {
+		final MethodHandle read = h.asType(MethodType.methodType(Object.class, Object.class));
+		final Class<?> type = h.type().returnType();
+		if (type == int.class) {
+			return new LongHandleReader(read, h.asType(MethodType.methodType(long.class, Object.class)), Integer.class);
+		} else if (type == long.class) {
+			return new LongHandleReader(read, h.asType(MethodType.methodType(long.class, Object.class)), Long.class);
+		} else if (type == short.class) {
+			return new LongHandleReader(read, h.asType(MethodType.methodType(long.class, Object.class)), Short.class);
+		} else if (type == byte.class) {
+			return new LongHandleReader(read, h.asType(MethodType.methodType(long.class, Object.class)), Byte.class);
+		} else if (type == double.class) {
+			return new DoubleHandleReader(read, h.asType(MethodType.methodType(double.class, Object.class)));
+		}
+		return new HandleReader(read);
+	}
+	
+	/**
+	 * メソッド・ハンドルの呼び出しに失敗した場合の処理.
+	 * {@link Error}は再スローし、それ以外の場合は何もしない。
+	 * @param e メソッド・ハンドルの呼び出しでスローされた例外
+	 */
+	private static void failed(final Throwable e) {
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+	}
+	
+	/**
+	 * メソッド・ハンドルを呼び出すリーダー.
+	 */
+	private static final class HandleReader implements PropertyReader<Object> {
+		private final MethodHandle read;
+		private HandleReader(final MethodHandle read) {
+			this.read = read;
+		}
+		@Override
+		public Object read(Object elem) {
+			try {
+				return (Object) read.invokeExact(elem);
+			} catch (final Throwable e) {
+				// 何らかの理由でメソッドコールが失敗したらともかくnullを返す
+				failed(e);
+				return null;
+			}
+		}
+	}
+	
+	/**
+	 * 戻り値が整数型のメソッド・ハンドルを呼び出すリーダー.
+	 */
+	private static final class LongHandleReader implements NumericReader<Object> {
+		private final MethodHandle read;
+		private final MethodHandle readLong;
+		private final Class<?> boxedType;
+		private LongHandleReader(final MethodHandle read, final MethodHandle readLong, final Class<?> boxedType) {
+			this.read = read;
+			this.readLong = readLong;
+			this.boxedType = boxedType;
+		}
+		@Override
+		public Object read(Object elem) {
+			try {
+				return (Object) read.invokeExact(elem);
+			} catch (final Throwable e) {
+				failed(e);
+				return null;
+			}
+		}
+		@Override
+		public boolean isIntegral() {
+			return true;
+		}
+		@Override
+		public Class<?> boxedType() {
+			return boxedType;
+		}
+		@Override
+		public long readLong(Object elem) {
+			try {
+				return (long) readLong.invokeExact(elem);
+			} catch (final Throwable e) {
+				failed(e);
+				throw NumericReader.Unreadable.INSTANCE;
+			}
+		}
+		@Override
+		public double readDouble(Object elem) {
+			return readLong(elem);
+		}
+	}
+	
+	/**
+	 * 戻り値が浮動小数点数型のメソッド・ハンドルを呼び出すリーダー.
+	 */
+	private static final class DoubleHandleReader implements NumericReader<Object> {
+		private final MethodHandle read;
+		private final MethodHandle readDouble;
+		private DoubleHandleReader(final MethodHandle read, final MethodHandle readDouble) {
+			this.read = read;
+			this.readDouble = readDouble;
+		}
+		@Override
+		public Object read(Object elem) {
+			try {
+				return (Object) read.invokeExact(elem);
+			} catch (final Throwable e) {
+				failed(e);
+				return null;
+			}
+		}
+		@Override
+		public boolean isIntegral() {
+			return false;
+		}
+		@Override
+		public Class<?> boxedType() {
+			return Double.class;
+		}
+		@Override
+		public long readLong(Object elem) {
+			return (long) readDouble(elem);
+		}
+		@Override
+		public double readDouble(Object elem) {
+			try {
+				return (double) readDouble.invokeExact(elem);
+			} catch (final Throwable e) {
+				failed(e);
+				throw NumericReader.Unreadable.INSTANCE;
+			}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.m12i.minque;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * プロパティの値ごとに行番号の集合を保持するハッシュ索引.
+ * {@code ==}・{@code !=}・{@code is null}・{@code is not null}に対応します。
+ * 値は{@link Object#toString()}による文字列表現をキーとして保持されます。
+ * そのため右辺が文字列の場合の{@code ==}・{@code !=}は索引だけで正確に評価できます。
+ * 右辺が文字列以外の値である場合は、等価な値が同じ文字列表現を持つことを前提に、その文字列表現で候補を絞り込みます。
+ */
+final class HashIndex implements Index {
+	private final Map<String, int[]> buckets;
+	private final int[] nulls;
+	private final int size;
+	
+	<E> HashIndex(final List<E> rows, final PropertyReader<E> reader) {
+		final Map<String, Rows.Builder> builders = new HashMap<String, Rows.Builder>();
+		final Rows.Builder nullsBuilder = new Rows.Builder();
+		final int size = rows.size();
+		for (int i = 0; i < size; i ++) {
+			final Object value = reader.read(rows.get(i));
+			if (value == null) {
+				nullsBuilder.add(i);
+				continue;
+			}
+			final String key = value.toString();
+			Rows.Builder b = builders.get(key);
+			if (b == null) {
+				b = new Rows.Builder();
+				builders.put(key, b);
+			}
+			b.add(i);
+		}
+		this.buckets = new HashMap<String, int[]>(builders.size() * 4 / 3 + 1);
+		for (final Map.Entry<String, Rows.Builder> e : builders.entrySet()) {
+			buckets.put(e.getKey(), e.getValue().toArray());
+		}
+		this.nulls = nullsBuilder.toArray();
+		this.size = size;
+	}
+	
+	@Override
+	public int[] lookup(final Operator op, final Object expected) {
+		switch (op) {
+		case IS_NULL:
+			return nulls;
+		case IS_NOT_NULL:
+			return Rows.complement(nulls, size);
+		case EQUALS:
+			return bucket(expected.toString());
+		case NOT_EQUALS:
+			// 右辺が文字列でない場合は非nullの行をすべて候補とする
+			return expected instanceof String
+					? Rows.complement(Rows.union(nulls, bucket((String) expected)), size)
+					: Rows.complement(nulls, size);
+		default:
+			return null;
+		}
+	}
+	
+	private int[] bucket(final String key) {
+		final int[] result = buckets.get(key);
+		return result == null ? Rows.EMPTY : result;
+	}
+}
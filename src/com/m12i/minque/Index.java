@@ -0,0 +1,17 @@
+package com.m12i.minque;
+
+/**
+ * {@link IndexedCollection}が保持するプロパティの索引.
+ */
+interface Index {
+	/**
+	 * 比較式にマッチしうる行番号の集合を返す.
+	 * 返却される集合は比較式にマッチするすべての行を含んでいる必要があります。
+	 * 比較式にマッチしない行が含まれていても構いませんが、それらは索引の利用者によって再評価され取り除かれます。
+	 * 索引がその比較式に対応していない場合は{@code null}を返します。
+	 * @param op 演算子
+	 * @param expected 期待される値（右辺）
+	 * @return 行番号の集合（重複のない昇順の配列）
+	 */
+	int[] lookup(Operator op, Object expected);
+}
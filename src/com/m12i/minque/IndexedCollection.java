@@ -0,0 +1,255 @@
+package com.m12i.minque;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * プロパティの索引を備えた検索対象コレクション.
+ * 構築時点の要素のスナップショットを保持し、指定されたプロパティについて索引を作成します。
+ * このコレクションを検索対象として{@link Query}や{@link BoundQuery}のAPIを呼び出すと、
+ * 比較式のうち索引で評価できるものは索引を使って評価され、候補となる行だけが走査されます。
+ * 論理積は候補の積集合に、論理和は候補の和集合になります。
+ * 否定は、被演算子が{@link #createBitmapIndex(String) ビットマップ索引}や{@link #createDictionaryIndex(String) 辞書索引}だけで
+ * 正確に評価できる場合に限り、候補の補集合になります。
+ * 索引で評価できない式を含むクエリは、通常どおり全要素を走査して評価されます。
+ * 
+ * <p>索引は構築時に指定された{@link Accessor}を使って作成されます。
+ * クエリを生成した{@link QueryFactory}のアクセサと同じ値を返すアクセサを指定する必要があります。</p>
+ * 
+ * <p>このコレクションは変更できません。
+ * 索引の作成中を除き、複数のスレッドから同時に検索対象として使用することができます。</p>
+ * @param <E> 要素型
+ */
+public final class IndexedCollection<E> extends AbstractList<E> implements RandomAccess {
+	private final List<E> rows;
+	private final Accessor<E> accessor;
+	private volatile Map<String, List<Index>> indexes = Collections.emptyMap();
+	
+	/**
+	 * コレクションを初期化する.
+	 * @param source 元になるコレクション
+	 * @param accessor 索引の作成に使用するアクセサ
+	 */
+	public IndexedCollection(final Collection<? extends E> source, final Accessor<E> accessor) {
+		if (source == null || accessor == null) {
+			throw new IllegalArgumentException();
+		}
+		this.rows = new ArrayList<E>(source);
+		this.accessor = accessor;
+	}
+	
+	/**
+	 * プロパティのハッシュ索引を作成する.
+	 * ハッシュ索引は{@code ==}・{@code !=}・{@code is null}・{@code is not null}の評価に使用されます。
+	 * @param prop プロパティ
+	 */
+	public void createHashIndex(final String prop) {
+		addIndex(prop, new HashIndex(rows, Nodes.reader(accessor, prop)));
+	}
+	
+	/**
+	 * プロパティのビットマップ索引を作成する.
+	 * ビットマップ索引は{@code ==}・{@code !=}・{@code is null}・{@code is not null}の評価に使用されます。
+	 * 値の種類が少ないプロパティに適しています。
+	 * 右辺が文字列の{@code ==}・{@code !=}と{@code is null}・{@code is not null}だけを
+	 * 論理演算子で組み合わせたクエリは、ビットマップ同士の論理演算だけで評価され、要素の再評価は行われません。
+	 * @param prop プロパティ
+	 */
+	public void createBitmapIndex(final String prop) {
+		addIndex(prop, new BitmapIndex(rows, Nodes.reader(accessor, prop)));
+	}
+	
+	/**
+	 * プロパティの辞書索引を作成する.
+	 * 辞書索引はすべての比較演算子の評価に使用されます。
+	 * 比較式は値の種類ごとに一度だけ評価されるため、値の種類に比べて行数の多い文字列のプロパティに適しています。
+	 * 辞書索引やビットマップ索引だけで評価できるクエリでは、要素の再評価は行われません。
+	 * @param prop プロパティ
+	 * @throws IllegalArgumentException プロパティ値が{@link String}でない場合
+	 */
+	public void createDictionaryIndex(final String prop) {
+		addIndex(prop, new DictionaryIndex(rows, Nodes.reader(accessor, prop)));
+	}
+	
+	/**
+	 * プロパティのソート済み索引を作成する.
+	 * ソート済み索引は{@code <}・{@code <=}・{@code >}・{@code >=}の評価に使用されます。
+	 * @param prop プロパティ
+	 * @throws IllegalArgumentException プロパティ値が{@link Comparable}でない場合、もしくは複数のクラスの値が混在している場合
+	 */
+	public void createSortedIndex(final String prop) {
+		addIndex(prop, new SortedIndex(rows, Nodes.reader(accessor, prop)));
+	}
+	
+	/**
+	 * プロパティの前方一致索引を作成する.
+	 * 前方一致索引は{@code ^=}の評価に使用されます。
+	 * @param prop プロパティ
+	 */
+	public void createPrefixIndex(final String prop) {
+		addIndex(prop, new PrefixIndex(rows, Nodes.reader(accessor, prop), false));
+	}
+	
+	/**
+	 * プロパティの後方一致索引を作成する.
+	 * 後方一致索引は{@code $=}の評価に使用されます。
+	 * @param prop プロパティ
+	 */
+	public void createSuffixIndex(final String prop) {
+		addIndex(prop, new PrefixIndex(rows, Nodes.reader(accessor, prop), true));
+	}
+	
+	/**
+	 * プロパティのN-gram索引を作成する.
+	 * N-gram索引は{@code *=}の評価に使用されます。
+	 * 文字列の長さに比例した数の転置リストを保持するため、ほかの索引より多くのメモリを使用します。
+	 * @param prop プロパティ
+	 */
+	public void createNgramIndex(final String prop) {
+		addIndex(prop, new NgramIndex(rows, Nodes.reader(accessor, prop)));
+	}
+	
+	@Override
+	public E get(final int index) {
+		return rows.get(index);
+	}
+	
+	@Override
+	public int size() {
+		return rows.size();
+	}
+	
+	private synchronized void addIndex(final String prop, final Index index) {
+		// 検索中のスレッドに影響しないようマップを複製してから差し替える
+		final Map<String, List<Index>> copy = new HashMap<String, List<Index>>(indexes);
+		final List<Index> list = copy.containsKey(prop) ? new ArrayList<Index>(copy.get(prop)) : new ArrayList<Index>();
+		list.add(index);
+		copy.put(prop, Collections.unmodifiableList(list));
+		indexes = copy;
+	}
+	
+	/**
+	 * 式にマッチしうる要素のリストを返す.
+	 * 索引で候補を絞り込めない場合はこのコレクション自身を返す。
+	 * 返却されるリストの要素はこのコレクションにおける順序を保っている。
+	 * {@link RowList#isExact(Iterable)}が{@code true}を返すリストを除き、その要素は式による再評価が必要である。
+	 * @param expr 式
+	 * @param vars バインド変数
+	 * @return 式にマッチしうる要素のリスト
+	 */
+	List<E> candidates(final Expression expr, final Object... vars) {
+		final Plan plan = lookup(indexes, rows.size(), expr, vars);
+		return plan == null ? this : new RowList<E>(rows, plan.rows(), plan.exact);
+	}
+	
+	/**
+	 * 索引を使って式にマッチしうる行番号の集合を求める.
+	 * @param indexes 索引
+	 * @param size 行数
+	 * @param expr 式
+	 * @param vars バインド変数
+	 * @return 行番号の集合（索引で絞り込めない場合は{@code null}）
+	 */
+	private static Plan lookup(final Map<String, List<Index>> indexes, final int size, final Expression expr, final Object... vars) {
+		final Operator op = expr.getOperator();
+		if (expr.isComparative()) {
+			final List<Index> list = indexes.get(expr.getProperty());
+			if (list == null) {
+				return null;
+			}
+			final Object expected = expr.getValue(vars);
+			// 正確な集合を返す索引を優先し、なければ最初に見つかった候補を使う
+			int[] found = null;
+			for (final Index index : list) {
+				if (index instanceof ExactIndex) {
+					final Bitmap bitmap = ((ExactIndex) index).bitmap(op, expected);
+					if (bitmap != null) {
+						return new Plan(bitmap);
+					}
+				}
+				if (found == null) {
+					found = index.lookup(op, expected);
+				}
+			}
+			return found == null ? null : new Plan(found, false);
+			
+		} else if (op == Operator.AND) {
+			// いずれか一方でも絞り込めればその候補を使う
+			final Plan left = lookup(indexes, size, expr.getLeft(), vars);
+			final Plan right = lookup(indexes, size, expr.getRight(), vars);
+			if (left == null) {
+				return right == null ? null : right.superset();
+			} else if (right == null) {
+				return left.superset();
+			} else if (left.bitmap != null && right.bitmap != null) {
+				return new Plan(left.bitmap.and(right.bitmap), left.exact && right.exact);
+			} else {
+				return new Plan(Rows.intersect(left.rows(), right.rows()), left.exact && right.exact);
+			}
+			
+		} else if (op == Operator.OR) {
+			// 両方を絞り込めた場合だけ候補を使う
+			final Plan left = lookup(indexes, size, expr.getLeft(), vars);
+			if (left == null) {
+				return null;
+			}
+			final Plan right = lookup(indexes, size, expr.getRight(), vars);
+			if (right == null) {
+				return null;
+			} else if (left.bitmap != null && right.bitmap != null) {
+				return new Plan(left.bitmap.or(right.bitmap), left.exact && right.exact);
+			} else {
+				return new Plan(Rows.union(left.rows(), right.rows()), left.exact && right.exact);
+			}
+			
+		} else {
+			// 否定は被演算子の集合が正確な場合だけその補集合を使う
+			final Plan operand = lookup(indexes, size, expr.getRight(), vars);
+			if (operand == null || !operand.exact) {
+				return null;
+			} else if (operand.bitmap != null) {
+				return new Plan(operand.bitmap.not());
+			} else {
+				return new Plan(Rows.complement(operand.rows, size), true);
+			}
+		}
+	}
+	
+	/**
+	 * 索引による絞り込みの結果.
+	 * 行番号の集合を配列もしくはビットマップのいずれかで保持する。
+	 */
+	private static final class Plan {
+		private final int[] rows;
+		private final Bitmap bitmap;
+		/**
+		 * 集合が式にマッチする行だけからなる場合は{@code true}.
+		 */
+		private final boolean exact;
+		private Plan(final int[] rows, final boolean exact) {
+			this.rows = rows;
+			this.bitmap = null;
+			this.exact = exact;
+		}
+		private Plan(final Bitmap bitmap) {
+			this(bitmap, true);
+		}
+		private Plan(final Bitmap bitmap, final boolean exact) {
+			this.rows = null;
+			this.bitmap = bitmap;
+			this.exact = exact;
+		}
+		private int[] rows() {
+			return rows != null ? rows : bitmap.toRows();
+		}
+		private Plan superset() {
+			return !exact ? this : bitmap != null ? new Plan(bitmap, false) : new Plan(rows, false);
+		}
+	}
+}
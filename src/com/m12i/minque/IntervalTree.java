@@ -0,0 +1,198 @@
+package com.m12i.minque;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 区間の集合から、ある値を含む区間をすべて求めるための区間木.
+ * 区間の端点は同じクラスの{@link Comparable}であり、{@code null}の端点は無限大を表わす。
+ * 各節点は中心の値を含む区間を下端の昇順と上端の降順の2通りに並べて保持し、
+ * 中心より小さい区間と大きい区間をそれぞれ左右の部分木に委ねる。
+ * 値を含む区間の検索は、木の高さと見つかった区間の数に比例する時間で済む。
+ * インスタンスは変更できない。
+ * @param <T> 区間に対応付けられた値の型
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+final class IntervalTree<T> {
+	/**
+	 * 区間を線形に走査する節点の区間数の上限.
+	 */
+	private static final int LEAF_SIZE = 8;
+	
+	/**
+	 * 端点を持つ区間.
+	 * @param <T> 区間に対応付けられた値の型
+	 */
+	static final class Interval<T> {
+		final Comparable lo;
+		final boolean loInclusive;
+		final Comparable hi;
+		final boolean hiInclusive;
+		final T value;
+		Interval(final Comparable lo, final boolean loInclusive,
+				final Comparable hi, final boolean hiInclusive, final T value) {
+			this.lo = lo;
+			this.loInclusive = loInclusive;
+			this.hi = hi;
+			this.hiInclusive = hiInclusive;
+			this.value = value;
+		}
+		private boolean above(final Comparable point) {
+			if (lo == null) {
+				return true;
+			}
+			final int c = lo.compareTo(point);
+			return c < 0 || (c == 0 && loInclusive);
+		}
+		private boolean below(final Comparable point) {
+			if (hi == null) {
+				return true;
+			}
+			final int c = hi.compareTo(point);
+			return c > 0 || (c == 0 && hiInclusive);
+		}
+		/**
+		 * 区間が値を含むかどうかを返す.
+		 * @param point 値
+		 * @return 含む場合は{@code true}
+		 */
+		boolean contains(final Comparable point) {
+			return above(point) && below(point);
+		}
+	}
+	
+	private static final Comparator<Interval<?>> BY_LO = new Comparator<Interval<?>>() {
+		@Override
+		public int compare(final Interval<?> a, final Interval<?> b) {
+			if (a.lo == null || b.lo == null) {
+				return a.lo == null ? (b.lo == null ? 0 : -1) : 1;
+			}
+			return a.lo.compareTo(b.lo);
+		}
+	};
+	
+	private static final Comparator<Interval<?>> BY_HI_DESC = new Comparator<Interval<?>>() {
+		@Override
+		public int compare(final Interval<?> a, final Interval<?> b) {
+			if (a.hi == null || b.hi == null) {
+				return a.hi == null ? (b.hi == null ? 0 : -1) : 1;
+			}
+			return b.hi.compareTo(a.hi);
+		}
+	};
+	
+	private final Comparable center;
+	private final List<Interval<T>> byLo;
+	private final List<Interval<T>> byHi;
+	private final IntervalTree<T> left;
+	private final IntervalTree<T> right;
+	
+	private IntervalTree(final Comparable center, final List<Interval<T>> byLo, final List<Interval<T>> byHi,
+			final IntervalTree<T> left, final IntervalTree<T> right) {
+		this.center = center;
+		this.byLo = byLo;
+		this.byHi = byHi;
+		this.left = left;
+		this.right = right;
+	}
+	
+	/**
+	 * 区間木を構築する.
+	 * @param intervals 区間のリスト
+	 * @return 区間木
+	 */
+	static <T> IntervalTree<T> build(final List<Interval<T>> intervals) {
+		if (intervals.size() <= LEAF_SIZE) {
+			return leaf(intervals);
+		}
+		// 有限の端点の中央値を中心とする
+		final List<Comparable> points = new ArrayList<Comparable>();
+		for (final Interval<T> i : intervals) {
+			if (i.lo != null) {
+				points.add(i.lo);
+			}
+			if (i.hi != null) {
+				points.add(i.hi);
+			}
+		}
+		if (points.isEmpty()) {
+			return leaf(intervals);
+		}
+		Collections.sort(points);
+		final Comparable center = points.get(points.size() / 2);
+		final List<Interval<T>> lefts = new ArrayList<Interval<T>>();
+		final List<Interval<T>> rights = new ArrayList<Interval<T>>();
+		final List<Interval<T>> mids = new ArrayList<Interval<T>>();
+		for (final Interval<T> i : intervals) {
+			if (!i.below(center)) {
+				lefts.add(i);
+			} else if (!i.above(center)) {
+				rights.add(i);
+			} else {
+				mids.add(i);
+			}
+		}
+		if (lefts.size() == intervals.size() || rights.size() == intervals.size()) {
+			return leaf(intervals);
+		}
+		final List<Interval<T>> byHi = new ArrayList<Interval<T>>(mids);
+		Collections.sort(mids, BY_LO);
+		Collections.sort(byHi, BY_HI_DESC);
+		return new IntervalTree<T>(center, mids, byHi,
+				lefts.isEmpty() ? null : build(lefts),
+				rights.isEmpty() ? null : build(rights));
+	}
+	
+	private static <T> IntervalTree<T> leaf(final List<Interval<T>> intervals) {
+		return new IntervalTree<T>(null, new ArrayList<Interval<T>>(intervals), null, null, null);
+	}
+	
+	/**
+	 * 値を含むすべての区間の値を収集する.
+	 * @param point 値（端点と同じクラスの値）
+	 * @param result 区間の値を追加するコレクション
+	 */
+	void stab(final Comparable point, final Collection<? super T> result) {
+		IntervalTree<T> node = this;
+		while (node != null) {
+			if (node.center == null) {
+				for (final Interval<T> i : node.byLo) {
+					if (i.contains(point)) {
+						result.add(i.value);
+					}
+				}
+				return;
+			}
+			final int c = point.compareTo(node.center);
+			if (c < 0) {
+				// 中心を含む区間の上端は値より大きいため、下端だけを調べる
+				for (final Interval<T> i : node.byLo) {
+					if (i.above(point)) {
+						result.add(i.value);
+					} else if (i.lo.compareTo(point) > 0) {
+						break;
+					}
+				}
+				node = node.left;
+			} else if (c > 0) {
+				// 中心を含む区間の下端は値より小さいため、上端だけを調べる
+				for (final Interval<T> i : node.byHi) {
+					if (i.below(point)) {
+						result.add(i.value);
+					} else if (i.hi.compareTo(point) < 0) {
+						break;
+					}
+				}
+				node = node.right;
+			} else {
+				for (final Interval<T> i : node.byLo) {
+					result.add(i.value);
+				}
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,371 @@
+package com.m12i.minque;
+
+/**
+ * プリミティブ型の配列に格納された列の値を比較してビットマップを生成するためのユーティリティ.
+ * 演算子による処理分岐はループの外側で一度だけ行い、各ループは配列を先頭から順に走査するだけの単純な形をとります。
+ * 比較結果は呼び出し側が用意したビット列の指定された位置から書き込まれるため、
+ * 大きな列を一定の長さのチャンクに分けて評価することもできます。
+ * 比較結果は{@code null}を考慮しないため、必要に応じて呼び出し側で{@code null}の行を取り除きます。
+ * 
+ * <p>各ループは64個の値ごとに比較結果を1語のビット列としてレジスタ上に組み立て、1語ずつ書き出します。
+ * 比較結果は条件分岐ではなくビット演算によってビット列に取り込まれるため、
+ * 比較結果の予測しにくい値の並びでも分岐予測の失敗による性能の低下が起こりません。
+ * 内側のループの反復回数は高々64回に固定されているため、JITコンパイラによる展開も期待できます。</p>
+ */
+final class Kernels {
+	private Kernels() {}
+	
+	/**
+	 * {@code int}型の列の値を{@code long}値と比較する.
+	 * @param values 列の値
+	 * @param start 比較する最初の値の位置
+	 * @param length 比較する値の数
+	 * @param op 演算子（{@code ==}・{@code !=}・{@code <}・{@code <=}・{@code >}・{@code >=}のいずれか）
+	 * @param bound 比較対象の値
+	 * @param words 比較結果が真となる行のビットを立てるビット列
+	 * @param offset 最初の値の比較結果を書き込むビットの位置（64の倍数）
+	 */
+	static void compare(final int[] values, final int start, final int length, final Operator op, final long bound, final long[] words, final int offset) {
+		final int base = offset >>> 6;
+		switch (op) {
+		case EQUALS:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] == bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case NOT_EQUALS:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] != bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case LESS_THAN:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] < bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case LESS_THAN_EQUAL:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] <= bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case GREATER_THAN:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] > bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case GREATER_THAN_EQUAL:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] >= bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported operator.");
+		}
+	}
+	
+	/**
+	 * {@code long}型の列の値を{@code long}値と比較する.
+	 * @param values 列の値
+	 * @param start 比較する最初の値の位置
+	 * @param length 比較する値の数
+	 * @param op 演算子（{@code ==}・{@code !=}・{@code <}・{@code <=}・{@code >}・{@code >=}のいずれか）
+	 * @param bound 比較対象の値
+	 * @param words 比較結果が真となる行のビットを立てるビット列
+	 * @param offset 最初の値の比較結果を書き込むビットの位置（64の倍数）
+	 */
+	static void compare(final long[] values, final int start, final int length, final Operator op, final long bound, final long[] words, final int offset) {
+		final int base = offset >>> 6;
+		switch (op) {
+		case EQUALS:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] == bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case NOT_EQUALS:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] != bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case LESS_THAN:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] < bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case LESS_THAN_EQUAL:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] <= bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case GREATER_THAN:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] > bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case GREATER_THAN_EQUAL:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] >= bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported operator.");
+		}
+	}
+	
+	/**
+	 * {@code double}型の列の値を{@code double}値と比較する.
+	 * 比較にはJavaの比較演算子を使用するため、{@code NaN}との比較は{@code !=}を除きすべて偽となります。
+	 * @param values 列の値
+	 * @param start 比較する最初の値の位置
+	 * @param length 比較する値の数
+	 * @param op 演算子（{@code ==}・{@code !=}・{@code <}・{@code <=}・{@code >}・{@code >=}のいずれか）
+	 * @param bound 比較対象の値
+	 * @param words 比較結果が真となる行のビットを立てるビット列
+	 * @param offset 最初の値の比較結果を書き込むビットの位置（64の倍数）
+	 */
+	static void compare(final double[] values, final int start, final int length, final Operator op, final double bound, final long[] words, final int offset) {
+		final int base = offset >>> 6;
+		switch (op) {
+		case EQUALS:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] == bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case NOT_EQUALS:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] != bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case LESS_THAN:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] < bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case LESS_THAN_EQUAL:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] <= bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case GREATER_THAN:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] > bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case GREATER_THAN_EQUAL:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (values[start + i] >= bound ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported operator.");
+		}
+	}
+	
+	/**
+	 * {@code double}型の列の値を{@link Double#compare(double, double)}の順序で{@code double}値と比較する.
+	 * {@link Double#compareTo(Double)}・{@link Double#equals(Object)}と同じ結果となるよう、
+	 * {@code NaN}はほかのどの値よりも大きく、{@code -0.0}は{@code 0.0}よりも小さいものとして扱います。
+	 * 値は{@link #sortable(double)}で順序を保った{@code long}値に変換したうえで比較します。
+	 * @param values 列の値
+	 * @param start 比較する最初の値の位置
+	 * @param length 比較する値の数
+	 * @param op 演算子（{@code ==}・{@code !=}・{@code <}・{@code <=}・{@code >}・{@code >=}のいずれか）
+	 * @param bound 比較対象の値
+	 * @param words 比較結果が真となる行のビットを立てるビット列
+	 * @param offset 最初の値の比較結果を書き込むビットの位置（64の倍数）
+	 */
+	static void compareTotal(final double[] values, final int start, final int length, final Operator op, final double bound, final long[] words, final int offset) {
+		final long key = sortable(bound);
+		final int base = offset >>> 6;
+		switch (op) {
+		case EQUALS:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (sortable(values[start + i]) == key ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case NOT_EQUALS:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (sortable(values[start + i]) != key ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case LESS_THAN:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (sortable(values[start + i]) < key ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case LESS_THAN_EQUAL:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (sortable(values[start + i]) <= key ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case GREATER_THAN:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (sortable(values[start + i]) > key ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		case GREATER_THAN_EQUAL:
+			for (int from = 0; from < length; from += 64) {
+				final int to = Math.min(from + 64, length);
+				long bits = 0;
+				for (int i = from; i < to; i ++) {
+					bits |= (sortable(values[start + i]) >= key ? 1L : 0L) << i;
+				}
+				words[base + (from >>> 6)] |= bits;
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported operator.");
+		}
+	}
+	
+	/**
+	 * {@code double}値を{@link Double#compare(double, double)}の順序を保った{@code long}値に変換する.
+	 * {@code NaN}は{@link Double#doubleToLongBits(double)}によって単一の値に正規化されます。
+	 * 負の値は符号以外のビットを反転させることで、大小関係が{@code long}値の大小関係と一致するようになります。
+	 * @param value {@code double}値
+	 * @return 変換結果
+	 */
+	static long sortable(final double value) {
+		final long bits = Double.doubleToLongBits(value);
+		return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+	}
+	
+	/**
+	 * 辞書のコードの列の各行について、そのコードがコードの集合に含まれるかどうかを調べる.
+	 * {@code null}の行（コードが負の値の行）は含まれないものとして扱います。
+	 * @param codes 列のコード
+	 * @param start 調べる最初のコードの位置
+	 * @param length 調べるコードの数
+	 * @param codeBits コードの集合を表わすビット列
+	 * @param words コードが集合に含まれる行のビットを立てるビット列
+	 * @param offset 最初のコードの結果を書き込むビットの位置（64の倍数）
+	 */
+	static void probe(final int[] codes, final int start, final int length, final long[] codeBits, final long[] words, final int offset) {
+		final int base = offset >>> 6;
+		for (int from = 0; from < length; from += 64) {
+			final int to = Math.min(from + 64, length);
+			long bits = 0;
+			for (int i = from; i < to; i ++) {
+				// null（負のコード）はコード0に読み替えたうえで、符号ビットを使って結果から取り除く
+				final int code = codes[start + i];
+				final int masked = code & ~ (code >> 31);
+				bits |= ((codeBits[masked >>> 6] >>> masked) & ((~ code) >>> 31)) << i;
+			}
+			words[base + (from >>> 6)] |= bits;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.m12i.minque;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 検索対象の変更に追随して検索結果を維持し続けるクエリ.
+ * {@link BoundQuery#live(ObservableCollection)}で{@link ObservableCollection}に結び付けて生成します。
+ * 生成時に一度だけ検索対象の全要素を評価し、それ以降は追加・削除・更新された要素だけを評価し直して
+ * クエリにマッチする要素とその数を維持します。
+ * 要素がクエリにマッチするようになった時とマッチしなくなった時には、{@link Listener}に通知されます。
+ * 
+ * <p>要素は同一性（{@code ==}）によって区別されます。
+ * 同じ要素が検索対象に複数回含まれる場合、検索結果にも同じ回数だけ含まれ、通知も同じ回数だけ行われます。</p>
+ * 
+ * <p>このオブジェクトはスレッドセーフではありません。
+ * 検索対象のコレクションを変更するスレッドと同じスレッドから使用する必要があります。
+ * 不要になったら{@link #close()}を呼び出して検索対象との結び付きを解除します。</p>
+ * @param <E> 要素型
+ */
+public final class LiveQuery<E> {
+	private final Node<E> node;
+	private final ObservableCollection<E> source;
+	// 検索対象に含まれる要素ごとの出現回数と評価結果
+	private final Map<E, Entry> entries = new IdentityHashMap<E, Entry>();
+	private final List<Listener<? super E>> listeners = new CopyOnWriteArrayList<Listener<? super E>>();
+	private final ObservableCollection.Listener<E> observer = new ObservableCollection.Listener<E>() {
+		@Override
+		public void added(final E elem) {
+			Entry entry = entries.get(elem);
+			if (entry == null) {
+				entry = new Entry(node.test(elem));
+				entries.put(elem, entry);
+			}
+			entry.occurrences ++;
+			if (entry.matched) {
+				count ++;
+				fireEntered(elem, 1);
+			}
+		}
+		@Override
+		public void removed(final E elem) {
+			final Entry entry = entries.get(elem);
+			if (entry == null) {
+				return;
+			}
+			if (-- entry.occurrences == 0) {
+				entries.remove(elem);
+			}
+			if (entry.matched) {
+				count --;
+				fireExited(elem, 1);
+			}
+		}
+		@Override
+		public void updated(final E elem) {
+			final Entry entry = entries.get(elem);
+			if (entry == null) {
+				return;
+			}
+			final boolean matched = node.test(elem);
+			if (matched == entry.matched) {
+				return;
+			}
+			entry.matched = matched;
+			if (matched) {
+				count += entry.occurrences;
+				fireEntered(elem, entry.occurrences);
+			} else {
+				count -= entry.occurrences;
+				fireExited(elem, entry.occurrences);
+			}
+		}
+	};
+	private int count = 0;
+	private boolean closed = false;
+	
+	LiveQuery(final Node<E> node, final ObservableCollection<E> source) {
+		this.node = node;
+		this.source = source;
+		for (final E elem : source) {
+			Entry entry = entries.get(elem);
+			if (entry == null) {
+				entry = new Entry(node.test(elem));
+				entries.put(elem, entry);
+			}
+			entry.occurrences ++;
+			if (entry.matched) {
+				count ++;
+			}
+		}
+		source.addListener(observer);
+	}
+	
+	/**
+	 * クエリにマッチする要素の数を返す.
+	 * @return クエリにマッチする要素の数
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * 要素がクエリにマッチしているかどうかを返す.
+	 * @param elem 要素
+	 * @return 検索対象に含まれクエリにマッチしている場合は{@code true}
+	 */
+	public boolean contains(final Object elem) {
+		final Entry entry = entries.get(elem);
+		return entry != null && entry.matched;
+	}
+	
+	/**
+	 * クエリにマッチするすべての要素を返す.
+	 * 返却されるリストは現時点での検索結果の複製であり、要素の順序は定まりません。
+	 * @return クエリにマッチするすべての要素
+	 */
+	public List<E> getResults() {
+		final List<E> result = new ArrayList<E>(count);
+		for (final Map.Entry<E, Entry> e : entries.entrySet()) {
+			if (e.getValue().matched) {
+				for (int i = 0; i < e.getValue().occurrences; i ++) {
+					result.add(e.getKey());
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * リスナーを登録する.
+	 * @param listener リスナー
+	 */
+	public void addListener(final Listener<? super E> listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException();
+		}
+		listeners.add(listener);
+	}
+	
+	/**
+	 * リスナーの登録を解除する.
+	 * @param listener リスナー
+	 */
+	public void removeListener(final Listener<? super E> listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * 検索対象との結び付きを解除する.
+	 * これ以降、検索対象の変更は検索結果に反映されず、リスナーにも通知されません。
+	 */
+	public void close() {
+		if (!closed) {
+			closed = true;
+			source.removeListener(observer);
+		}
+	}
+	
+	private void fireEntered(final E elem, final int times) {
+		for (int i = 0; i < times; i ++) {
+			for (final Listener<? super E> l : listeners) {
+				l.entered(elem);
+			}
+		}
+	}
+	
+	private void fireExited(final E elem, final int times) {
+		for (int i = 0; i < times; i ++) {
+			for (final Listener<? super E> l : listeners) {
+				l.exited(elem);
+			}
+		}
+	}
+	
+	/**
+	 * 検索結果の変化を受け取るリスナー.
+	 * @param <E> 要素型
+	 */
+	public interface Listener<E> {
+		/**
+		 * 要素がクエリにマッチするようになった.
+		 * 要素がクエリにマッチする状態で検索対象に追加された場合も含みます。
+		 * @param elem 要素
+		 */
+		void entered(E elem);
+		/**
+		 * 要素がクエリにマッチしなくなった.
+		 * クエリにマッチしていた要素が検索対象から削除された場合も含みます。
+		 * @param elem 要素
+		 */
+		void exited(E elem);
+	}
+	
+	/**
+	 * 要素ごとの出現回数と評価結果.
+	 */
+	private static final class Entry {
+		private int occurrences = 0;
+		private boolean matched;
+		private Entry(final boolean matched) {
+			this.matched = matched;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.m12i.minque;
+
+import java.util.Map;
+
+/**
+ * {@link Map}のエントリにアクセスするアクセサ.
+ * プロパティ名はキーとして解釈されます。
+ * {@code .}を含むプロパティ名は、その名前をキーとするエントリが存在すればその値を、
+ * 存在しなければ値をたどるパスとして読み取った結果を返します。
+ */
+final class MapAccessor implements Accessor<Map<String, Object>>, PropertyResolver<Map<String, Object>> {
+	
+	@Override
+	public PropertyReader<Map<String, Object>> resolve(final String prop) {
+		if (Paths.isPath(prop)) {
+			return new KeyOrPathReader(prop, Paths.reader(prop, this, Paths.BEANS));
+		}
+		return new KeyReader(prop);
+	}
+	
+	@Override
+	public Object accsess(final Map<String, Object> elem, final String prop) {
+		return resolve(prop).read(elem);
+	}
+	
+	/**
+	 * プロパティ名をキーとして値を取得するリーダー.
+	 */
+	private static final class KeyReader implements PropertyReader<Map<String, Object>> {
+		private final String prop;
+		private KeyReader(final String prop) {
+			this.prop = prop;
+		}
+		@Override
+		public Object read(final Map<String, Object> elem) {
+			// 存在しないキーに対してはgetがnullを返すため、containsKeyによる事前の確認は行わない
+			return elem.get(prop);
+		}
+	}
+	
+	/**
+	 * {@code .}を含むプロパティ名をキーとして値を取得し、該当するエントリがなければパスとして読み取るリーダー.
+	 */
+	private static final class KeyOrPathReader implements PropertyReader<Map<String, Object>> {
+		private final String prop;
+		private final PropertyReader<Map<String, Object>> path;
+		private KeyOrPathReader(final String prop, final PropertyReader<Map<String, Object>> path) {
+			this.prop = prop;
+			this.path = path;
+		}
+		@Override
+		public Object read(final Map<String, Object> elem) {
+			final Object value = elem.get(prop);
+			return value != null || elem.containsKey(prop) ? value : path.read(elem);
+		}
+	}
+}
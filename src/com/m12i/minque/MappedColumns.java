@@ -0,0 +1,248 @@
+package com.m12i.minque;
+
+import java.nio.ByteBuffer;
+
+/**
+ * メモリ・マップされた列ファイルの値を直接読み取る列.
+ * 値の配列はセグメントごとにマップされたバッファとして保持され、ヒープ上には展開されません。
+ * 比較式の評価では、評価する行の範囲をバッファから一定の長さのチャンクずつ作業用の配列に読み出し、
+ * {@link Kernels}のループで評価することを繰り返します。
+ */
+final class MappedColumns {
+	private MappedColumns() {}
+	
+	/**
+	 * 一度に作業用の配列に読み出す値の数（64の倍数）.
+	 */
+	static final int CHUNK_SIZE = 4096;
+	
+	/**
+	 * セグメント・バッファの共通処理.
+	 */
+	private static final class Segments {
+		private final ByteBuffer[] buffers;
+		private final int segmentRows;
+		private Segments(final ByteBuffer[] buffers, final int segmentRows) {
+			this.buffers = buffers;
+			this.segmentRows = segmentRows;
+		}
+		private ByteBuffer segment(final int row) {
+			return buffers[row / segmentRows];
+		}
+		private int index(final int row, final int width) {
+			return (row % segmentRows) * width;
+		}
+		/**
+		 * 行から始まるチャンクの長さを返す.
+		 * チャンクはセグメントの境界をまたがない。
+		 * セグメントあたりの行数は64の倍数であるため、チャンクの先頭は常に64の倍数の行になる。
+		 */
+		private int chunkLength(final int row, final int to) {
+			return Math.min(Math.min(CHUNK_SIZE, to - row), segmentRows - row % segmentRows);
+		}
+		/**
+		 * 走査のためのバッファの複製を返す.
+		 * 複製は位置を独立して持つため、複数のスレッドから同時に走査することができる。
+		 */
+		private ByteBuffer duplicate(final int row, final int width) {
+			final ByteBuffer buff = buffers[row / segmentRows].duplicate().order(ColumnFile.ORDER);
+			buff.position(index(row, width));
+			return buff;
+		}
+		private void get(final int row, final int[] chunk, final int length) {
+			duplicate(row, 4).asIntBuffer().get(chunk, 0, length);
+		}
+		private void get(final int row, final long[] chunk, final int length) {
+			duplicate(row, 8).asLongBuffer().get(chunk, 0, length);
+		}
+		private void get(final int row, final double[] chunk, final int length) {
+			duplicate(row, 8).asDoubleBuffer().get(chunk, 0, length);
+		}
+	}
+	
+	/**
+	 * {@code int}型の列.
+	 */
+	static final class MappedIntColumn extends Columns.NumericColumn {
+		private final Segments segments;
+		MappedIntColumn(final ByteBuffer[] buffers, final int segmentRows,
+				final Bitmap nulls, final int size, final boolean primitive) {
+			super(nulls, size, primitive);
+			this.segments = new Segments(buffers, segmentRows);
+		}
+		@Override
+		Object get(final int row) {
+			return nulls.get(row) ? null : Integer.valueOf(segments.segment(row).getInt(segments.index(row, 4)));
+		}
+		@Override
+		Class<?> type() {
+			return Integer.class;
+		}
+		@Override
+		Columns.Selector compare(final Operator op, final Object lit) {
+			return new Columns.Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = new long[Bitmap.wordCount(to - from)];
+					final int[] chunk = new int[CHUNK_SIZE];
+					final double[] doubles = lit instanceof Double ? new double[CHUNK_SIZE] : null;
+					for (int row = from; row < to; ) {
+						final int length = segments.chunkLength(row, to);
+						segments.get(row, chunk, length);
+						if (doubles != null) {
+							// 整数の列と小数の右辺はdouble同士で比較する
+							for (int i = 0; i < length; i ++) {
+								doubles[i] = chunk[i];
+							}
+							Kernels.compare(doubles, 0, length, op, (Double) lit, words, row - from);
+						} else {
+							Kernels.compare(chunk, 0, length, op, ((Number) lit).longValue(), words, row - from);
+						}
+						row += length;
+					}
+					return words;
+				}
+			};
+		}
+	}
+	
+	/**
+	 * {@code long}型の列.
+	 */
+	static final class MappedLongColumn extends Columns.NumericColumn {
+		private final Segments segments;
+		MappedLongColumn(final ByteBuffer[] buffers, final int segmentRows,
+				final Bitmap nulls, final int size, final boolean primitive) {
+			super(nulls, size, primitive);
+			this.segments = new Segments(buffers, segmentRows);
+		}
+		@Override
+		Object get(final int row) {
+			return nulls.get(row) ? null : Long.valueOf(segments.segment(row).getLong(segments.index(row, 8)));
+		}
+		@Override
+		Class<?> type() {
+			return Long.class;
+		}
+		@Override
+		Columns.Selector compare(final Operator op, final Object lit) {
+			return new Columns.Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = new long[Bitmap.wordCount(to - from)];
+					final long[] chunk = new long[CHUNK_SIZE];
+					final double[] doubles = lit instanceof Double ? new double[CHUNK_SIZE] : null;
+					for (int row = from; row < to; ) {
+						final int length = segments.chunkLength(row, to);
+						segments.get(row, chunk, length);
+						if (doubles != null) {
+							// 整数の列と小数の右辺はdouble同士で比較する
+							for (int i = 0; i < length; i ++) {
+								doubles[i] = chunk[i];
+							}
+							Kernels.compare(doubles, 0, length, op, (Double) lit, words, row - from);
+						} else {
+							Kernels.compare(chunk, 0, length, op, ((Number) lit).longValue(), words, row - from);
+						}
+						row += length;
+					}
+					return words;
+				}
+			};
+		}
+	}
+	
+	/**
+	 * {@code double}型の列.
+	 */
+	static final class MappedDoubleColumn extends Columns.NumericColumn {
+		private final Segments segments;
+		MappedDoubleColumn(final ByteBuffer[] buffers, final int segmentRows,
+				final Bitmap nulls, final int size, final boolean primitive) {
+			super(nulls, size, primitive);
+			this.segments = new Segments(buffers, segmentRows);
+		}
+		@Override
+		Object get(final int row) {
+			return nulls.get(row) ? null : Double.valueOf(segments.segment(row).getDouble(segments.index(row, 8)));
+		}
+		@Override
+		Class<?> type() {
+			return Double.class;
+		}
+		@Override
+		Columns.Selector compare(final Operator op, final Object lit) {
+			final double bound = ((Number) lit).doubleValue();
+			final boolean total = !primitive || op == Operator.EQUALS || op == Operator.NOT_EQUALS;
+			return new Columns.Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = new long[Bitmap.wordCount(to - from)];
+					final double[] chunk = new double[CHUNK_SIZE];
+					for (int row = from; row < to; ) {
+						final int length = segments.chunkLength(row, to);
+						segments.get(row, chunk, length);
+						if (total) {
+							Kernels.compareTotal(chunk, 0, length, op, bound, words, row - from);
+						} else {
+							Kernels.compare(chunk, 0, length, op, bound, words, row - from);
+						}
+						row += length;
+					}
+					return words;
+				}
+			};
+		}
+	}
+	
+	/**
+	 * 辞書によって符号化された文字列の列.
+	 * 辞書はヒープ上に、コードの配列はマップされたバッファとして保持する。
+	 */
+	static final class MappedStringColumn extends Columns.DictionaryColumn {
+		private final Segments segments;
+		MappedStringColumn(final String[] dictionary, final ByteBuffer[] buffers, final int segmentRows,
+				final Bitmap nulls, final int size) {
+			super(dictionary, nulls, size);
+			this.segments = new Segments(buffers, segmentRows);
+		}
+		@Override
+		int code(final int row) {
+			return segments.segment(row).getInt(segments.index(row, 4));
+		}
+		@Override
+		Columns.Selector compareCodes(final Operator op, final int code) {
+			return new Columns.Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = new long[Bitmap.wordCount(to - from)];
+					final int[] chunk = new int[CHUNK_SIZE];
+					for (int row = from; row < to; ) {
+						final int length = segments.chunkLength(row, to);
+						segments.get(row, chunk, length);
+						Kernels.compare(chunk, 0, length, op, code, words, row - from);
+						row += length;
+					}
+					return words;
+				}
+			};
+		}
+		@Override
+		Columns.Selector probe(final long[] codeBits) {
+			return new Columns.Selector() {
+				@Override
+				public long[] select(final int from, final int to) {
+					final long[] words = new long[Bitmap.wordCount(to - from)];
+					final int[] chunk = new int[CHUNK_SIZE];
+					for (int row = from; row < to; ) {
+						final int length = segments.chunkLength(row, to);
+						segments.get(row, chunk, length);
+						Kernels.probe(chunk, 0, length, codeBits, words, row - from);
+						row += length;
+					}
+					return words;
+				}
+			};
+		}
+	}
+}
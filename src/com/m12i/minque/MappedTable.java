@@ -0,0 +1,223 @@
+package com.m12i.minque;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 列ファイルをメモリ・マップして検索対象とするテーブル.
+ * {@link #write(File, Iterable, Accessor, String...)}で要素のプロパティを列ごとにファイルに書き出しておき、
+ * {@link #open(File)}でそのファイルを開きます。
+ * 値の配列は{@link FileChannel#map(FileChannel.MapMode, long, long)}でマップされたバッファとして参照され、
+ * ヒープ上には展開されません。ヒープに収まらない大きさのデータセットも、OSのページ・キャッシュを通じて検索できます。
+ * 
+ * <p>このテーブルの要素は、行の各列の値をプロパティとする{@link Map}です。
+ * 要素はテーブルから取得されるたびにバッファの上のビューとして生成されます。
+ * {@link QueryFactory#createMapQueryFactory()}で生成したクエリを使って検索できます。
+ * このテーブルを検索対象として{@link Query}や{@link BoundQuery}のAPIを呼び出すと、
+ * {@link ColumnarTable}と同様に、クエリは列ごとの走査とビットマップ同士の論理演算として評価され、
+ * マッチした行の要素だけが生成されます。
+ * 並列版のAPIでは、列の走査がモーセルごとに複数のスレッドで行われます。
+ * 逐次版のAPIでも列の走査はモーセルごとに行われ、{@link BoundQuery#existsIn(Iterable)}のように
+ * 結果が確定した時点で終了する検索では、残りのモーセルは走査されません。
+ * 列ファイルに含まれないプロパティの値は常に{@code null}とみなされます。</p>
+ * 
+ * <p>このテーブルは変更できません。
+ * 複数のスレッドから同時に検索対象として使用することができます。
+ * マップされたバッファは、テーブルへの参照がなくなりガベージ・コレクションされた時点で解放されます。</p>
+ */
+public final class MappedTable extends AbstractList<Map<String, Object>> implements RandomAccess {
+	/**
+	 * デフォルトのセグメントあたりの行数.
+	 * 列の値の配列はこの行数ごとに分割してマップされます。
+	 */
+	static final int DEFAULT_SEGMENT_ROWS = 1 << 26;
+	
+	private final int size;
+	private final Map<String, Columns.Column> columns;
+	private final Columns.Provider provider = new Columns.Provider() {
+		@Override
+		public Columns.Column column(final String prop) {
+			final Columns.Column column = columns.get(prop);
+			return column != null ? column : new Columns.NullColumn(size);
+		}
+	};
+	
+	private MappedTable(final int size, final Map<String, Columns.Column> columns) {
+		this.size = size;
+		this.columns = columns;
+	}
+	
+	/**
+	 * 要素の集合を列ファイルに書き出す.
+	 * 要素は一度だけ走査されるため、要素の集合がヒープに収まっている必要はありません。
+	 * 列ごとのデータは書き出し先と同じディレクトリに作成される一時ファイルを経由して書き出されます。
+	 * プロパティ値は{@link Integer}・{@link Long}・{@link Double}・{@link String}のいずれかで、
+	 * ひとつのプロパティについて{@code null}でない値はすべて同じクラスである必要があります。
+	 * @param file 書き出し先の列ファイル
+	 * @param source 要素の集合
+	 * @param accessor プロパティの取得に使用するアクセサ
+	 * @param props 書き出すプロパティ
+	 * @throws IOException 書き出し中にエラーが発生した場合
+	 * @throws IllegalArgumentException サポートされていない型のプロパティ値が含まれている場合、
+	 *         もしくは複数のクラスの値が混在している場合
+	 */
+	public static <E> void write(final File file, final Iterable<? extends E> source,
+			final Accessor<E> accessor, final String... props) throws IOException {
+		if (file == null || source == null || accessor == null || props == null) {
+			throw new IllegalArgumentException();
+		}
+		ColumnFile.write(file, source, accessor, props);
+	}
+	
+	/**
+	 * 列ファイルを開く.
+	 * @param file 列ファイル
+	 * @return テーブル
+	 * @throws IOException 読み取り中にエラーが発生した場合、もしくは列ファイルでない場合
+	 */
+	public static MappedTable open(final File file) throws IOException {
+		return open(file, DEFAULT_SEGMENT_ROWS);
+	}
+	
+	/**
+	 * 列ファイルを開く.
+	 * @param file 列ファイル
+	 * @param segmentRows セグメントあたりの行数（64の倍数）
+	 * @return テーブル
+	 * @throws IOException 読み取り中にエラーが発生した場合、もしくは列ファイルでない場合
+	 */
+	static MappedTable open(final File file, final int segmentRows) throws IOException {
+		if (segmentRows <= 0 || segmentRows % 64 != 0) {
+			throw new IllegalArgumentException();
+		}
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			final Map<String, ColumnFile.Entry> entries = new LinkedHashMap<String, ColumnFile.Entry>();
+			final int size = ColumnFile.readEntries(channel, entries);
+			final Map<String, Columns.Column> columns = new LinkedHashMap<String, Columns.Column>();
+			for (final ColumnFile.Entry e : entries.values()) {
+				final Bitmap nulls = ColumnFile.readNulls(channel, e, size);
+				final ByteBuffer[] buffers = ColumnFile.mapSegments(channel, e, size, segmentRows);
+				switch (e.type) {
+				case ColumnFile.INT:
+					columns.put(e.name, new MappedColumns.MappedIntColumn(buffers, segmentRows, nulls, size, e.primitive));
+					break;
+				case ColumnFile.LONG:
+					columns.put(e.name, new MappedColumns.MappedLongColumn(buffers, segmentRows, nulls, size, e.primitive));
+					break;
+				case ColumnFile.DOUBLE:
+					columns.put(e.name, new MappedColumns.MappedDoubleColumn(buffers, segmentRows, nulls, size, e.primitive));
+					break;
+				case ColumnFile.STRING:
+					columns.put(e.name, new MappedColumns.MappedStringColumn(
+							ColumnFile.readDictionary(channel, e), buffers, segmentRows, nulls, size));
+					break;
+				default:
+					throw new IOException("Unknown column type.");
+				}
+			}
+			// マップされたバッファはチャネルを閉じた後も有効である
+			return new MappedTable(size, Collections.unmodifiableMap(columns));
+		} finally {
+			raf.close();
+		}
+	}
+	
+	/**
+	 * 列ファイルに含まれるプロパティの名前を返す.
+	 * @return プロパティの名前のリスト
+	 */
+	public List<String> getColumnNames() {
+		return Collections.unmodifiableList(new ArrayList<String>(columns.keySet()));
+	}
+	
+	@Override
+	public Map<String, Object> get(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return new Row(index);
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * 式にマッチする要素のリストを返す.
+	 * 返却されるリストの要素はこのテーブルにおける順序を保っており、式による再評価は不要である。
+	 * @param expr 式
+	 * @param vars バインド変数
+	 * @return 式にマッチする要素のリスト
+	 */
+	List<Map<String, Object>> select(final Expression expr, final Object... vars) {
+		return select((ForkJoinPool) null, expr, vars);
+	}
+	
+	/**
+	 * 式にマッチする要素を順に返す{@link Iterable}を返す.
+	 * 列の走査はモーセルごとに要素の取り出しに合わせて進むため、反復を途中で打ち切った場合は残りのモーセルは走査されない。
+	 * 返却される要素はこのテーブルにおける順序を保っており、式による再評価は不要である。
+	 * @param expr 式
+	 * @param vars バインド変数
+	 * @return 式にマッチする要素
+	 */
+	Iterable<Map<String, Object>> scan(final Expression expr, final Object... vars) {
+		return Columns.scan(this, Columns.prepare(provider, expr, vars));
+	}
+	
+	/**
+	 * 式にマッチする要素のリストを返す.
+	 * テーブルの行はモーセルに分割され、プールが指定された場合は複数のスレッドで走査される。
+	 * 返却されるリストの要素はこのテーブルにおける順序を保っており、式による再評価は不要である。
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}（逐次的に走査する場合は{@code null}）
+	 * @param expr 式
+	 * @param vars バインド変数
+	 * @return 式にマッチする要素のリスト
+	 */
+	List<Map<String, Object>> select(final ForkJoinPool pool, final Expression expr, final Object... vars) {
+		return new RowList<Map<String, Object>>(this, Columns.select(pool, size(), Columns.prepare(provider, expr, vars)), true);
+	}
+	
+	/**
+	 * 行の各列の値をプロパティとするビュー.
+	 */
+	private final class Row extends AbstractMap<String, Object> {
+		private final int row;
+		private Row(final int row) {
+			this.row = row;
+		}
+		@Override
+		public Object get(final Object key) {
+			final Columns.Column column = columns.get(key);
+			return column == null ? null : column.get(row);
+		}
+		@Override
+		public boolean containsKey(final Object key) {
+			return columns.containsKey(key);
+		}
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			final Map<String, Object> values = new LinkedHashMap<String, Object>();
+			for (final Map.Entry<String, Columns.Column> e : columns.entrySet()) {
+				values.put(e.getKey(), e.getValue().get(row));
+			}
+			return Collections.unmodifiableMap(values).entrySet();
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package com.m12i.minque;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 検索対象の行を固定長のモーセル（行の範囲）に分割して走査するスケジューラ.
+ * 
+ * <p>ワーカーは共有のカウンタから未処理のモーセルを1つずつ取り出して走査し、
+ * マッチした行をワーカーごとの結果バッファに書き込みます。
+ * すべてのモーセルの走査が終わった時点で、結果バッファは行番号の順にマージされます。
+ * モーセルは走査が速く終わったワーカーがその分だけ多く取り出すため、
+ * 要素ごとの評価コストに偏りがある場合や、ほかのクエリとスレッドを取り合う場合にも
+ * 特定のワーカーだけが遅れて全体の完了を待たせることがありません。</p>
+ * 
+ * <p>1回の走査で使用するワーカーの数は{@link ForkJoinPool}の並列度とモーセルの数のうち小さいほうで、
+ * 呼び出し元のスレッドもそのうちの1つとして走査に参加します。
+ * 呼び出し元のスレッドは未処理のモーセルがなくなるまで自ら走査を続けるため、
+ * プールのスレッドがほかのクエリで塞がっていても走査が止まることはありません。</p>
+ */
+final class Morsels {
+	/**
+	 * モーセルの行数（64の倍数）.
+	 */
+	static final int MORSEL_SIZE = 16384;
+	
+	private Morsels() {}
+	
+	/**
+	 * モーセルごとの走査処理.
+	 */
+	interface Task {
+		/**
+		 * モーセルを走査する.
+		 * 同じワーカーが処理するモーセルは行番号の昇順に渡される。
+		 * @param from モーセルの最初の行番号（{@link #MORSEL_SIZE}の倍数）
+		 * @param to モーセルの最後の行番号の次の行番号
+		 * @param buffer このワーカーの結果バッファ
+		 * @return 走査を続ける場合は{@code true}、すべてのワーカーの走査を打ち切る場合は{@code false}
+		 */
+		boolean scan(int from, int to, Buffer buffer);
+	}
+	
+	/**
+	 * ワーカーごとの結果バッファ.
+	 * マッチした行番号を昇順に保持する。
+	 */
+	static final class Buffer {
+		private int[] rows = Rows.EMPTY;
+		private int size = 0;
+		/**
+		 * 行番号を追加する.
+		 * @param row 行番号（すでに追加された行番号より大きい値）
+		 */
+		void add(final int row) {
+			if (size == rows.length) {
+				grow(size + 1);
+			}
+			rows[size ++] = row;
+		}
+		/**
+		 * ビット列の立っている位置の行番号を追加する.
+		 * @param words ビット列
+		 * @param from ビット列の最初のビットに対応する行番号（すでに追加された行番号より大きい値）
+		 */
+		void addAll(final long[] words, final int from) {
+			int count = 0;
+			for (final long word : words) {
+				count += Long.bitCount(word);
+			}
+			if (size + count > rows.length) {
+				grow(size + count);
+			}
+			for (int i = 0; i < words.length; i ++) {
+				long word = words[i];
+				while (word != 0) {
+					rows[size ++] = from + (i << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+			}
+		}
+		/**
+		 * 追加された行番号の数を返す.
+		 * @return 行番号の数
+		 */
+		int size() {
+			return size;
+		}
+		private void grow(final int minCapacity) {
+			final int[] grown = new int[Math.max(minCapacity, Math.max(16, rows.length * 2))];
+			System.arraycopy(rows, 0, grown, 0, size);
+			rows = grown;
+		}
+		private int[] toRows() {
+			if (size == rows.length) {
+				return rows;
+			}
+			final int[] result = new int[size];
+			System.arraycopy(rows, 0, result, 0, size);
+			return result;
+		}
+	}
+	
+	/**
+	 * 行をモーセルに分割して走査する.
+	 * プールが指定されていない場合やモーセルが1つしかない場合は、呼び出し元のスレッドだけで走査する。
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}（逐次的に走査する場合は{@code null}）
+	 * @param size 行数
+	 * @param task モーセルごとの走査処理
+	 * @return ワーカーごとの結果バッファ
+	 */
+	static Buffer[] run(final ForkJoinPool pool, final int size, final Task task) {
+		// Integer.MAX_VALUEに近い行数でもあふれないように切り上げる
+		final int morsels = size <= 0 ? 0 : (size - 1) / MORSEL_SIZE + 1;
+		final int workers = pool == null ? 1 : Math.max(1, Math.min(pool.getParallelism(), morsels));
+		final Buffer[] buffers = new Buffer[workers];
+		if (workers == 1) {
+			final Buffer buffer = new Buffer();
+			for (int m = 0; m < morsels; m ++) {
+				final int from = m * MORSEL_SIZE;
+				if (!task.scan(from, from + Math.min(MORSEL_SIZE, size - from), buffer)) {
+					break;
+				}
+			}
+			buffers[0] = buffer;
+			return buffers;
+		}
+		
+		final Scheduler scheduler = new Scheduler(size, morsels, task);
+		for (int w = 1; w < workers; w ++) {
+			final int worker = w;
+			try {
+				pool.execute(new Runnable() {
+					@Override
+					public void run() {
+						final Buffer buffer = new Buffer();
+						buffers[worker] = buffer;
+						scheduler.work(buffer);
+					}
+				});
+			} catch (final RejectedExecutionException e) {
+				// プールが受け付けない場合は残りのワーカーだけで走査する
+				break;
+			}
+		}
+		// 呼び出し元のスレッドも走査に参加し、未処理のモーセルがなくなってから走査中のモーセルの完了を待つ
+		final Buffer buffer = new Buffer();
+		buffers[0] = buffer;
+		scheduler.work(buffer);
+		boolean interrupted = false;
+		while (true) {
+			try {
+				scheduler.done.await();
+				break;
+			} catch (final InterruptedException e) {
+				// 走査中のワーカーが結果バッファに書き込んでいるため、完了までは待つ
+				interrupted = true;
+				scheduler.stop.set(true);
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		final Throwable failure = scheduler.failure.get();
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new RuntimeException(failure);
+		}
+		return buffers;
+	}
+	
+	/**
+	 * 行をモーセルに分割して走査し、結果バッファの行番号をマージして返す.
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}（逐次的に走査する場合は{@code null}）
+	 * @param size 行数
+	 * @param task モーセルごとの走査処理
+	 * @return マッチした行番号（重複のない昇順の配列）
+	 */
+	static int[] select(final ForkJoinPool pool, final int size, final Task task) {
+		return merge(run(pool, size, task));
+	}
+	
+	/**
+	 * ワーカーごとの結果バッファの行番号をマージする.
+	 * @param buffers 結果バッファ
+	 * @return 行番号（重複のない昇順の配列）
+	 */
+	static int[] merge(final Buffer[] buffers) {
+		int[] result = Rows.EMPTY;
+		for (final Buffer buffer : buffers) {
+			if (buffer != null && buffer.size > 0) {
+				result = result.length == 0 ? buffer.toRows() : Rows.union(result, buffer.toRows());
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * ワーカー間で共有される走査の状態.
+	 * モーセルはいずれかのワーカーによってちょうど1回ずつ取り出され、走査の完了とともに{@link #done}を減じる。
+	 * 走査が打ち切られた後に取り出されたモーセルは走査せずに完了として扱う。
+	 * 呼び出し元が待つのは走査中のモーセルの完了だけであり、まだ開始されていないワーカーの開始を待つことはない。
+	 */
+	private static final class Scheduler {
+		private final int size;
+		private final int morsels;
+		private final Task task;
+		private final AtomicInteger next = new AtomicInteger();
+		private final AtomicBoolean stop = new AtomicBoolean();
+		private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		private final CountDownLatch done;
+		private Scheduler(final int size, final int morsels, final Task task) {
+			this.size = size;
+			this.morsels = morsels;
+			this.task = task;
+			this.done = new CountDownLatch(morsels);
+		}
+		/**
+		 * 未処理のモーセルがなくなるまで取り出して走査する.
+		 * @param buffer このワーカーの結果バッファ
+		 */
+		private void work(final Buffer buffer) {
+			int m;
+			while ((m = next.getAndIncrement()) < morsels) {
+				try {
+					if (!stop.get()) {
+						final int from = m * MORSEL_SIZE;
+						if (!task.scan(from, from + Math.min(MORSEL_SIZE, size - from), buffer)) {
+							stop.set(true);
+						}
+					}
+				} catch (final Throwable e) {
+					failure.compareAndSet(null, e);
+					stop.set(true);
+				} finally {
+					done.countDown();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.m12i.minque;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * プロパティの文字列表現に含まれるN-gramごとに行番号の集合を保持する転置索引.
+ * 中間一致（{@code *=}）に対応します。
+ * 長さ{@link #N}までのすべてのN-gramを保持します。
+ * 右辺の文字列が{@link #N}文字以下であればそのN-gramの転置リストがそのまま候補となり、
+ * それより長ければ右辺に含まれるすべての{@link #N}-gramの転置リストの積集合が候補となります。
+ * 後者の候補には右辺を含まない行も含まれうるため、評価ノードによる再評価で取り除かれます。
+ */
+final class NgramIndex implements Index {
+	/**
+	 * 保持するN-gramの最大の長さ.
+	 */
+	static final int N = 3;
+	private final Map<String, int[]> postings;
+	
+	<E> NgramIndex(final List<E> rows, final PropertyReader<E> reader) {
+		final Map<String, Rows.Builder> builders = new HashMap<String, Rows.Builder>();
+		final int size = rows.size();
+		for (int i = 0; i < size; i ++) {
+			final Object value = reader.read(rows.get(i));
+			if (value == null) {
+				continue;
+			}
+			final String s = value.toString();
+			for (int n = 1; n <= N; n ++) {
+				for (int j = 0; j + n <= s.length(); j ++) {
+					final String gram = s.substring(j, j + n);
+					Rows.Builder b = builders.get(gram);
+					if (b == null) {
+						b = new Rows.Builder();
+						builders.put(gram, b);
+					}
+					// 同じ行に同じN-gramが複数回現れてもビルダーが重複を無視する
+					b.add(i);
+				}
+			}
+		}
+		this.postings = new HashMap<String, int[]>(builders.size() * 4 / 3 + 1);
+		for (final Map.Entry<String, Rows.Builder> e : builders.entrySet()) {
+			postings.put(e.getKey(), e.getValue().toArray());
+		}
+	}
+	
+	@Override
+	public int[] lookup(final Operator op, final Object expected) {
+		if (op != Operator.CONTAINS) {
+			return null;
+		}
+		final String s = expected.toString();
+		if (s.isEmpty()) {
+			// 空文字列は非nullのすべての行にマッチするため絞り込めない
+			return null;
+		} else if (s.length() <= N) {
+			return posting(s);
+		}
+		// 右辺に含まれるN-gramの転置リストを短い順に積集合をとる
+		final Set<String> grams = new LinkedHashSet<String>();
+		for (int j = 0; j + N <= s.length(); j ++) {
+			grams.add(s.substring(j, j + N));
+		}
+		final int[][] lists = new int[grams.size()][];
+		int k = 0;
+		for (final String gram : grams) {
+			lists[k ++] = posting(gram);
+		}
+		Arrays.sort(lists, new Comparator<int[]>() {
+			@Override
+			public int compare(final int[] a, final int[] b) {
+				return a.length - b.length;
+			}
+		});
+		int[] result = lists[0];
+		for (int i = 1; i < lists.length && result.length > 0; i ++) {
+			result = Rows.intersect(result, lists[i]);
+		}
+		return result;
+	}
+	
+	private int[] posting(final String gram) {
+		final int[] result = postings.get(gram);
+		return result == null ? Rows.EMPTY : result;
+	}
+}
@@ -0,0 +1,15 @@
+package com.m12i.minque;
+
+/**
+ * コンパイル済みの式を表わす評価ノード.
+ * 式オブジェクトとは異なり、演算子の種類にもとづく処理分岐はノードの生成時に済まされています。
+ * @param <E> 評価対象の要素型
+ */
+interface Node<E> {
+	/**
+	 * 要素を評価する.
+	 * @param elem 評価対象の要素
+	 * @return 評価結果
+	 */
+	boolean test(E elem);
+}
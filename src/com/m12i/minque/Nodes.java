@@ -0,0 +1,1107 @@
+package com.m12i.minque;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 式オブジェクトを評価ノードのツリーにコンパイルするためのユーティリティ.
+ * 演算子ごとに専用のノード・クラスを用意しておき、式の種類・演算子・値の型による処理分岐はコンパイル時に一度だけ行います。
+ * 要素の評価時にはルート・ノードの{@link Node#test(Object)}を呼び出すだけで済むようになります。
+ */
+final class Nodes {
+	private Nodes() {}
+
+	/**
+	 * 式オブジェクトを評価ノードにコンパイルする.
+	 * 比較式の右辺の値はノードに取り込まれる。
+	 * 右辺がプレースホルダである場合は、その添字に対応するバインド変数が取り込まれる。
+	 * @param expr 式
+	 * @param accessor アクセサ
+	 * @param vars バインド変数
+	 * @return 評価ノード
+	 * @throws IllegalArgumentException 未知の演算子が使用された場合
+	 */
+	static <E> Node<E> compile(final Expression expr, final Accessor<E> accessor, final Object... vars) {
+		final Operator op = expr.getOperator();
+		if (expr.isComparative()) {
+			// 比較式の場合
+			return comparative(reader(accessor, expr.getProperty()), op, expr.getValue(vars));
+
+		} else {
+			// 論理式の場合
+			if (op == Operator.NOT) {
+				return new Not<E>(compile(expr.getRight(), accessor, vars));
+			} else if (op == Operator.AND) {
+				return new And<E>(compile(expr.getLeft(), accessor, vars), compile(expr.getRight(), accessor, vars));
+			} else if (op == Operator.OR) {
+				return new Or<E>(compile(expr.getLeft(), accessor, vars), compile(expr.getRight(), accessor, vars));
+			} else {
+				throw new IllegalArgumentException("Unsupported logical expression.");
+			}
+		}
+	}
+
+	/**
+	 * 式オブジェクトを、プロパティごとに用意されたリーダーを使用する評価ノードにコンパイルする.
+	 * 複数の評価ノードの間でリーダーを共有する場合に使用する。
+	 * 同じ論理演算子で連なる比較式のうち、同じプロパティを先頭とするパスの比較式はまとめてコンパイルされ、
+	 * 先頭のプロパティは要素ごとに一度だけ読み取られる。
+	 * @param expr 式
+	 * @param readers 式に含まれるすべてのプロパティのリーダー
+	 * @param vars バインド変数
+	 * @return 評価ノード
+	 * @throws IllegalArgumentException 未知の演算子が使用された場合
+	 */
+	static <E> Node<E> compile(final Expression expr, final Map<String, ? extends PropertyReader<E>> readers, final Object... vars) {
+		final Operator op = expr.getOperator();
+		if (expr.isComparative()) {
+			return comparative(readers.get(expr.getProperty()), op, expr.getValue(vars));
+		} else if (op == Operator.NOT) {
+			return new Not<E>(compile(expr.getRight(), readers, vars));
+		} else if (op == Operator.AND || op == Operator.OR) {
+			// 同じ論理演算子で連なる被演算子を平坦化する
+			final List<Expression> operands = new ArrayList<Expression>();
+			flatten(expr, op, operands);
+			final List<Term<E>> terms = new ArrayList<Term<E>>(operands.size());
+			for (final Expression operand : operands) {
+				terms.add(operand.isComparative()
+						? new Term<E>(operand, readers.get(operand.getProperty()), null)
+						: new Term<E>(operand, null, compile(operand, readers, vars)));
+			}
+			return chain(op, terms, vars);
+		} else {
+			throw new IllegalArgumentException("Unsupported logical expression.");
+		}
+	}
+
+	private static void flatten(final Expression expr, final Operator op, final List<Expression> result) {
+		if (expr.isLogical() && expr.getOperator() == op) {
+			flatten(expr.getLeft(), op, result);
+			flatten(expr.getRight(), op, result);
+		} else {
+			result.add(expr);
+		}
+	}
+
+	/**
+	 * 同じ論理演算子で連なる被演算子から評価ノードを生成する.
+	 * 同じプロパティを先頭とするパスの比較式が2つ以上ある場合、それらは先頭のプロパティ値を対象とする
+	 * 1つの評価ノードにまとめられ、最初の比較式の位置で評価される。
+	 * @param op 論理演算子
+	 * @param terms 被演算子
+	 * @param vars バインド変数
+	 * @return 評価ノード
+	 */
+	private static <E> Node<E> chain(final Operator op, final List<Term<E>> terms, final Object[] vars) {
+		// パスの先頭のプロパティごとに比較式を数える
+		final Map<String, List<Term<E>>> groups = new HashMap<String, List<Term<E>>>();
+		for (final Term<E> term : terms) {
+			if (term.reader instanceof Paths.Path) {
+				final String name = ((Paths.Path<E>) term.reader).name;
+				List<Term<E>> group = groups.get(name);
+				if (group == null) {
+					group = new ArrayList<Term<E>>();
+					groups.put(name, group);
+				}
+				group.add(term);
+			}
+		}
+		Node<E> result = null;
+		for (final Term<E> term : terms) {
+			final Node<E> node;
+			final List<Term<E>> group = term.reader instanceof Paths.Path
+					? groups.get(((Paths.Path<E>) term.reader).name) : null;
+			if (group != null && group.size() > 1) {
+				if (group.get(0) != term) {
+					// まとめられた比較式は最初の比較式の位置で評価済み
+					continue;
+				}
+				// 残りのパスを読み取るリーダーで比較式をまとめてコンパイルする
+				final List<Term<Object>> rest = new ArrayList<Term<Object>>(group.size());
+				for (final Term<E> t : group) {
+					rest.add(new Term<Object>(t.expr, ((Paths.Path<E>) t.reader).rest, null));
+				}
+				node = new Scoped<E>(((Paths.Path<E>) term.reader).head, chain(op, rest, vars));
+			} else if (term.reader != null) {
+				node = comparative(term.reader, term.expr.getOperator(), term.expr.getValue(vars));
+			} else {
+				node = term.node;
+			}
+			result = result == null ? node : op == Operator.AND ? new And<E>(result, node) : new Or<E>(result, node);
+		}
+		return result;
+	}
+
+	/**
+	 * 論理演算子で連なる被演算子.
+	 * 比較式の場合はそのプロパティのリーダーを、それ以外の場合はコンパイル済みの評価ノードを保持する。
+	 */
+	private static final class Term<E> {
+		private final Expression expr;
+		private final PropertyReader<E> reader;
+		private final Node<E> node;
+		private Term(final Expression expr, final PropertyReader<E> reader, final Node<E> node) {
+			this.expr = expr;
+			this.reader = reader;
+			this.node = node;
+		}
+	}
+
+	/**
+	 * 比較式の評価ノードを生成する.
+	 * @param reader リーダー
+	 * @param op 演算子
+	 * @param expected 期待される値（右辺）
+	 * @return 評価ノード
+	 * @throws IllegalArgumentException 未知の演算子が使用された場合
+	 */
+	static <E> Node<E> comparative(final PropertyReader<E> reader, final Operator op, final Object expected) {
+		// 演算子の種類と右辺の値の型に応じたノードを生成
+		switch (op) {
+		case IS_NULL:
+			return new IsNull<E>(reader);
+		case IS_NOT_NULL:
+			return new IsNotNull<E>(reader);
+		case EQUALS:
+			return expected instanceof String
+					? new EqualsString<E>(reader, (String) expected)
+					: new EqualsObject<E>(reader, expected);
+		case NOT_EQUALS:
+			return expected instanceof String
+					? new NotEqualsString<E>(reader, (String) expected)
+					: new NotEqualsObject<E>(reader, expected);
+		case STARTS_WITH:
+			return new StartsWith<E>(reader, expected.toString());
+		case ENDS_WITH:
+			return new EndsWith<E>(reader, expected.toString());
+		case CONTAINS:
+			return new Contains<E>(reader, expected.toString());
+		case LESS_THAN:
+			if (reader instanceof NumericReader) {
+				return numeric((NumericReader<E>) reader, op, expected);
+			}
+			return new LessThan<E>(reader, expected);
+		case LESS_THAN_EQUAL:
+			if (reader instanceof NumericReader) {
+				return numeric((NumericReader<E>) reader, op, expected);
+			}
+			return new LessThanEqual<E>(reader, expected);
+		case GREATER_THAN:
+			if (reader instanceof NumericReader) {
+				return numeric((NumericReader<E>) reader, op, expected);
+			}
+			return new GreaterThan<E>(reader, expected);
+		case GREATER_THAN_EQUAL:
+			if (reader instanceof NumericReader) {
+				return numeric((NumericReader<E>) reader, op, expected);
+			}
+			return new GreaterThanEqual<E>(reader, expected);
+		default:
+			throw new IllegalArgumentException("Unsupported comparative expression.");
+		}
+	}
+
+	/**
+	 * プロパティ値そのものを評価対象とする比較式の評価ノードを生成する.
+	 * 要素を経由せずに取得済みの値を検査する場合に使用する。
+	 * @param op 演算子
+	 * @param expected 期待される値（右辺）
+	 * @return 評価ノード
+	 * @throws IllegalArgumentException 未知の演算子が使用された場合
+	 */
+	static Node<Object> comparative(final Operator op, final Object expected) {
+		return comparative(IDENTITY, op, expected);
+	}
+
+	/**
+	 * 要素そのものをプロパティ値として返すリーダー.
+	 */
+	private static final PropertyReader<Object> IDENTITY = new PropertyReader<Object>() {
+		@Override
+		public Object read(final Object elem) {
+			return elem;
+		}
+	};
+
+	/**
+	 * プリミティブ値同士で大小比較を行うノードを生成する.
+	 * 右辺の値はここで一度だけ数値に変換される。
+	 * リーダーが{@link NumericReader#boxedType()}を返す場合、右辺の値は{@link #coerce(Class, Object)}でそのクラスに変換され、
+	 * 整数は{@code long}として、小数は{@link Double#compare(double, double)}の順序で比較する。
+	 * これはプロパティ値をボクシングして比較する場合と同じ結果となる。
+	 * そうでない場合、右辺の値は{@link #numericLiteral(Object)}で変換され、
+	 * プロパティと右辺の値がともに整数であれば{@code long}として、そうでなければ{@code double}としてJavaの比較演算子で比較する。
+	 * 右辺の値を変換できない場合、ノードは常に{@code false}を返す。
+	 * リーダーが値を読み取れなかった場合、ノードはプロパティ値が{@code null}の場合と同じく{@code false}を返す。
+	 * @param reader リーダー
+	 * @param op 演算子
+	 * @param expected 期待される値（右辺）
+	 * @return 評価ノード
+	 */
+	private static <E> Node<E> numeric(final NumericReader<E> reader, final Operator op, final Object expected) {
+		final boolean total = reader.boxedType() != null;
+		final Object lit = total ? coerce(reader.boxedType(), expected) : numericLiteral(expected);
+		if (lit == null) {
+			return new Constant<E>(false);
+		}
+		final Number n = (Number) lit;
+		if (reader.isIntegral() && (total || n instanceof Long)) {
+			final long l = n.longValue();
+			switch (op) {
+			case LESS_THAN:
+				return new LessThanLong<E>(reader, l);
+			case LESS_THAN_EQUAL:
+				return new LessThanEqualLong<E>(reader, l);
+			case GREATER_THAN:
+				return new GreaterThanLong<E>(reader, l);
+			default:
+				return new GreaterThanEqualLong<E>(reader, l);
+			}
+		} else {
+			final double d = n.doubleValue();
+			switch (op) {
+			case LESS_THAN:
+				return new LessThanDouble<E>(reader, d, total);
+			case LESS_THAN_EQUAL:
+				return new LessThanEqualDouble<E>(reader, d, total);
+			case GREATER_THAN:
+				return new GreaterThanDouble<E>(reader, d, total);
+			default:
+				return new GreaterThanEqualDouble<E>(reader, d, total);
+			}
+		}
+	}
+
+	/**
+	 * リーダーのプロパティが、右辺の値を{@link #numericLiteral(Object)}で変換した数値同士として大小比較されるかどうかを返す.
+	 * {@link PrimitiveAccessor}によるプロパティが該当し、ボクシングされた値と同じ規則で比較されるgetterメソッドなどのプロパティは該当しない。
+	 * 列や索引は、該当するプロパティについて評価ノードと同じ規則で比較する必要がある。
+	 * @param reader リーダー
+	 * @return 数値同士として比較される場合は{@code true}
+	 */
+	static boolean comparesAsNumber(final PropertyReader<?> reader) {
+		return reader instanceof NumericReader && ((NumericReader<?>) reader).boxedType() == null;
+	}
+
+	/**
+	 * 右辺の値を数値に変換する.
+	 * 整数として表現できる値は{@link Long}に、それ以外の値は{@link Double}に変換される。
+	 * 変換に失敗した場合は{@code null}を返す。
+	 * @param expected 期待される値（右辺）
+	 * @return 変換結果
+	 */
+	static Number numericLiteral(final Object expected) {
+		if (expected instanceof Long || expected instanceof Integer
+				|| expected instanceof Short || expected instanceof Byte) {
+			return Long.valueOf(((Number) expected).longValue());
+		} else if (expected instanceof Double || expected instanceof Float) {
+			return Double.valueOf(((Number) expected).doubleValue());
+		} else if (expected instanceof BigInteger) {
+			final BigInteger i = (BigInteger) expected;
+			return i.bitLength() < 64 ? (Number) Long.valueOf(i.longValue()) : (Number) Double.valueOf(i.doubleValue());
+		} else if (expected instanceof BigDecimal) {
+			final BigDecimal d = (BigDecimal) expected;
+			try {
+				return Long.valueOf(d.longValueExact());
+			} catch (final ArithmeticException e) {
+				return Double.valueOf(d.doubleValue());
+			}
+		}
+		final String s = expected.toString();
+		try {
+			return Long.valueOf(s);
+		} catch (final NumberFormatException e0) {
+			try {
+				return Double.valueOf(s);
+			} catch (final NumberFormatException e1) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * プロパティを読み取るためのリーダーを返す.
+	 * アクセサが{@link PropertyResolver}を実装している場合や、
+	 * getterメソッドの事前解決やプリミティブ値の取得に対応している場合はそれを利用する。
+	 * {@link BeanAccessor}に対してプロパティ名がパスである場合は、パスの先頭のプロパティをアクセサを通じて読み取るリーダーを返す。
+	 * それ以外のアクセサには、{@code .}を含むプロパティ名もそのまま渡される。
+	 * @param accessor アクセサ
+	 * @param prop プロパティ名
+	 * @return リーダー
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> PropertyReader<E> reader(final Accessor<E> accessor, final String prop) {
+		if (accessor instanceof PropertyResolver) {
+			return ((PropertyResolver<E>) accessor).resolve(prop);
+		} else if (accessor instanceof BeanAccessor) {
+			return Paths.isPath(prop) ? Paths.reader(prop, resolver(accessor), Paths.BEANS)
+					: ((BeanAccessor<E>) accessor).reader(prop);
+		} else if (accessor instanceof PrimitiveAccessor) {
+			final PrimitiveAccessor<E> pa = (PrimitiveAccessor<E>) accessor;
+			final Class<?> type = pa.typeOf(prop);
+			if (type == int.class) {
+				return new IntAccessorReader<E>(pa, prop);
+			} else if (type == long.class) {
+				return new LongAccessorReader<E>(pa, prop);
+			} else if (type == double.class) {
+				return new DoubleAccessorReader<E>(pa, prop);
+			}
+		}
+		return new AccessorReader<E>(accessor, prop);
+	}
+
+	/**
+	 * アクセサをリゾルバに適合させる.
+	 * 返却されるリゾルバは{@link #reader(Accessor, String)}によってリーダーを生成する。
+	 * @param accessor アクセサ
+	 * @return リゾルバ
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> PropertyResolver<E> resolver(final Accessor<E> accessor) {
+		if (accessor instanceof PropertyResolver) {
+			return (PropertyResolver<E>) accessor;
+		}
+		return new PropertyResolver<E>() {
+			@Override
+			public PropertyReader<E> resolve(final String prop) {
+				return reader(accessor, prop);
+			}
+		};
+	}
+
+	/**
+	 * 式に含まれるすべてのプロパティをリーダーに解決する.
+	 * 同じプロパティが式の中に複数回現れる場合も、解決は一度だけ行われる。
+	 * @param expr 式
+	 * @param resolver リゾルバ
+	 * @return プロパティ名とリーダーの対応
+	 */
+	static <E> Map<String, PropertyReader<E>> resolve(final Expression expr, final PropertyResolver<E> resolver) {
+		final Map<String, PropertyReader<E>> result = new HashMap<String, PropertyReader<E>>();
+		resolve(expr, resolver, result);
+		return result;
+	}
+
+	private static <E> void resolve(final Expression expr, final PropertyResolver<E> resolver,
+			final Map<String, PropertyReader<E>> result) {
+		if (expr.isComparative()) {
+			final String prop = expr.getProperty();
+			if (!result.containsKey(prop)) {
+				final PropertyReader<E> reader = resolver.resolve(prop);
+				result.put(prop, reader == null ? Nodes.<E>nullReader() : reader);
+			}
+			return;
+		}
+		if (expr.hasLeft()) {
+			resolve(expr.getLeft(), resolver, result);
+		}
+		if (expr.hasRight()) {
+			resolve(expr.getRight(), resolver, result);
+		}
+	}
+
+	/**
+	 * 常に{@code null}を返すリーダーを返す.
+	 * @return リーダー
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> PropertyReader<E> nullReader() {
+		return (PropertyReader<E>) NULL;
+	}
+
+	/**
+	 * 常に{@code null}を返すリーダー.
+	 */
+	private static final PropertyReader<Object> NULL = new PropertyReader<Object>() {
+		@Override
+		public Object read(final Object elem) {
+			return null;
+		}
+	};
+
+	/**
+	 * アクセサを通じてプロパティを読み取るリーダー.
+	 */
+	static final class AccessorReader<E> implements PropertyReader<E> {
+		private final Accessor<E> accessor;
+		private final String prop;
+		AccessorReader(final Accessor<E> accessor, final String prop) {
+			this.accessor = accessor;
+			this.prop = prop;
+		}
+		@Override
+		public Object read(final E elem) {
+			return accessor.accsess(elem, prop);
+		}
+	}
+
+	/**
+	 * {@link PrimitiveAccessor#getInt(Object, String)}を通じてプロパティを読み取るリーダー.
+	 */
+	static final class IntAccessorReader<E> implements NumericReader<E> {
+		private final PrimitiveAccessor<E> accessor;
+		private final String prop;
+		IntAccessorReader(final PrimitiveAccessor<E> accessor, final String prop) {
+			this.accessor = accessor;
+			this.prop = prop;
+		}
+		@Override
+		public Object read(final E elem) {
+			return accessor.accsess(elem, prop);
+		}
+		@Override
+		public boolean isIntegral() {
+			return true;
+		}
+		@Override
+		public Class<?> boxedType() {
+			return null;
+		}
+		@Override
+		public long readLong(final E elem) {
+			return accessor.getInt(elem, prop);
+		}
+		@Override
+		public double readDouble(final E elem) {
+			return accessor.getInt(elem, prop);
+		}
+	}
+
+	/**
+	 * {@link PrimitiveAccessor#getLong(Object, String)}を通じてプロパティを読み取るリーダー.
+	 */
+	static final class LongAccessorReader<E> implements NumericReader<E> {
+		private final PrimitiveAccessor<E> accessor;
+		private final String prop;
+		LongAccessorReader(final PrimitiveAccessor<E> accessor, final String prop) {
+			this.accessor = accessor;
+			this.prop = prop;
+		}
+		@Override
+		public Object read(final E elem) {
+			return accessor.accsess(elem, prop);
+		}
+		@Override
+		public boolean isIntegral() {
+			return true;
+		}
+		@Override
+		public Class<?> boxedType() {
+			return null;
+		}
+		@Override
+		public long readLong(final E elem) {
+			return accessor.getLong(elem, prop);
+		}
+		@Override
+		public double readDouble(final E elem) {
+			return accessor.getLong(elem, prop);
+		}
+	}
+
+	/**
+	 * {@link PrimitiveAccessor#getDouble(Object, String)}を通じてプロパティを読み取るリーダー.
+	 */
+	static final class DoubleAccessorReader<E> implements NumericReader<E> {
+		private final PrimitiveAccessor<E> accessor;
+		private final String prop;
+		DoubleAccessorReader(final PrimitiveAccessor<E> accessor, final String prop) {
+			this.accessor = accessor;
+			this.prop = prop;
+		}
+		@Override
+		public Object read(final E elem) {
+			return accessor.accsess(elem, prop);
+		}
+		@Override
+		public boolean isIntegral() {
+			return false;
+		}
+		@Override
+		public Class<?> boxedType() {
+			return null;
+		}
+		@Override
+		public long readLong(final E elem) {
+			return (long) accessor.getDouble(elem, prop);
+		}
+		@Override
+		public double readDouble(final E elem) {
+			return accessor.getDouble(elem, prop);
+		}
+	}
+
+	/**
+	 * 要素からプロパティ値を読み取り、その値を対象に評価を行うノード.
+	 * 同じプロパティを先頭とするパスの比較式をまとめて評価するために使用する。
+	 * プロパティ値が{@code null}の場合、評価は{@code null}を対象に行われる。
+	 */
+	static final class Scoped<E> implements Node<E> {
+		private final PropertyReader<E> reader;
+		private final Node<Object> operand;
+		Scoped(final PropertyReader<E> reader, final Node<Object> operand) {
+			this.reader = reader;
+			this.operand = operand;
+		}
+		@Override
+		public boolean test(final E elem) {
+			return operand.test(reader.read(elem));
+		}
+	}
+
+	/**
+	 * 要素によらず常に同じ結果を返すノード.
+	 */
+	static final class Constant<E> implements Node<E> {
+		private final boolean value;
+		Constant(final boolean value) {
+			this.value = value;
+		}
+		@Override
+		public boolean test(final E elem) {
+			return value;
+		}
+	}
+
+	/**
+	 * 論理否定のノード.
+	 */
+	static final class Not<E> implements Node<E> {
+		private final Node<E> operand;
+		Not(final Node<E> operand) {
+			this.operand = operand;
+		}
+		@Override
+		public boolean test(final E elem) {
+			return ! operand.test(elem);
+		}
+	}
+
+	/**
+	 * 論理積のノード.
+	 * 左辺が{@code false}の場合、右辺は評価されない。
+	 */
+	static final class And<E> implements Node<E> {
+		private final Node<E> left;
+		private final Node<E> right;
+		And(final Node<E> left, final Node<E> right) {
+			this.left = left;
+			this.right = right;
+		}
+		@Override
+		public boolean test(final E elem) {
+			return left.test(elem) && right.test(elem);
+		}
+	}
+
+	/**
+	 * 論理和のノード.
+	 * 左辺が{@code true}の場合、右辺は評価されない。
+	 */
+	static final class Or<E> implements Node<E> {
+		private final Node<E> left;
+		private final Node<E> right;
+		Or(final Node<E> left, final Node<E> right) {
+			this.left = left;
+			this.right = right;
+		}
+		@Override
+		public boolean test(final E elem) {
+			return left.test(elem) || right.test(elem);
+		}
+	}
+
+	/**
+	 * 比較式のノードの基底クラス.
+	 * リーダーを通じて要素からプロパティ値を取得し、その値の検査をサブクラスに委ねる。
+	 */
+	abstract static class Comparative<E> implements Node<E> {
+		private final PropertyReader<E> reader;
+		Comparative(final PropertyReader<E> reader) {
+			this.reader = reader;
+		}
+		@Override
+		public final boolean test(final E elem) {
+			return check(reader.read(elem));
+		}
+		/**
+		 * プロパティ値を検査する.
+		 * @param actual 実際の値（左辺）
+		 * @return 検査結果
+		 */
+		abstract boolean check(Object actual);
+	}
+
+	/**
+	 * {@code is null}のノード.
+	 */
+	static final class IsNull<E> extends Comparative<E> {
+		IsNull(final PropertyReader<E> reader) {
+			super(reader);
+		}
+		@Override
+		boolean check(final Object actual) {
+			return actual == null;
+		}
+	}
+
+	/**
+	 * {@code is not null}のノード.
+	 */
+	static final class IsNotNull<E> extends Comparative<E> {
+		IsNotNull(final PropertyReader<E> reader) {
+			super(reader);
+		}
+		@Override
+		boolean check(final Object actual) {
+			return actual != null;
+		}
+	}
+
+	/**
+	 * 右辺が文字列である{@code ==}のノード.
+	 * 実際の値は{@link Object#toString()}で文字列に変換された上で比較される。
+	 */
+	static final class EqualsString<E> extends Comparative<E> {
+		private final String expected;
+		EqualsString(final PropertyReader<E> reader, final String expected) {
+			super(reader);
+			this.expected = expected;
+		}
+		@Override
+		boolean check(final Object actual) {
+			return actual != null && actual.toString().equals(expected);
+		}
+	}
+
+	/**
+	 * 右辺が文字列以外の値である{@code ==}のノード.
+	 */
+	static final class EqualsObject<E> extends Comparative<E> {
+		private final Object expected;
+		EqualsObject(final PropertyReader<E> reader, final Object expected) {
+			super(reader);
+			this.expected = expected;
+		}
+		@Override
+		boolean check(final Object actual) {
+			return actual != null && actual.equals(expected);
+		}
+	}
+
+	/**
+	 * 右辺が文字列である{@code !=}のノード.
+	 * 実際の値が{@code null}の場合は{@code false}となる。
+	 */
+	static final class NotEqualsString<E> extends Comparative<E> {
+		private final String expected;
+		NotEqualsString(final PropertyReader<E> reader, final String expected) {
+			super(reader);
+			this.expected = expected;
+		}
+		@Override
+		boolean check(final Object actual) {
+			return actual != null && ! actual.toString().equals(expected);
+		}
+	}
+
+	/**
+	 * 右辺が文字列以外の値である{@code !=}のノード.
+	 * 実際の値が{@code null}の場合は{@code false}となる。
+	 */
+	static final class NotEqualsObject<E> extends Comparative<E> {
+		private final Object expected;
+		NotEqualsObject(final PropertyReader<E> reader, final Object expected) {
+			super(reader);
+			this.expected = expected;
+		}
+		@Override
+		boolean check(final Object actual) {
+			return actual != null && ! actual.equals(expected);
+		}
+	}
+
+	/**
+	 * {@code ^=}のノード.
+	 */
+	static final class StartsWith<E> extends Comparative<E> {
+		private final String expected;
+		StartsWith(final PropertyReader<E> reader, final String expected) {
+			super(reader);
+			this.expected = expected;
+		}
+		@Override
+		boolean check(final Object actual) {
+			return actual != null && actual.toString().startsWith(expected);
+		}
+	}
+
+	/**
+	 * {@code $=}のノード.
+	 */
+	static final class EndsWith<E> extends Comparative<E> {
+		private final String expected;
+		EndsWith(final PropertyReader<E> reader, final String expected) {
+			super(reader);
+			this.expected = expected;
+		}
+		@Override
+		boolean check(final Object actual) {
+			return actual != null && actual.toString().endsWith(expected);
+		}
+	}
+
+	/**
+	 * {@code *=}のノード.
+	 */
+	static final class Contains<E> extends Comparative<E> {
+		private final String expected;
+		Contains(final PropertyReader<E> reader, final String expected) {
+			super(reader);
+			this.expected = expected;
+		}
+		@Override
+		boolean check(final Object actual) {
+			return actual != null && actual.toString().contains(expected);
+		}
+	}
+
+	/**
+	 * 大小比較のノードの基底クラス.
+	 * 評価には{@link Comparable#compareTo(Object)}を使用する。
+	 * 右辺の値は実際の値（左辺）の型に合わせて変換されるが、その変換結果は型ごとにキャッシュされ、
+	 * 同じ型の値が続く限り再利用される。
+	 * 評価に際して{@link ClassCastException}が発生した場合は{@code false}とみなす。
+	 */
+	abstract static class Ordered<E> extends Comparative<E> {
+		private final Object expected;
+		// 直近に変換した右辺の値（複数のスレッドから参照されうるため不変オブジェクトを丸ごと差し替える）
+		private TypedLiteral literal = TypedLiteral.EMPTY;
+		Ordered(final PropertyReader<E> reader, final Object expected) {
+			super(reader);
+			this.expected = expected;
+		}
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		final boolean check(final Object actual) {
+			if (actual == null) {
+				return false;
+			}
+			TypedLiteral lit = literal;
+			if (lit.type != actual.getClass()) {
+				// キャッシュされている変換結果の型が一致しない場合は変換をやり直す
+				lit = new TypedLiteral(actual.getClass(), coerce(actual.getClass(), expected));
+				literal = lit;
+			}
+			if (lit.value == null) {
+				return false;
+			}
+			try {
+				return accept(((Comparable) actual).compareTo(lit.value));
+			} catch (final ClassCastException e) {
+				return false;
+			}
+		}
+		/**
+		 * 比較結果が演算子の条件を満たすかどうかを返す.
+		 * @param comparison {@link Comparable#compareTo(Object)}の戻り値
+		 * @return 条件を満たす場合は{@code true}
+		 */
+		abstract boolean accept(int comparison);
+	}
+
+	/**
+	 * {@code <}のノード（{@code long}値同士の比較）.
+	 */
+	static final class LessThanLong<E> implements Node<E> {
+		private final NumericReader<E> reader;
+		private final long expected;
+		LessThanLong(final NumericReader<E> reader, final long expected) {
+			this.reader = reader;
+			this.expected = expected;
+		}
+		@Override
+		public boolean test(final E elem) {
+			try {
+				return reader.readLong(elem) < expected;
+			} catch (final NumericReader.Unreadable e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * {@code <}のノード（{@code double}値同士の比較）.
+	 * {@code total}が{@code true}の場合は{@link Double#compare(double, double)}の順序で比較する。
+	 */
+	static final class LessThanDouble<E> implements Node<E> {
+		private final NumericReader<E> reader;
+		private final double expected;
+		private final boolean total;
+		LessThanDouble(final NumericReader<E> reader, final double expected, final boolean total) {
+			this.reader = reader;
+			this.expected = expected;
+			this.total = total;
+		}
+		@Override
+		public boolean test(final E elem) {
+			try {
+				final double value = reader.readDouble(elem);
+				return total ? Double.compare(value, expected) < 0 : value < expected;
+			} catch (final NumericReader.Unreadable e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * {@code <=}のノード（{@code long}値同士の比較）.
+	 */
+	static final class LessThanEqualLong<E> implements Node<E> {
+		private final NumericReader<E> reader;
+		private final long expected;
+		LessThanEqualLong(final NumericReader<E> reader, final long expected) {
+			this.reader = reader;
+			this.expected = expected;
+		}
+		@Override
+		public boolean test(final E elem) {
+			try {
+				return reader.readLong(elem) <= expected;
+			} catch (final NumericReader.Unreadable e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * {@code <=}のノード（{@code double}値同士の比較）.
+	 * {@code total}が{@code true}の場合は{@link Double#compare(double, double)}の順序で比較する。
+	 */
+	static final class LessThanEqualDouble<E> implements Node<E> {
+		private final NumericReader<E> reader;
+		private final double expected;
+		private final boolean total;
+		LessThanEqualDouble(final NumericReader<E> reader, final double expected, final boolean total) {
+			this.reader = reader;
+			this.expected = expected;
+			this.total = total;
+		}
+		@Override
+		public boolean test(final E elem) {
+			try {
+				final double value = reader.readDouble(elem);
+				return total ? Double.compare(value, expected) <= 0 : value <= expected;
+			} catch (final NumericReader.Unreadable e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * {@code >}のノード（{@code long}値同士の比較）.
+	 */
+	static final class GreaterThanLong<E> implements Node<E> {
+		private final NumericReader<E> reader;
+		private final long expected;
+		GreaterThanLong(final NumericReader<E> reader, final long expected) {
+			this.reader = reader;
+			this.expected = expected;
+		}
+		@Override
+		public boolean test(final E elem) {
+			try {
+				return reader.readLong(elem) > expected;
+			} catch (final NumericReader.Unreadable e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * {@code >}のノード（{@code double}値同士の比較）.
+	 * {@code total}が{@code true}の場合は{@link Double#compare(double, double)}の順序で比較する。
+	 */
+	static final class GreaterThanDouble<E> implements Node<E> {
+		private final NumericReader<E> reader;
+		private final double expected;
+		private final boolean total;
+		GreaterThanDouble(final NumericReader<E> reader, final double expected, final boolean total) {
+			this.reader = reader;
+			this.expected = expected;
+			this.total = total;
+		}
+		@Override
+		public boolean test(final E elem) {
+			try {
+				final double value = reader.readDouble(elem);
+				return total ? Double.compare(value, expected) > 0 : value > expected;
+			} catch (final NumericReader.Unreadable e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * {@code >=}のノード（{@code long}値同士の比較）.
+	 */
+	static final class GreaterThanEqualLong<E> implements Node<E> {
+		private final NumericReader<E> reader;
+		private final long expected;
+		GreaterThanEqualLong(final NumericReader<E> reader, final long expected) {
+			this.reader = reader;
+			this.expected = expected;
+		}
+		@Override
+		public boolean test(final E elem) {
+			try {
+				return reader.readLong(elem) >= expected;
+			} catch (final NumericReader.Unreadable e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * {@code >=}のノード（{@code double}値同士の比較）.
+	 * {@code total}が{@code true}の場合は{@link Double#compare(double, double)}の順序で比較する。
+	 */
+	static final class GreaterThanEqualDouble<E> implements Node<E> {
+		private final NumericReader<E> reader;
+		private final double expected;
+		private final boolean total;
+		GreaterThanEqualDouble(final NumericReader<E> reader, final double expected, final boolean total) {
+			this.reader = reader;
+			this.expected = expected;
+			this.total = total;
+		}
+		@Override
+		public boolean test(final E elem) {
+			try {
+				final double value = reader.readDouble(elem);
+				return total ? Double.compare(value, expected) >= 0 : value >= expected;
+			} catch (final NumericReader.Unreadable e) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * 実際の値（左辺）の型に合わせて変換された右辺の値.
+	 */
+	@SuppressWarnings("rawtypes")
+	static final class TypedLiteral {
+		static final TypedLiteral EMPTY = new TypedLiteral(null, null);
+		/**
+		 * 変換の基準となった実際の値（左辺）の型.
+		 */
+		final Class<?> type;
+		/**
+		 * 変換結果（変換できなかった場合は{@code null}）.
+		 */
+		final Comparable value;
+		TypedLiteral(final Class<?> type, final Comparable value) {
+			this.type = type;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * {@code <}のノード.
+	 */
+	static final class LessThan<E> extends Ordered<E> {
+		LessThan(final PropertyReader<E> reader, final Object expected) {
+			super(reader, expected);
+		}
+		@Override
+		boolean accept(final int comparison) {
+			return comparison < 0;
+		}
+	}
+
+	/**
+	 * {@code <=}のノード.
+	 */
+	static final class LessThanEqual<E> extends Ordered<E> {
+		LessThanEqual(final PropertyReader<E> reader, final Object expected) {
+			super(reader, expected);
+		}
+		@Override
+		boolean accept(final int comparison) {
+			return comparison <= 0;
+		}
+	}
+
+	/**
+	 * {@code >}のノード.
+	 */
+	static final class GreaterThan<E> extends Ordered<E> {
+		GreaterThan(final PropertyReader<E> reader, final Object expected) {
+			super(reader, expected);
+		}
+		@Override
+		boolean accept(final int comparison) {
+			return comparison > 0;
+		}
+	}
+
+	/**
+	 * {@code >=}のノード.
+	 */
+	static final class GreaterThanEqual<E> extends Ordered<E> {
+		GreaterThanEqual(final PropertyReader<E> reader, final Object expected) {
+			super(reader, expected);
+		}
+		@Override
+		boolean accept(final int comparison) {
+			return comparison >= 0;
+		}
+	}
+
+	/**
+	 * 右辺の値を実際の値（左辺）の型に合わせて{@link Comparable}に変換する.
+	 * 左辺の型が{@link Number}のサブクラス（{@link BigDecimal}・{@link BigInteger}・
+	 * {@link Byte}・{@link Double}・{@link Float}・
+	 * {@link Integer}・{@link Long}・{@link Short}）である場合、
+	 * 右辺の値もそれらの値に変換される。
+	 * 左辺の型が{@link String}である場合、右辺の値は{@link Object#toString()}で文字列に変換される。
+	 * 変換に失敗した場合は{@code null}を返す。
+	 * @param type 実際の値（左辺）の型
+	 * @param expected 期待される値（右辺）
+	 * @return 変換結果
+	 */
+	@SuppressWarnings("rawtypes")
+	static Comparable coerce(final Class<?> type, final Object expected) {
+		try {
+			if (type == Integer.class) {
+				return expected instanceof Integer ? (Comparable)expected : Integer.valueOf(expected.toString());
+			} else if (type == Long.class) {
+				return expected instanceof Long ? (Comparable)expected : Long.valueOf(expected.toString());
+			} else if (type == Float.class) {
+				return expected instanceof Float ? (Comparable)expected : Float.valueOf(expected.toString());
+			} else if (type == Double.class) {
+				return expected instanceof Double ? (Comparable)expected : Double.valueOf(expected.toString());
+			} else if (type == Short.class) {
+				return expected instanceof Short ? (Comparable)expected : Short.valueOf(expected.toString());
+			} else if (type == Byte.class) {
+				return expected instanceof Byte ? (Comparable)expected : Byte.valueOf(expected.toString());
+			} else if (BigDecimal.class.isAssignableFrom(type)) {
+				return expected instanceof BigDecimal ? (Comparable)expected : new BigDecimal(expected.toString());
+			} else if (BigInteger.class.isAssignableFrom(type)) {
+				return expected instanceof BigInteger ? (Comparable)expected : new BigInteger(expected.toString());
+			} else if (type == String.class) {
+				return expected.toString();
+			} else if (Comparable.class.isAssignableFrom(type)
+					&& expected instanceof Comparable) {
+				return (Comparable)expected;
+			}
+		} catch (final NumberFormatException e) {
+			// Do nothing.
+		}
+		return null;
+	}
+}
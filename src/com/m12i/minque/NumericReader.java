@@ -0,0 +1,53 @@
+package com.m12i.minque;
+
+/**
+ * 数値型のプロパティをプリミティブ値として読み取るためのリーダー.
+ * @param <E> 対象の要素の型
+ */
+interface NumericReader<E> extends PropertyReader<E> {
+	/**
+	 * プロパティが整数型であるかどうかを返す.
+	 * 整数型の場合、{@link #readLong(Object)}は値を損なわずに返します。
+	 * @return 整数型の場合は{@code true}
+	 */
+	boolean isIntegral();
+	/**
+	 * 大小比較の右辺の値を変換する基準となる、ボクシングされた値のクラスを返す.
+	 * {@code null}でない場合、右辺の値は{@link Nodes#coerce(Class, Object)}によってこのクラスに変換され、
+	 * 変換できない右辺との比較は成立せず、小数は{@link Double#compare(double, double)}の順序で比較されます。
+	 * すなわち、プロパティ値をボクシングしたうえで比較する場合と同じ結果になります。
+	 * {@code null}の場合、右辺の値は{@link Nodes#numericLiteral(Object)}によって数値に変換され、Javaの比較演算子で比較されます。
+	 * @return クラス（数値同士として比較する場合は{@code null}）
+	 */
+	Class<?> boxedType();
+	/**
+	 * 要素からプロパティを{@code long}値として読み取って返す.
+	 * @param elem 対象の要素
+	 * @return 読み取り結果
+	 * @throws Unreadable 値を読み取れなかった場合（{@link #read(Object)}は{@code null}を返す）
+	 */
+	long readLong(E elem);
+	/**
+	 * 要素からプロパティを{@code double}値として読み取って返す.
+	 * @param elem 対象の要素
+	 * @return 読み取り結果
+	 * @throws Unreadable 値を読み取れなかった場合（{@link #read(Object)}は{@code null}を返す）
+	 */
+	double readDouble(E elem);
+	
+	/**
+	 * プリミティブ値として読み取るべきプロパティ値が存在しないことを示す例外.
+	 * {@link #read(Object)}が{@code null}を返す場合に対応し、これを受け取った比較ノードは{@code null}の場合と同じく{@code false}を返す。
+	 * 例外が発生するのはgetterメソッドの呼び出しに失敗した場合などに限られるため、スタックトレースを持たない単一のインスタンスを使い回す。
+	 */
+	static final class Unreadable extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		/**
+		 * 唯一のインスタンス.
+		 */
+		static final Unreadable INSTANCE = new Unreadable();
+		private Unreadable() {
+			super(null, null, false, false);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.m12i.minque;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 要素の追加・削除・更新を通知する検索対象コレクション.
+ * このコレクションを検索対象とする{@link LiveQuery}は、変更された要素だけを評価し直して検索結果を維持します。
+ * 
+ * <p>要素の追加・削除・置換はこのコレクションのメソッドを通じて行う必要があります。
+ * 要素のプロパティ値を直接変更した場合は、その後で{@link #update(int)}を呼び出して変更を通知します。</p>
+ * 
+ * <p>このコレクションはスレッドセーフではありません。
+ * 変更の通知は変更を行ったスレッドで同期的に行われます。</p>
+ * @param <E> 要素型
+ */
+public final class ObservableCollection<E> extends AbstractList<E> implements RandomAccess {
+	private final List<E> rows;
+	private final List<Listener<E>> listeners = new CopyOnWriteArrayList<Listener<E>>();
+	
+	/**
+	 * 空のコレクションを初期化する.
+	 */
+	public ObservableCollection() {
+		this.rows = new ArrayList<E>();
+	}
+	
+	/**
+	 * コレクションを初期化する.
+	 * @param source 元になるコレクション
+	 */
+	public ObservableCollection(final Collection<? extends E> source) {
+		if (source == null) {
+			throw new IllegalArgumentException();
+		}
+		this.rows = new ArrayList<E>(source);
+	}
+	
+	@Override
+	public E get(final int index) {
+		return rows.get(index);
+	}
+	
+	@Override
+	public int size() {
+		return rows.size();
+	}
+	
+	@Override
+	public void add(final int index, final E elem) {
+		rows.add(index, elem);
+		modCount ++;
+		for (final Listener<E> l : listeners) {
+			l.added(elem);
+		}
+	}
+	
+	@Override
+	public E set(final int index, final E elem) {
+		final E old = rows.set(index, elem);
+		for (final Listener<E> l : listeners) {
+			if (old == elem) {
+				l.updated(elem);
+			} else {
+				l.removed(old);
+				l.added(elem);
+			}
+		}
+		return old;
+	}
+	
+	@Override
+	public E remove(final int index) {
+		final E old = rows.remove(index);
+		modCount ++;
+		for (final Listener<E> l : listeners) {
+			l.removed(old);
+		}
+		return old;
+	}
+	
+	@Override
+	public void clear() {
+		final List<E> old = new ArrayList<E>(rows);
+		rows.clear();
+		modCount ++;
+		for (final E elem : old) {
+			for (final Listener<E> l : listeners) {
+				l.removed(elem);
+			}
+		}
+	}
+	
+	/**
+	 * 要素のプロパティ値が変更されたことを通知する.
+	 * @param index 変更された要素の位置
+	 * @return 変更された要素
+	 */
+	public E update(final int index) {
+		final E elem = rows.get(index);
+		for (final Listener<E> l : listeners) {
+			l.updated(elem);
+		}
+		return elem;
+	}
+	
+	void addListener(final Listener<E> listener) {
+		listeners.add(listener);
+	}
+	
+	void removeListener(final Listener<E> listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * コレクションの変更を受け取るリスナー.
+	 * @param <E> 要素型
+	 */
+	interface Listener<E> {
+		/**
+		 * 要素が追加された.
+		 * @param elem 追加された要素
+		 */
+		void added(E elem);
+		/**
+		 * 要素が削除された.
+		 * @param elem 削除された要素
+		 */
+		void removed(E elem);
+		/**
+		 * 要素のプロパティ値が変更された.
+		 * @param elem 変更された要素
+		 */
+		void updated(E elem);
+	}
+}
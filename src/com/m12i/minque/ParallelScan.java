@@ -0,0 +1,149 @@
+package com.m12i.minque;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 評価ノードを使って検索対象を並列に走査するためのユーティリティ.
+ * 検索対象が{@link RandomAccess}を実装した{@link List}である場合、
+ * それを{@link Morsels}によってモーセルに分割し、{@link ForkJoinPool}のスレッドと呼び出し元のスレッドで評価します。
+ * それ以外の検索対象は呼び出し元のスレッドで逐次的に走査します。
+ */
+final class ParallelScan {
+	private ParallelScan() {}
+	
+	/**
+	 * デフォルトの{@link ForkJoinPool}を遅延初期化するためのホルダー.
+	 */
+	private static final class DefaultPool {
+		static final ForkJoinPool INSTANCE = new ForkJoinPool();
+	}
+	
+	/**
+	 * デフォルトの{@link ForkJoinPool}を返す.
+	 * 並列度は利用可能なプロセッサ数と同じになる。
+	 * @return デフォルトの{@link ForkJoinPool}
+	 */
+	static ForkJoinPool defaultPool() {
+		return DefaultPool.INSTANCE;
+	}
+	
+	/**
+	 * 評価ノードにマッチしたすべての要素を返す.
+	 * 返却されるリストに含まれる要素の順序は検索対象における順序と同じになる。
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}
+	 * @param node 評価ノード
+	 * @param source 検索対象
+	 * @return 評価ノードにマッチしたすべての要素
+	 */
+	static <E> List<E> selectFrom(final ForkJoinPool pool, final Node<E> node, final Iterable<E> source) {
+		if (!isSplittable(source)) {
+			final List<E> result = new ArrayList<E>();
+			for (final E elem : source) {
+				if (node.test(elem)) {
+					result.add(elem);
+				}
+			}
+			return result;
+		}
+		final List<E> list = (List<E>) source;
+		// ワーカーごとにマッチした行番号を収集し、最後に元の順序どおりにマージする
+		final int[] rows = Morsels.select(pool, list.size(), new Morsels.Task() {
+			@Override
+			public boolean scan(final int from, final int to, final Morsels.Buffer buffer) {
+				for (int i = from; i < to; i ++) {
+					if (node.test(list.get(i))) {
+						buffer.add(i);
+					}
+				}
+				return true;
+			}
+		});
+		final List<E> result = new ArrayList<E>(rows.length);
+		for (final int row : rows) {
+			result.add(list.get(row));
+		}
+		return result;
+	}
+	
+	/**
+	 * 評価ノードにマッチした要素の数を返す.
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}
+	 * @param node 評価ノード
+	 * @param source 検索対象
+	 * @return 評価ノードにマッチした要素の数
+	 */
+	static <E> long countIn(final ForkJoinPool pool, final Node<E> node, final Iterable<E> source) {
+		if (!isSplittable(source)) {
+			long result = 0;
+			for (final E elem : source) {
+				if (node.test(elem)) {
+					result ++;
+				}
+			}
+			return result;
+		}
+		final List<E> list = (List<E>) source;
+		final AtomicLong result = new AtomicLong();
+		Morsels.run(pool, list.size(), new Morsels.Task() {
+			@Override
+			public boolean scan(final int from, final int to, final Morsels.Buffer buffer) {
+				long count = 0;
+				for (int i = from; i < to; i ++) {
+					if (node.test(list.get(i))) {
+						count ++;
+					}
+				}
+				// 集計はモーセルごとに1回だけ行う
+				result.addAndGet(count);
+				return true;
+			}
+		});
+		return result.get();
+	}
+	
+	/**
+	 * 評価ノードにマッチした要素をいずれか1つ返す.
+	 * 並列に走査する場合、マッチする要素が複数あってもいずれが返されるかは定まらない。
+	 * いずれかのモーセルでマッチする要素が見つかった時点で、その他のモーセルの走査は打ち切られる。
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}
+	 * @param node 評価ノード
+	 * @param source 検索対象
+	 * @return 評価ノードにマッチした要素（存在しない場合は{@code null}）
+	 */
+	static <E> E selectOneFrom(final ForkJoinPool pool, final Node<E> node, final Iterable<E> source) {
+		if (!isSplittable(source)) {
+			for (final E elem : source) {
+				if (node.test(elem)) {
+					return elem;
+				}
+			}
+			return null;
+		}
+		final List<E> list = (List<E>) source;
+		final AtomicReference<E> found = new AtomicReference<E>();
+		Morsels.run(pool, list.size(), new Morsels.Task() {
+			@Override
+			public boolean scan(final int from, final int to, final Morsels.Buffer buffer) {
+				// ほかのワーカーが見つけた時点でモーセルの途中でも走査をやめる
+				for (int i = from; i < to && found.get() == null; i ++) {
+					final E elem = list.get(i);
+					if (node.test(elem)) {
+						found.compareAndSet(null, elem);
+						return false;
+					}
+				}
+				return found.get() == null;
+			}
+		});
+		return found.get();
+	}
+	
+	private static boolean isSplittable(final Iterable<?> source) {
+		return source instanceof List && source instanceof RandomAccess;
+	}
+}
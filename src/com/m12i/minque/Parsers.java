@@ -5,6 +5,8 @@ import java.util.regex.Pattern;
 
 /**
  * 各種トークンを読み取るための関数をそろえたオブジェクト.
+ * 読み取り中の状態はすべて引数の{@link Input}と各メソッドのローカル変数に保持されるため、
+ * このオブジェクトは複数のスレッドから同時に使用することができます。
  */
 final class Parsers {
 	/**
@@ -88,7 +90,6 @@ final class Parsers {
 	private static final char CR = '\r';
 	private static final char LF = '\n';
 	
-	private final StringBuilder buff = new StringBuilder();
 	private final String lineCommentStart;
 	private final String blockCommentStart;
 	private final String blockCommentEnd;
@@ -308,7 +309,7 @@ final class Parsers {
 	 */
 	String parseRawString(final Input in) {
 		try {
-			buff.setLength(0);
+			final StringBuilder buff = new StringBuilder();
 			while (in.unlessEof()) {
 				final char c1 = in.current();
 				if (c1 <= SP) {
@@ -344,7 +345,7 @@ final class Parsers {
 	 */
 	String parseUntil(final Input in, final char c0) {
 		try {
-			buff.setLength(0);
+			final StringBuilder buff = new StringBuilder();
 			while (in.unlessEof()) {
 				final char current = in.current();
 				if (c0 == current) {
@@ -368,7 +369,7 @@ final class Parsers {
 	 */
 	String parseUntil(final Input in, final char c0, final char c1) {
 		try {
-			buff.setLength(0);
+			final StringBuilder buff = new StringBuilder();
 			while (in.unlessEof()) {
 				final char current = in.current();
 				if (c0 == current || c1 == current) {
@@ -393,7 +394,7 @@ final class Parsers {
 	 */
 	String parseUntil(final Input in, final char c0, final char c1, final char c2) {
 		try {
-			buff.setLength(0);
+			final StringBuilder buff = new StringBuilder();
 			while (in.unlessEof()) {
 				final char current = in.current();
 				if (c0 == current || c1 == current || c2 == current) {
@@ -416,7 +417,7 @@ final class Parsers {
 	 */
 	String parseAbc(final Input in) {
 		try {
-			buff.setLength(0);
+			final StringBuilder buff = new StringBuilder();
 			while (in.unlessEof()) {
 				final char c = in.current();
 				if (('A' <= c && c <= 'Z') || ('a' <= c && c <= 'z')) {
@@ -441,7 +442,7 @@ final class Parsers {
 	 */
 	String parseAbc123(final Input in) {
 		try {
-			buff.setLength(0);
+			final StringBuilder buff = new StringBuilder();
 			while (in.unlessEof()) {
 				final char c = in.current();
 				if (('A' <= c && c <= 'Z') || ('a' <= c && c <= 'z') || ('0' <= c && c <= '9')) {
@@ -466,7 +467,7 @@ final class Parsers {
 	 */
 	String parseAbc123_$(final Input in) {
 		try {
-			buff.setLength(0);
+			final StringBuilder buff = new StringBuilder();
 			while (in.unlessEof()) {
 				final char c = in.current();
 				if (('A' <= c && c <= 'Z') || ('a' <= c && c <= 'z') || ('0' <= c && c <= '9') 
@@ -497,7 +498,7 @@ final class Parsers {
 			
 			final char escape = c0 == '"' ? escapePrefixInDoubleQuotes
 					: c0 == '\'' ? escapePrefixInSingleQuotes : escapePrefixInBackQuotes;
-			buff.setLength(0);
+			final StringBuilder buff = new StringBuilder();
 	
 			if (c0 == escape) {
 				while (in.unlessEof()) {
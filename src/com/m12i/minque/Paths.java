@@ -0,0 +1,176 @@
+package com.m12i.minque;
+
+import java.util.Map;
+
+/**
+ * {@code address.city}のように{@code .}で区切られたプロパティのパスを扱うためのユーティリティ.
+ * パスの先頭のプロパティは要素から{@link PropertyResolver}が解決したリーダーによって読み取られ、
+ * それ以降のプロパティは直前のプロパティ値からその実行時のクラスに応じて読み取られます。
+ * 途中のプロパティ値が{@code null}であった場合、それ以降のプロパティは読み取られず、パスの値は{@code null}となります。
+ *
+ * <p>パスとして解釈するのはこのライブラリが提供するアクセサやリゾルバだけであり、
+ * ユーザ定義の{@link Accessor}や{@link PropertyResolver}には{@code .}を含むプロパティ名がそのまま渡されます。
+ * また{@link Map}のキーや行の列名として{@code .}を含む名前そのものが存在する場合は、そちらが優先されます。</p>
+ *
+ * <p>途中のプロパティ値が{@link Map}である場合、プロパティ名をキーとして値を取得します。
+ * それ以外の場合、フィールドやレコードの構成要素を読み取るファクトリではフィールドや構成要素を、
+ * それ以外のファクトリではJava Beansのgetterメソッドを通じてプロパティを読み取ります。</p>
+ */
+final class Paths {
+	private Paths() {}
+
+	/**
+	 * プロパティ値のクラスとプロパティ名からリーダーを解決する方法.
+	 */
+	interface Navigator {
+		/**
+		 * 指定されたクラスの値から指定されたプロパティを読み取るためのリーダーを返す.
+		 * @param type 値のクラス
+		 * @param prop プロパティ名
+		 * @return リーダー
+		 */
+		PropertyReader<Object> reader(Class<?> type, String prop);
+	}
+
+	/**
+	 * {@link Map}のキーかJava Beansのgetterメソッドによってプロパティを読み取る方法.
+	 */
+	static final Navigator BEANS = new Navigator() {
+		@Override
+		@SuppressWarnings("unchecked")
+		public PropertyReader<Object> reader(final Class<?> type, final String prop) {
+			if (Map.class.isAssignableFrom(type)) {
+				return new MapReader(prop);
+			}
+			return new BeanAccessor<Object>((Class<Object>) type).reader(prop);
+		}
+	};
+
+	/**
+	 * {@link Map}のキーかフィールドによってプロパティを読み取る方法.
+	 */
+	static final Navigator FIELDS = fields(false);
+
+	/**
+	 * {@link Map}のキーかレコードの構成要素によってプロパティを読み取る方法.
+	 */
+	static final Navigator RECORDS = fields(true);
+
+	private static Navigator fields(final boolean record) {
+		return new Navigator() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public PropertyReader<Object> reader(final Class<?> type, final String prop) {
+				if (Map.class.isAssignableFrom(type)) {
+					return new MapReader(prop);
+				}
+				return new FieldAccessor<Object>((Class<Object>) type, record).resolve(prop);
+			}
+		};
+	}
+
+	/**
+	 * プロパティ名がパスであるかどうかを返す.
+	 * {@code .}を含み、かつ{@code .}で区切られたいずれの部分も空でない場合にパスとみなされる。
+	 * @param prop プロパティ名
+	 * @return パスである場合は{@code true}
+	 */
+	static boolean isPath(final String prop) {
+		final int length = prop.length();
+		return prop.indexOf('.') > 0 && prop.charAt(length - 1) != '.' && prop.indexOf("..") == -1;
+	}
+
+	/**
+	 * パスを読み取るリーダーを生成する.
+	 * @param path パス
+	 * @param root パスの先頭のプロパティを解決するリゾルバ
+	 * @param navigator パスの途中のプロパティ値からプロパティを読み取る方法
+	 * @return リーダー
+	 */
+	static <E> PropertyReader<E> reader(final String path, final PropertyResolver<E> root, final Navigator navigator) {
+		final String[] segments = path.split("\\.");
+		PropertyReader<Object> rest = new Nested(segments[segments.length - 1], navigator);
+		for (int i = segments.length - 2; i > 0; i --) {
+			rest = new Path<Object>(segments[i], new Nested(segments[i], navigator), rest);
+		}
+		final PropertyReader<E> head = root.resolve(segments[0]);
+		return new Path<E>(segments[0], head == null ? Nodes.<E>nullReader() : head, rest);
+	}
+
+	/**
+	 * パスを読み取るリーダー.
+	 * パスの先頭のプロパティを読み取り、その値が{@code null}でなければ残りのパスを読み取る。
+	 * 同じ先頭のプロパティを持つ比較式をまとめてコンパイルできるように、先頭のプロパティと残りのパスを公開している。
+	 * @param <E> 対象の要素の型
+	 */
+	static final class Path<E> implements PropertyReader<E> {
+		final String name;
+		final PropertyReader<E> head;
+		final PropertyReader<Object> rest;
+		Path(final String name, final PropertyReader<E> head, final PropertyReader<Object> rest) {
+			this.name = name;
+			this.head = head;
+			this.rest = rest;
+		}
+		@Override
+		public Object read(final E elem) {
+			final Object value = head.read(elem);
+			return value == null ? null : rest.read(value);
+		}
+	}
+
+	/**
+	 * パスの途中のプロパティ値からプロパティを読み取るリーダー.
+	 * 値のクラスに応じたリーダーを直前に読み取った値のクラスとともに保持しておき、
+	 * 同じクラスの値が続く限りそれを使い回す。
+	 * 保持されるオブジェクトは不変であるため、複数のスレッドから同時に使用することができる。
+	 */
+	static final class Nested implements PropertyReader<Object> {
+		private final String prop;
+		private final Navigator navigator;
+		private Resolved resolved = null;
+		Nested(final String prop, final Navigator navigator) {
+			this.prop = prop;
+			this.navigator = navigator;
+		}
+		@Override
+		public Object read(final Object value) {
+			if (value == null) {
+				return null;
+			}
+			Resolved r = resolved;
+			final Class<?> type = value.getClass();
+			if (r == null || r.type != type) {
+				r = new Resolved(type, navigator.reader(type, prop));
+				resolved = r;
+			}
+			return r.reader.read(value);
+		}
+	}
+
+	/**
+	 * 値のクラスとそのクラスのために解決されたリーダーの組.
+	 */
+	private static final class Resolved {
+		private final Class<?> type;
+		private final PropertyReader<Object> reader;
+		private Resolved(final Class<?> type, final PropertyReader<Object> reader) {
+			this.type = type;
+			this.reader = reader;
+		}
+	}
+
+	/**
+	 * {@link Map}からプロパティ名をキーとして値を取得するリーダー.
+	 */
+	private static final class MapReader implements PropertyReader<Object> {
+		private final String prop;
+		private MapReader(final String prop) {
+			this.prop = prop;
+		}
+		@Override
+		public Object read(final Object value) {
+			return ((Map<?, ?>) value).get(prop);
+		}
+	}
+}
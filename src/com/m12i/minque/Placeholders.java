@@ -5,6 +5,8 @@ import java.util.List;
 
 /**
  * バインド変数のためのプレースホルダを管理するオブジェクト.
+ * バインド変数の値そのものは保持しません。
+ * 値はクエリの実行時にプレースホルダの添字をもとに参照されるため、解析済みのクエリが書き換えられることはありません。
  */
 final class Placeholders {
 	private final List<Expression> list = new ArrayList<Expression>();
@@ -24,10 +26,11 @@ final class Placeholders {
 		return list.size();
 	}
 	/**
-	 * プレースホルダに変数をバインドする.
+	 * プレースホルダにバインドする変数を検査する.
 	 * @param vars 変数
+	 * @throws IllegalArgumentException 変数の数がプレースホルダの総数と一致しない場合、もしくは変数に{@code null}が含まれる場合
 	 */
-	void bind(final Object... vars) {
+	void check(final Object... vars) {
 		final int listSize = list.size();
 		if (vars.length != listSize) {
 			throw new IllegalArgumentException(
@@ -35,7 +38,9 @@ final class Placeholders {
 							list.size()));
 		}
 		for (int i = 0; i < listSize; i++) {
-			list.get(i).setValue(vars[i]);
+			if (vars[i] == null) {
+				throw new IllegalArgumentException("Value must not be null.");
+			}
 		}
 	}
 }
@@ -0,0 +1,97 @@
+package com.m12i.minque;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * プロパティの文字列表現を辞書順に並べて保持する索引.
+ * 前方一致（{@code ^=}）に対応します。
+ * 逆順モードでは文字列を末尾から読んだものを辞書順に並べて保持し、後方一致（{@code $=}）に対応します。
+ * ある文字列で始まる値は辞書順で連続するため、二分探索でその範囲の先頭を求めるだけで候補が得られます。
+ */
+final class PrefixIndex implements Index {
+	private final boolean reversed;
+	private final String[] keys;
+	private final int[] rows;
+	
+	/**
+	 * 索引を初期化する.
+	 * @param rows 行のリスト
+	 * @param reader プロパティを読み取るためのリーダー
+	 * @param reversed 逆順モードの場合は{@code true}
+	 */
+	<E> PrefixIndex(final List<E> rows, final PropertyReader<E> reader, final boolean reversed) {
+		final List<Entry> entries = new ArrayList<Entry>();
+		final int size = rows.size();
+		for (int i = 0; i < size; i ++) {
+			final Object value = reader.read(rows.get(i));
+			if (value != null) {
+				final String s = value.toString();
+				entries.add(new Entry(reversed ? reverse(s) : s, i));
+			}
+		}
+		Collections.sort(entries);
+		this.reversed = reversed;
+		this.keys = new String[entries.size()];
+		this.rows = new int[entries.size()];
+		for (int i = 0; i < keys.length; i ++) {
+			keys[i] = entries.get(i).key;
+			this.rows[i] = entries.get(i).row;
+		}
+	}
+	
+	@Override
+	public int[] lookup(final Operator op, final Object expected) {
+		if (op != (reversed ? Operator.ENDS_WITH : Operator.STARTS_WITH)) {
+			return null;
+		}
+		final String s = expected.toString();
+		final String prefix = reversed ? reverse(s) : s;
+		// 接頭辞以上である最初のキーの位置を求め、そこから接頭辞で始まるキーが続く範囲を求める
+		int lo = 0, hi = keys.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (keys[mid].compareTo(prefix) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		int to = lo;
+		while (to < keys.length && keys[to].startsWith(prefix)) {
+			to ++;
+		}
+		final int[] result = Arrays.copyOfRange(rows, lo, to);
+		Arrays.sort(result);
+		return result;
+	}
+	
+	/**
+	 * 文字列をcharの単位で逆順に並べ替える.
+	 * 後方一致の判定を前方一致の判定に置き換えるためのものであり、サロゲート・ペアも分解して並べ替える。
+	 * @param s 文字列
+	 * @return 逆順に並べ替えた文字列
+	 */
+	private static String reverse(final String s) {
+		final char[] cs = new char[s.length()];
+		for (int i = 0; i < cs.length; i ++) {
+			cs[i] = s.charAt(cs.length - 1 - i);
+		}
+		return new String(cs);
+	}
+	
+	private static final class Entry implements Comparable<Entry> {
+		private final String key;
+		private final int row;
+		private Entry(final String key, final int row) {
+			this.key = key;
+			this.row = row;
+		}
+		@Override
+		public int compareTo(final Entry o) {
+			return key.compareTo(o.key);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.m12i.minque;
+
+/**
+ * 数値型のプロパティをプリミティブ値として取得する手段を備えたアクセサ.
+ * {@link #typeOf(String)}が{@code int.class}・{@code long.class}・{@code double.class}のいずれかを返すプロパティについて、
+ * 大小比較（{@code <}・{@code <=}・{@code >}・{@code >=}）は{@link #accsess(Object, String)}を経由せず、
+ * ボクシングも{@link Comparable#compareTo(Object)}も伴わないプリミティブ値同士の比較によって行われます。
+ * 右辺の値はクエリごとに一度だけ数値に変換され、整数同士は{@code long}として、
+ * いずれかが小数である場合は{@code double}として比較されます。
+ * @param <E> 対象の要素の型
+ */
+public interface PrimitiveAccessor<E> extends Accessor<E> {
+	/**
+	 * プロパティの型を返す.
+	 * {@code int.class}・{@code long.class}・{@code double.class}以外の値（{@code null}を含む）を返した場合、
+	 * そのプロパティには{@link #accsess(Object, String)}が使用されます。
+	 * {@code byte}・{@code short}は{@code int.class}として扱うことができます。
+	 * {@code float}のプロパティには{@code double.class}を返さず、{@code float.class}や{@code null}を返して
+	 * {@link #accsess(Object, String)}によるボクシングされた値の比較に委ねてください。
+	 * {@code double}に拡張すると、たとえば{@code 0.1f}が{@code 0.1}と一致しなくなり、{@code price <= 0.1}のような比較が成立しなくなるためです。
+	 * @param prop 対象のプロパティ
+	 * @return プロパティの型
+	 */
+	Class<?> typeOf(String prop);
+	/**
+	 * 第1引数で指定された要素から第2引数で指定された{@code int}型のプロパティを取得して返す.
+	 * @param elem 対象の要素
+	 * @param prop 対象のプロパティ
+	 * @return 取得結果
+	 */
+	int getInt(E elem, String prop);
+	/**
+	 * 第1引数で指定された要素から第2引数で指定された{@code long}型のプロパティを取得して返す.
+	 * @param elem 対象の要素
+	 * @param prop 対象のプロパティ
+	 * @return 取得結果
+	 */
+	long getLong(E elem, String prop);
+	/**
+	 * 第1引数で指定された要素から第2引数で指定された{@code double}型のプロパティを取得して返す.
+	 * @param elem 対象の要素
+	 * @param prop 対象のプロパティ
+	 * @return 取得結果
+	 */
+	double getDouble(E elem, String prop);
+}
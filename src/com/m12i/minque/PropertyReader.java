@@ -0,0 +1,17 @@
+package com.m12i.minque;
+
+/**
+ * 要素から特定のプロパティを読み取るためのリーダー.
+ * {@link Accessor}とは異なり、どのプロパティを読み取るかはリーダーの生成時に決まっています。
+ * リーダーは{@link PropertyResolver}によってプロパティごとに生成されます。
+ * @param <E> 対象の要素の型
+ */
+public interface PropertyReader<E> {
+	/**
+	 * 要素からプロパティを読み取って返す.
+	 * 対象の要素にプロパティが存在しない場合は{@code null}を返します。
+	 * @param elem 対象の要素
+	 * @return 読み取り結果
+	 */
+	Object read(E elem);
+}
@@ -0,0 +1,19 @@
+package com.m12i.minque;
+
+/**
+ * クエリの条件式で指定されたプロパティ名を、そのプロパティを読み取るためのリーダーに解決するリゾルバ.
+ * {@link Accessor}とは異なり、プロパティ名の解釈はクエリの生成時にプロパティごとに一度だけ行われます。
+ * 要素の評価時には解決済みの{@link PropertyReader}だけが使用されるため、
+ * 要素ごとにプロパティ名の文字列を照合したりハッシュ値を計算したりする必要がなくなります。
+ * @param <E> 対象の要素の型
+ */
+public interface PropertyResolver<E> {
+	/**
+	 * 指定されたプロパティを読み取るためのリーダーを返す.
+	 * 対象の要素型に指定されたプロパティが存在しない場合は、常に{@code null}を返すリーダーを返します。
+	 * 返却されたリーダーは解析済みクエリとともに複数のスレッドから同時に使用されることがあります。
+	 * @param prop 対象のプロパティ
+	 * @return リーダー
+	 */
+	PropertyReader<E> resolve(String prop);
+}
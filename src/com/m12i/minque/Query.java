@@ -1,13 +1,27 @@
 package com.m12i.minque;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 解析済みクエリを表わすオブジェクト.
  * {@link Iterable}を引数にとって条件にマッチする要素を取得するためのAPIを提供します。
+ * 解析済みクエリは不変であり、複数のスレッドから同時に使用することができます。
  * @param <E> 検索対象の{@link Iterable}実装の要素型
  */
 public interface Query<E> {
+	/**
+	 * バインド変数をバインドしたクエリを返す.
+	 * バインド変数は解析済みクエリとは別に保持されるため、このクエリ自体が書き換えられることはありません。
+	 * 返却されるオブジェクトは不変であり、複数のスレッドで共有することができます。
+	 * 件数の上限を指定した検索など{@link BoundQuery}だけが提供するAPIを使用する場合は、
+	 * バインド変数を含まないクエリについても引数なしでこのメソッドを呼び出します。
+	 * @param vars バインド変数
+	 * @return バインド済みクエリ
+	 * @throws IllegalArgumentException クエリ文字列に含まれるプレースホルダの数とバインド変数の数が一致しない場合
+	 */
+	BoundQuery<E> bind(Object... vars);
 	/**
 	 * クエリにマッチしたすべての要素を返す.
 	 * 返却されるリストに含まれる要素の順序は、検索対象の{@link Iterable}実装の実装次第となります。
@@ -61,4 +75,106 @@ public interface Query<E> {
 	 * @throws IllegalArgumentException クエリ文字列に含まれるプレースホルダの数とバインド変数の数が一致しない場合
 	 */
 	int countIn(Iterable<E> target, Object... vars);
+	/**
+	 * クエリにマッチした要素が存在するかどうかを返す.
+	 * マッチする要素が見つかった時点で検索対象の走査を打ち切ります。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素が存在する場合は{@code true}
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	boolean existsIn(Iterable<E> target);
+	/**
+	 * クエリにマッチした要素が存在するかどうかを返す.
+	 * マッチする要素が見つかった時点で検索対象の走査を打ち切ります。
+	 * @param target 検索対象
+	 * @param vars バインド変数
+	 * @return クエリ内容にマッチした要素が存在する場合は{@code true}
+	 * @throws IllegalArgumentException クエリ文字列に含まれるプレースホルダの数とバインド変数の数が一致しない場合
+	 */
+	boolean existsIn(Iterable<E> target, Object... vars);
+	/**
+	 * クエリにマッチしたすべての要素を並列に検索して返す.
+	 * 検索対象が{@link java.util.RandomAccess}を実装した{@link List}である場合、
+	 * それを固定長のモーセルに分割し、デフォルトの{@link ForkJoinPool}のスレッドと呼び出し元のスレッドが
+	 * 未処理のモーセルを1つずつ取り出しながら並列に評価します。
+	 * 検索対象が{@link ColumnarTable}や{@link MappedTable}である場合は、列の走査がモーセルごとに並列に行われます。
+	 * それ以外の検索対象は呼び出し元のスレッドで逐次的に走査します。
+	 * 返却されるリストに含まれる要素の順序は検索対象における順序と同じになります。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチしたすべての要素
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	List<E> selectFromParallel(Iterable<E> target);
+	/**
+	 * クエリにマッチしたすべての要素を指定された{@link ForkJoinPool}上で並列に検索して返す.
+	 * 返却されるリストに含まれる要素の順序は検索対象における順序と同じになります。
+	 * @param target 検索対象
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}
+	 * @return クエリ内容にマッチしたすべての要素
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	List<E> selectFromParallel(Iterable<E> target, ForkJoinPool pool);
+	/**
+	 * クエリにマッチした要素をいずれか1つ並列に検索して返す.
+	 * クエリにマッチする要素が複数あった場合にいずれの要素が返されるかは定まりません。
+	 * いずれかのモーセルでマッチする要素が見つかった時点で残りのモーセルの評価は打ち切られます。
+	 * マッチする要素がなかった場合は{@code null}を返します。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	E selectOneFromParallel(Iterable<E> target);
+	/**
+	 * クエリにマッチした要素をいずれか1つ指定された{@link ForkJoinPool}上で並列に検索して返す.
+	 * クエリにマッチする要素が複数あった場合にいずれの要素が返されるかは定まりません。
+	 * マッチする要素がなかった場合は{@code null}を返します。
+	 * @param target 検索対象
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}
+	 * @return クエリ内容にマッチした要素
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	E selectOneFromParallel(Iterable<E> target, ForkJoinPool pool);
+	/**
+	 * クエリにマッチした要素の数を並列に数えて返す.
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素の数
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	long countInParallel(Iterable<E> target);
+	/**
+	 * クエリにマッチした要素の数を指定された{@link ForkJoinPool}上で並列に数えて返す.
+	 * @param target 検索対象
+	 * @param pool 並列処理に使用する{@link ForkJoinPool}
+	 * @return クエリ内容にマッチした要素の数
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	long countInParallel(Iterable<E> target, ForkJoinPool pool);
+	/**
+	 * クエリにマッチした要素を順に返すイテレータを返す.
+	 * 要素の評価はイテレータから要素が取り出される時点で必要な分だけ行われます。
+	 * そのため検索結果がリストとして保持されることはなく、途中で走査をやめることもできます。
+	 * 返却されるイテレータは{@link Iterator#remove()}をサポートしません。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素を返すイテレータ
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	Iterator<E> iterator(Iterable<E> target);
+	/**
+	 * クエリにマッチした要素だけを返す{@link Iterable}を返す.
+	 * 返却されるオブジェクトは検索対象のビューであり、{@link Iterable#iterator()}が呼び出されるたびに
+	 * {@link #iterator(Iterable)}と同様のイテレータを生成します。
+	 * 拡張for文で検索結果を1件ずつ処理する場合などに使用します。
+	 * @param target 検索対象
+	 * @return クエリ内容にマッチした要素だけを返す{@link Iterable}
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	Iterable<E> filter(Iterable<E> target);
+	/**
+	 * 検索対象の変更に追随して検索結果を維持し続けるクエリを返す.
+	 * 検索対象の全要素はこの時点で一度だけ評価され、それ以降は変更された要素だけが評価し直されます。
+	 * @param target 検索対象
+	 * @return 検索結果を維持し続けるクエリ
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	LiveQuery<E> live(ObservableCollection<E> target);
 }
@@ -0,0 +1,222 @@
+package com.m12i.minque;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 複数のクエリを検索対象の1回の走査でまとめて評価するためのユーティリティ.
+ * 検索対象の要素を1つずつ取り出し、その要素についてすべてのクエリを評価します。
+ * ディスクから読み出しながら要素を返す{@link Iterable}のように走査の費用が大きい検索対象に対して、
+ * 多数のクエリを実行する場合に使用します。
+ * 
+ * <p>同じファクトリで生成されたクエリの間では、同じプロパティの値は要素ごとに一度だけ取得されて共有されます。
+ * 値の取得は、いずれかのクエリの評価で初めて必要になった時点で行われます。</p>
+ * 
+ * <p>検索対象が索引を備えている場合でも、索引は使用されず全要素が走査されます。
+ * 各メソッドは複数のスレッドから同時に呼び出すことができます。</p>
+ */
+public final class QueryBatch {
+	private QueryBatch() {}
+	
+	/**
+	 * クエリごとに、クエリにマッチしたすべての要素を返す.
+	 * 返却されるリストの各要素は引数で指定されたクエリと同じ順序で並び、
+	 * それぞれのリストに含まれる要素の順序は検索対象における順序と同じになります。
+	 * @param source 検索対象
+	 * @param queries クエリ
+	 * @return クエリごとの、クエリ内容にマッチしたすべての要素
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	@SafeVarargs
+	public static <E> List<List<E>> run(final Iterable<E> source, final Query<E>... queries) {
+		final List<BoundQuery<E>> bound = new ArrayList<BoundQuery<E>>(queries.length);
+		for (final Query<E> q : queries) {
+			bound.add(q.bind());
+		}
+		return run(source, bound);
+	}
+	
+	/**
+	 * クエリごとに、クエリにマッチしたすべての要素を返す.
+	 * 返却されるリストの各要素は引数で指定されたクエリと同じ順序で並び、
+	 * それぞれのリストに含まれる要素の順序は検索対象における順序と同じになります。
+	 * @param source 検索対象
+	 * @param queries バインド済みクエリ
+	 * @return クエリごとの、クエリ内容にマッチしたすべての要素
+	 */
+	public static <E> List<List<E>> run(final Iterable<E> source, final List<? extends BoundQuery<E>> queries) {
+		final Batch<E> batch = new Batch<E>(queries);
+		final List<List<E>> result = new ArrayList<List<E>>(batch.nodes.size());
+		for (int i = 0; i < batch.nodes.size(); i ++) {
+			result.add(new ArrayList<E>());
+		}
+		for (final E elem : source) {
+			batch.row ++;
+			for (int i = 0; i < batch.nodes.size(); i ++) {
+				if (batch.nodes.get(i).test(elem)) {
+					result.get(i).add(elem);
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * クエリごとに、クエリにマッチした要素の数を返す.
+	 * 返却される配列の各要素は引数で指定されたクエリと同じ順序で並びます。
+	 * @param source 検索対象
+	 * @param queries クエリ
+	 * @return クエリごとの、クエリ内容にマッチした要素の数
+	 * @throws IllegalArgumentException クエリ文字列にバインド変数のプレースホルダが含まれる場合
+	 */
+	@SafeVarargs
+	public static <E> int[] count(final Iterable<E> source, final Query<E>... queries) {
+		final List<BoundQuery<E>> bound = new ArrayList<BoundQuery<E>>(queries.length);
+		for (final Query<E> q : queries) {
+			bound.add(q.bind());
+		}
+		return count(source, bound);
+	}
+	
+	/**
+	 * クエリごとに、クエリにマッチした要素の数を返す.
+	 * 返却される配列の各要素は引数で指定されたクエリと同じ順序で並びます。
+	 * @param source 検索対象
+	 * @param queries バインド済みクエリ
+	 * @return クエリごとの、クエリ内容にマッチした要素の数
+	 */
+	public static <E> int[] count(final Iterable<E> source, final List<? extends BoundQuery<E>> queries) {
+		final Batch<E> batch = new Batch<E>(queries);
+		final int[] result = new int[batch.nodes.size()];
+		for (final E elem : source) {
+			batch.row ++;
+			for (int i = 0; i < result.length; i ++) {
+				if (batch.nodes.get(i).test(elem)) {
+					result[i] ++;
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * プロパティを共有するリーダーを使ってコンパイルし直された評価ノードの集合.
+	 * @param <E> 要素型
+	 */
+	private static final class Batch<E> {
+		private final List<Node<E>> nodes;
+		// 走査中の要素の通し番号
+		private long row = 0;
+		private Batch(final List<? extends BoundQuery<E>> queries) {
+			final Map<PropertyResolver<E>, Map<String, PropertyReader<E>>> shared =
+					new IdentityHashMap<PropertyResolver<E>, Map<String, PropertyReader<E>>>();
+			this.nodes = new ArrayList<Node<E>>(queries.size());
+			for (final BoundQuery<E> query : queries) {
+				final BoundQueryImpl<E> q = (BoundQueryImpl<E>) query;
+				Map<String, PropertyReader<E>> readers = shared.get(q.resolver());
+				if (readers == null) {
+					readers = new HashMap<String, PropertyReader<E>>();
+					shared.put(q.resolver(), readers);
+				}
+				// まだ共有リーダーが用意されていないプロパティについて、クエリの解決済みのリーダーを包んで用意する
+				for (final Map.Entry<String, PropertyReader<E>> e : q.readers().entrySet()) {
+					if (!readers.containsKey(e.getKey())) {
+						final PropertyReader<E> reader = e.getValue();
+						readers.put(e.getKey(), reader instanceof NumericReader
+								? new SharedNumericReader((NumericReader<E>) reader)
+								: new SharedReader(reader));
+					}
+				}
+				nodes.add(Nodes.compile(q.expression(), readers, q.vars()));
+			}
+		}
+		
+		/**
+		 * 走査中の要素について最初に読み取った値を保持しておき、それ以降は保持された値を返すリーダー.
+		 * 要素は同一性ではなく通し番号によって区別されるため、
+		 * 検索対象が1つのオブジェクトの内容を書き換えながら返す場合でも正しく動作する。
+		 */
+		private class SharedReader implements PropertyReader<E> {
+			private final PropertyReader<E> reader;
+			private long readAt = -1;
+			private Object value;
+			private SharedReader(final PropertyReader<E> reader) {
+				this.reader = reader;
+			}
+			@Override
+			public Object read(final E elem) {
+				if (readAt != row) {
+					value = reader.read(elem);
+					readAt = row;
+				}
+				return value;
+			}
+		}
+		
+		/**
+		 * 数値型のプロパティのための共有リーダー.
+		 * プリミティブ値も走査中の要素について最初に読み取った値を保持しておき、それ以降は保持された値を返す。
+		 * 値を読み取れなかったことも保持され、それ以降の読み取りでも{@link NumericReader.Unreadable}がスローされる。
+		 */
+		private final class SharedNumericReader extends SharedReader implements NumericReader<E> {
+			private final NumericReader<E> reader;
+			private long longAt = -1;
+			private long longValue;
+			private boolean longUnreadable;
+			private long doubleAt = -1;
+			private double doubleValue;
+			private boolean doubleUnreadable;
+			private SharedNumericReader(final NumericReader<E> reader) {
+				super(reader);
+				this.reader = reader;
+			}
+			@Override
+			public boolean isIntegral() {
+				return reader.isIntegral();
+			}
+			@Override
+			public Class<?> boxedType() {
+				return reader.boxedType();
+			}
+			@Override
+			public long readLong(final E elem) {
+				if (longAt != row) {
+					try {
+						longValue = reader.readLong(elem);
+						longUnreadable = false;
+					} catch (final NumericReader.Unreadable e) {
+						longUnreadable = true;
+					}
+					longAt = row;
+				}
+				if (longUnreadable) {
+					throw NumericReader.Unreadable.INSTANCE;
+				}
+				return longValue;
+			}
+			@Override
+			public double readDouble(final E elem) {
+				if (reader.isIntegral()) {
+					// 整数型のプロパティはlong値として一度だけ読み取る
+					return readLong(elem);
+				}
+				if (doubleAt != row) {
+					try {
+						doubleValue = reader.readDouble(elem);
+						doubleUnreadable = false;
+					} catch (final NumericReader.Unreadable e) {
+						doubleUnreadable = true;
+					}
+					doubleAt = row;
+				}
+				if (doubleUnreadable) {
+					throw NumericReader.Unreadable.INSTANCE;
+				}
+				return doubleValue;
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.m12i.minque;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * クエリ文字列をキーとして解析済みクエリを保持するLRUキャッシュ.
+ * 保持する解析済みクエリの数が上限に達した場合、もっとも長いあいだ参照されていないものから破棄されます。
+ * このオブジェクトは複数のスレッドから同時に使用することができます。
+ * @param <E> 解析済みクエリによる検索対象となるコレクションの要素型
+ */
+final class QueryCache<E> {
+	private final int capacity;
+	private final Map<String, Query<E>> map;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	
+	/**
+	 * キャッシュを初期化する.
+	 * @param capacity 保持する解析済みクエリの数の上限
+	 */
+	QueryCache(final int capacity) {
+		this.capacity = capacity;
+		// アクセス順序モードで初期化し、上限を超えたら最も古い要素を破棄させる
+		this.map = new LinkedHashMap<String, Query<E>>(16, 0.75f, true) {
+			private static final long serialVersionUID = -2738514021564137408L;
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Query<E>> eldest) {
+				if (size() > QueryCache.this.capacity) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * クエリ文字列に対応する解析済みクエリを返す.
+	 * @param query クエリ文字列
+	 * @return 解析済みクエリ（キャッシュされていない場合は{@code null}）
+	 */
+	Query<E> get(final String query) {
+		final Query<E> result;
+		synchronized (map) {
+			result = map.get(query);
+		}
+		if (result == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return result;
+	}
+	
+	/**
+	 * クエリ文字列と解析済みクエリの組み合わせを追加する.
+	 * @param query クエリ文字列
+	 * @param parsed 解析済みクエリ
+	 */
+	void put(final String query, final Query<E> parsed) {
+		synchronized (map) {
+			map.put(query, parsed);
+		}
+	}
+	
+	/**
+	 * キャッシュの統計情報を返す.
+	 * @return 統計情報
+	 */
+	QueryCacheStats stats() {
+		final int size;
+		synchronized (map) {
+			size = map.size();
+		}
+		return new QueryCacheStats(capacity, size, hits.get(), misses.get(), evictions.get());
+	}
+}
@@ -0,0 +1,62 @@
+package com.m12i.minque;
+
+/**
+ * {@link QueryFactory}が保持する解析済みクエリのキャッシュの統計情報.
+ * このオブジェクトは取得時点の値を保持するスナップショットです。
+ */
+public final class QueryCacheStats {
+	private final int capacity;
+	private final int size;
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+	
+	QueryCacheStats(final int capacity, final int size,
+			final long hitCount, final long missCount, final long evictionCount) {
+		this.capacity = capacity;
+		this.size = size;
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+	}
+	/**
+	 * キャッシュに保持できる解析済みクエリの数の上限を返す.
+	 * @return 上限
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	/**
+	 * キャッシュに保持されている解析済みクエリの数を返す.
+	 * @return 解析済みクエリの数
+	 */
+	public int getSize() {
+		return size;
+	}
+	/**
+	 * キャッシュから解析済みクエリが見つかった回数を返す.
+	 * @return ヒット回数
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+	/**
+	 * キャッシュから解析済みクエリが見つからずパースが行われた回数を返す.
+	 * @return ミス回数
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+	/**
+	 * 上限を超えたためにキャッシュから破棄された解析済みクエリの数を返す.
+	 * @return 破棄された解析済みクエリの数
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+	@Override
+	public String toString() {
+		return String.format("QueryCacheStats(capacity=%s, size=%s, hitCount=%s, missCount=%s, evictionCount=%s)",
+				capacity, size, hitCount, missCount, evictionCount);
+	}
+}
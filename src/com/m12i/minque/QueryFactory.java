@@ -1,7 +1,5 @@
 package com.m12i.minque;
 
-import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.Map;
 
 import com.m12i.minque.ExpressionParser.ExpressionAndPlaceholders;
@@ -16,12 +14,7 @@ public final class QueryFactory<E> {
 	 * @return ファクトリ・オブジェクト
 	 */
 	public static QueryFactory<Map<String, Object>> createMapQueryFactory() { 
-		return new QueryFactory<Map<String,Object>>(new Accessor<Map<String, Object>>() {
-				@Override
-				public Object accsess(Map<String, Object> elem, String prop) {
-					return elem.containsKey(prop) ? elem.get(prop) : null;
-				}
-			});
+		return new QueryFactory<Map<String,Object>>((PropertyResolver<Map<String,Object>>) new MapAccessor());
 	}
 	/**
 	 * Java Beansのコレクションのためのクエリ・ファクトリを生成する.
@@ -29,95 +22,136 @@ public final class QueryFactory<E> {
 	 * @return ファクトリ・オブジェクト
 	 */
 	public static<T> QueryFactory<T> createBeanQueryFactory(final Class<T> elemType) { 
-		// getterっぽいメソッドを格納しておくマップ
-		final HashMap<String, Method> methods = new HashMap<String, Method>();
-		try {
-			// 引数で指定されたクラスのpublicメソッドについて繰り返し処理
-			for (final Method m : elemType.getMethods()) {
-				// メソッドのシグネチャをチェック
-				if (m.getParameterTypes().length == 0 && m.getReturnType() != Void.class) {
-					// 「引数の数がゼロであり かつ 戻り値がvoidでない」場合はgetterとみなす
-					methods.put(m.getName(), m);
-				}
-			}
-		} catch(Exception e) {
-			// Do nothing.
-		}
 		// ファクトリを初期化して返す
-		return new QueryFactory<T>(new Accessor<T>() {
-			// getterをコールする際に使用するダミーの引数リスト
-			private final Object[] args = new Object[0];
-			// プロパティ名にマッチするgetterメソッドを返す
-			private Method getGetter(String prop) {
-				// JavaBeans規約に則ったgetter名を構成
-				final String getterName = "get" +
-						prop.substring(0, 1).toUpperCase() + prop.substring(1);
-				final String checkerName = "is" +
-						prop.substring(0, 1).toUpperCase() + prop.substring(1);
-				
-				// getterっぽいメソッドを格納したマップの要素キーと照合
-				if (methods.containsKey(getterName)) {
-					// JavaBeans規約に則ったgetterが存在すればそれを返す
-					return methods.get(getterName);
-					
-				} else if (methods.containsKey(checkerName)) {
-					// JavaBeans規約に則ったgetterが存在すればそれを返す
-					return methods.get(getterName);
-					
-				} else if (methods.containsKey(prop)) {
-					// プロパティと同名のメソッドが存在すればそれを返す
-					return methods.get(prop);
-					
-				} else {
-					// いずれにも該当しなければnullを返す
-					return null;
-				}
-			}
-			@Override
-			public Object accsess(T elem, String prop) {
-				try {
-					// プロパティ名にマッチするgetterメソッドを探す
-					final Method m = getGetter(prop);
-					// nullチェックを実施
-					if (m == null) return null;
-					// メソッドをダミーの引数リストに適用する
-					final Object o = m.invoke(elem, args);
-					// 再びnullチェックを実施
-					if (o == null) return null;
-					// getterの呼び出し結果を文字列化して返す
-					return o;
-					
-				} catch (Exception e) {
-					// 何らかの理由でメソッドコールが失敗したらともかくnullを返す
-					return null;
-				}
-			}
-		});
+		return new QueryFactory<T>(new BeanAccessor<T>(elemType));
+	}
+	/**
+	 * getterメソッドを持たないクラスのコレクションのためのクエリ・ファクトリを生成する.
+	 * プロパティ名はクラスとそのスーパークラスが宣言するインスタンス・フィールドの名前にそのまま対応し、
+	 * フィールドの値はアクセス修飾子にかかわらず直接読み取られます。
+	 * @param elemType 検索対象コレクションの要素型
+	 * @return ファクトリ・オブジェクト
+	 */
+	public static<T> QueryFactory<T> createFieldQueryFactory(final Class<T> elemType) { 
+		return new QueryFactory<T>((PropertyResolver<T>) new FieldAccessor<T>(elemType, false));
+	}
+	/**
+	 * レコード形式のクラスのコレクションのためのクエリ・ファクトリを生成する.
+	 * プロパティ名はレコードの構成要素──クラス自身が宣言するインスタンス・フィールドのうち、
+	 * 同名・同型の引数なしの{@code public}メソッドを持つもの──の名前に対応し、
+	 * 値はそのアクセサ・メソッドを通じて読み取られます。
+	 * @param elemType 検索対象コレクションの要素型
+	 * @return ファクトリ・オブジェクト
+	 */
+	public static<T> QueryFactory<T> createRecordQueryFactory(final Class<T> elemType) { 
+		return new QueryFactory<T>((PropertyResolver<T>) new FieldAccessor<T>(elemType, true));
+	}
+	/**
+	 * 配列として表現された行のコレクションのためのクエリ・ファクトリを生成する.
+	 * プロパティ名は列名に対応し、値は列名と同じ位置にある配列の要素から取得されます。
+	 * 列名と配列の添字の対応はこのメソッドの呼び出し時に一度だけ作成されるため、
+	 * 行ごとに{@link Map}を作成する必要も、要素の評価時にハッシュ値を計算する必要もありません。
+	 * @param columnNames 列名
+	 * @return ファクトリ・オブジェクト
+	 * @throws IllegalArgumentException 列名に{@code null}や重複が含まれる場合
+	 */
+	public static QueryFactory<Object[]> createRowQueryFactory(final String... columnNames) { 
+		return new QueryFactory<Object[]>((PropertyResolver<Object[]>) new RowAccessor(columnNames));
 	}
+	/**
+	 * 解析済みクエリのキャッシュの上限のデフォルト値.
+	 */
+	public static final int DEFAULT_CACHE_CAPACITY = 512;
 	private static final ExpressionParser p = new ExpressionParser();
-	private final Accessor<E> a;
+	private final PropertyResolver<E> r;
+	private final QueryCache<E> cache;
 	/**
 	 * ファクトリ・オブジェクトのコンストラクタ.
 	 * アクセサ・オブジェクト──クエリの条件式で指定されたプロパティを要素から取得するためのオブジェクト──をパラメータとして受け取り、
 	 * ファクトリ・オブジェクトを初期化します。
+	 * 解析済みクエリのキャッシュの上限には{@link #DEFAULT_CACHE_CAPACITY}が使用されます。
 	 * @param accessor アクセサ・オブジェクト
 	 */
 	public QueryFactory(Accessor<E> accessor) {
-		if (accessor == null) {
+		this(accessor, DEFAULT_CACHE_CAPACITY);
+	}
+	/**
+	 * ファクトリ・オブジェクトのコンストラクタ.
+	 * アクセサ・オブジェクトと解析済みクエリのキャッシュの上限をパラメータとして受け取り、
+	 * ファクトリ・オブジェクトを初期化します。
+	 * 上限に{@code 0}を指定した場合キャッシュは使用されず、{@link #create(String)}は毎回クエリをパースします。
+	 * @param accessor アクセサ・オブジェクト
+	 * @param cacheCapacity 解析済みクエリのキャッシュの上限
+	 */
+	public QueryFactory(Accessor<E> accessor, int cacheCapacity) {
+		this(accessor == null ? null : Nodes.resolver(accessor), cacheCapacity);
+	}
+	/**
+	 * ファクトリ・オブジェクトのコンストラクタ.
+	 * リゾルバ・オブジェクト──クエリの条件式で指定されたプロパティ名をリーダーに解決するためのオブジェクト──をパラメータとして受け取り、
+	 * ファクトリ・オブジェクトを初期化します。
+	 * プロパティ名の解決は{@link #create(String)}による解析済みクエリの生成時にプロパティごとに一度だけ行われます。
+	 * 解析済みクエリのキャッシュの上限には{@link #DEFAULT_CACHE_CAPACITY}が使用されます。
+	 * @param resolver リゾルバ・オブジェクト
+	 */
+	public QueryFactory(PropertyResolver<E> resolver) {
+		this(resolver, DEFAULT_CACHE_CAPACITY);
+	}
+	/**
+	 * ファクトリ・オブジェクトのコンストラクタ.
+	 * リゾルバ・オブジェクトと解析済みクエリのキャッシュの上限をパラメータとして受け取り、
+	 * ファクトリ・オブジェクトを初期化します。
+	 * 上限に{@code 0}を指定した場合キャッシュは使用されず、{@link #create(String)}は毎回クエリをパースします。
+	 * @param resolver リゾルバ・オブジェクト
+	 * @param cacheCapacity 解析済みクエリのキャッシュの上限
+	 */
+	public QueryFactory(PropertyResolver<E> resolver, int cacheCapacity) {
+		if (resolver == null || cacheCapacity < 0) {
 			throw new IllegalArgumentException();
 		}
-		this.a = accessor;
+		this.r = resolver;
+		this.cache = cacheCapacity == 0 ? null : new QueryCache<E>(cacheCapacity);
 	}
 	/**
 	 * 文字列として表現されたクエリをパースして解析済みクエリを生成する.
+	 * 同じクエリ文字列から生成された解析済みクエリがキャッシュに残っている場合はそれを返します。
+	 * このメソッドは複数のスレッドから同時に呼び出すことができます。
 	 * @param query クエリ文字列
 	 * @return 解析済みクエリ
 	 * @throws QueryParseException クエリのパースに失敗した場合
 	 */
 	public Query<E> create(String query) throws QueryParseException {
+		if (cache == null) {
+			return parse(query);
+		}
+		final Query<E> cached = cache.get(query);
+		if (cached != null) {
+			return cached;
+		}
+		final Query<E> parsed = parse(query);
+		cache.put(query, parsed);
+		return parsed;
+	}
+	/**
+	 * 解析済みクエリのキャッシュの統計情報を返す.
+	 * キャッシュが使用されていない場合は{@code null}を返します。
+	 * @return 統計情報
+	 */
+	public QueryCacheStats cacheStats() {
+		return cache == null ? null : cache.stats();
+	}
+	/**
+	 * ファクトリ・オブジェクトのリゾルバ・オブジェクトを返す.
+	 * アクセサ・オブジェクトで初期化された場合は、それを適合させたリゾルバ・オブジェクトを返します。
+	 * @return リゾルバ・オブジェクト
+	 */
+	PropertyResolver<E> resolver() {
+		return r;
+	}
+	private Query<E> parse(String query) throws QueryParseException {
 		try {
-			final ExpressionAndPlaceholders r = p.parse(query);
-			return new QueryImpl<E>(r.expression, r.placeholders, a);
+			final ExpressionAndPlaceholders parsed = p.parse(query);
+			return new QueryImpl<E>(parsed.expression, parsed.placeholders, r);
 		} catch (final ParseException e) {
 			throw new QueryParseException(e);
 		}
@@ -0,0 +1,537 @@
+package com.m12i.minque;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 多数のクエリを登録しておき、要素ごとにその要素にマッチするクエリのIDを求めるためのクエリの集合.
+ * 出版・購読型のシステムで、到着した要素を多数の購読条件と照合する用途を想定しています。
+ * 
+ * <p>クエリは登録時に比較式ごとに分解され、そのうち1つ以上がプロパティごとの索引に登録されます。
+ * 右辺が文字列の{@code ==}は文字列をキーとするハッシュ表に、右辺がそれ以外の値の{@code ==}は値をキーとするハッシュ表に、
+ * {@code is null}はリストに、{@code <}・{@code <=}・{@code >}・{@code >=}は同じプロパティに対する比較式をまとめた区間として区間木に登録されます。
+ * 論理積ではいずれか一方の被演算子の比較式だけが、論理和では両方の被演算子の比較式が登録されます。
+ * 索引に登録できる比較式を持たないクエリは、すべての要素について評価されます。</p>
+ * 
+ * <p>要素を照合する際は、索引が作成されたプロパティの値を要素ごとに一度だけ取得して索引を引き、
+ * 候補となったクエリだけを評価ノードで評価します。
+ * 照合の結果は、登録されたすべてのクエリを個別に評価した結果と常に一致します。</p>
+ * 
+ * <p>このオブジェクトは複数のスレッドから同時に使用することができます。</p>
+ * @param <E> 要素型
+ */
+public final class QuerySet<E> {
+	private final QueryFactory<E> factory;
+	private final Map<String, Subscription<E>> subscriptions = new LinkedHashMap<String, Subscription<E>>();
+	private final Map<String, PropertyIndex<E>> properties = new HashMap<String, PropertyIndex<E>>();
+	private final List<Subscription<E>> unanchored = new ArrayList<Subscription<E>>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private int sequence = 0;
+	
+	/**
+	 * クエリの集合を初期化する.
+	 * @param factory クエリの生成に使用するファクトリ
+	 */
+	public QuerySet(final QueryFactory<E> factory) {
+		if (factory == null) {
+			throw new IllegalArgumentException();
+		}
+		this.factory = factory;
+	}
+	
+	/**
+	 * クエリを登録する.
+	 * @param id クエリのID
+	 * @param query クエリ文字列
+	 * @param vars バインド変数
+	 * @throws QueryParseException クエリのパースに失敗した場合
+	 * @throws IllegalArgumentException IDがすでに登録されている場合
+	 */
+	public void add(final String id, final String query, final Object... vars) throws QueryParseException {
+		if (id == null || query == null) {
+			throw new IllegalArgumentException();
+		}
+		final BoundQueryImpl<E> bound = (BoundQueryImpl<E>) factory.create(query).bind(vars);
+		lock.writeLock().lock();
+		try {
+			if (subscriptions.containsKey(id)) {
+				throw new IllegalArgumentException("Query id is already registered: " + id);
+			}
+			final List<Anchor> anchors = anchors(bound.expression(), bound.vars());
+			final Subscription<E> sub = new Subscription<E>(id, sequence ++, bound.node(), anchors);
+			subscriptions.put(id, sub);
+			if (anchors == null) {
+				unanchored.add(sub);
+				return;
+			}
+			for (final Anchor anchor : anchors) {
+				PropertyIndex<E> index = properties.get(anchor.prop);
+				if (index == null) {
+					index = new PropertyIndex<E>(factory.resolver().resolve(anchor.prop));
+					properties.put(anchor.prop, index);
+				}
+				index.add(anchor, sub);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * クエリの登録を解除する.
+	 * @param id クエリのID
+	 * @return 登録されていた場合は{@code true}
+	 */
+	public boolean remove(final String id) {
+		lock.writeLock().lock();
+		try {
+			final Subscription<E> sub = subscriptions.remove(id);
+			if (sub == null) {
+				return false;
+			}
+			if (sub.anchors == null) {
+				unanchored.remove(sub);
+				return true;
+			}
+			for (final Anchor anchor : sub.anchors) {
+				final PropertyIndex<E> index = properties.get(anchor.prop);
+				if (index.remove(anchor, sub)) {
+					properties.remove(anchor.prop);
+				}
+			}
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * 登録されているクエリの数を返す.
+	 * @return クエリの数
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return subscriptions.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * 要素にマッチするクエリのIDを返す.
+	 * 返却されるリストのIDは登録された順に並びます。
+	 * @param elem 要素
+	 * @return 要素にマッチするクエリのID
+	 */
+	public List<String> match(final E elem) {
+		lock.readLock().lock();
+		try {
+			final List<Subscription<E>> candidates = new ArrayList<Subscription<E>>(unanchored);
+			for (final PropertyIndex<E> index : properties.values()) {
+				index.probe(elem, candidates);
+			}
+			// 複数の比較式で候補となったクエリは一度だけ評価する
+			Collections.sort(candidates, BY_SEQUENCE);
+			final List<String> result = new ArrayList<String>();
+			final BitSet seen = new BitSet();
+			for (final Subscription<E> sub : candidates) {
+				if (seen.get(sub.sequence)) {
+					continue;
+				}
+				seen.set(sub.sequence);
+				if (sub.node.test(elem)) {
+					result.add(sub.id);
+				}
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private static final Comparator<Subscription<?>> BY_SEQUENCE = new Comparator<Subscription<?>>() {
+		@Override
+		public int compare(final Subscription<?> a, final Subscription<?> b) {
+			return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+		}
+	};
+	
+	/**
+	 * 式が真となるために少なくとも1つは真となる必要がある比較式の集合を求める.
+	 * @param expr 式
+	 * @param vars バインド変数
+	 * @return 索引に登録する比較式（索引に登録できない場合は{@code null}）
+	 */
+	private static List<Anchor> anchors(final Expression expr, final Object[] vars) {
+		final Operator op = expr.getOperator();
+		if (expr.isComparative()) {
+			final Anchor anchor = Anchor.of(expr.getProperty(), op, expr.getValue(vars));
+			return anchor == null ? null : Collections.singletonList(anchor);
+		} else if (op == Operator.OR) {
+			final List<Anchor> left = anchors(expr.getLeft(), vars);
+			final List<Anchor> right = left == null ? null : anchors(expr.getRight(), vars);
+			if (right == null) {
+				return null;
+			}
+			final List<Anchor> result = new ArrayList<Anchor>(left);
+			result.addAll(right);
+			return result;
+		} else if (op == Operator.AND) {
+			final List<Anchor> left = anchors(expr.getLeft(), vars);
+			final List<Anchor> right = anchors(expr.getRight(), vars);
+			if (left == null || right == null) {
+				return left == null ? right : left;
+			}
+			// 同じプロパティの大小比較同士は1つの区間にまとめる
+			if (left.size() == 1 && right.size() == 1) {
+				final Anchor merged = left.get(0).intersect(right.get(0));
+				if (merged != null) {
+					return Collections.singletonList(merged);
+				}
+			}
+			return cost(left) <= cost(right) ? left : right;
+		}
+		// 否定は索引に登録できない
+		return null;
+	}
+	
+	private static int cost(final List<Anchor> anchors) {
+		int result = 0;
+		for (final Anchor anchor : anchors) {
+			result += anchor.cost();
+		}
+		return result;
+	}
+	
+	/**
+	 * 索引に登録される比較式.
+	 */
+	private static final class Anchor {
+		private enum Kind {
+			EQUALS_STRING, EQUALS_OBJECT, IS_NULL, RANGE
+		}
+		private final String prop;
+		private final Kind kind;
+		private final Object lo;
+		private final boolean loInclusive;
+		private final Object hi;
+		private final boolean hiInclusive;
+		private Anchor(final String prop, final Kind kind, final Object lo, final boolean loInclusive,
+				final Object hi, final boolean hiInclusive) {
+			this.prop = prop;
+			this.kind = kind;
+			this.lo = lo;
+			this.loInclusive = loInclusive;
+			this.hi = hi;
+			this.hiInclusive = hiInclusive;
+		}
+		/**
+		 * 比較式を索引に登録できる形に変換する.
+		 * @return 変換結果（索引に登録できない場合は{@code null}）
+		 */
+		static Anchor of(final String prop, final Operator op, final Object expected) {
+			switch (op) {
+			case EQUALS:
+				if (expected == null) {
+					return null;
+				}
+				return new Anchor(prop, expected instanceof String ? Kind.EQUALS_STRING : Kind.EQUALS_OBJECT,
+						expected, true, expected, true);
+			case IS_NULL:
+				return new Anchor(prop, Kind.IS_NULL, null, false, null, false);
+			case LESS_THAN:
+			case LESS_THAN_EQUAL:
+				return expected == null ? null
+						: new Anchor(prop, Kind.RANGE, null, false, expected, op == Operator.LESS_THAN_EQUAL);
+			case GREATER_THAN:
+			case GREATER_THAN_EQUAL:
+				return expected == null ? null
+						: new Anchor(prop, Kind.RANGE, expected, op == Operator.GREATER_THAN_EQUAL, null, false);
+			default:
+				return null;
+			}
+		}
+		/**
+		 * 同じプロパティに対する大小比較同士を1つの区間にまとめる.
+		 * @return まとめた区間（まとめられない場合は{@code null}）
+		 */
+		Anchor intersect(final Anchor other) {
+			if (kind != Kind.RANGE || other.kind != Kind.RANGE || !prop.equals(other.prop)) {
+				return null;
+			}
+			// 一方が下端だけ、もう一方が上端だけを持つ場合に限る
+			if (lo != null && hi == null && other.lo == null && other.hi != null) {
+				return new Anchor(prop, Kind.RANGE, lo, loInclusive, other.hi, other.hiInclusive);
+			} else if (lo == null && hi != null && other.lo != null && other.hi == null) {
+				return other.intersect(this);
+			}
+			return null;
+		}
+		/**
+		 * 索引を引いた際に候補となるクエリの多さの目安を返す.
+		 */
+		int cost() {
+			switch (kind) {
+			case EQUALS_STRING:
+			case EQUALS_OBJECT:
+				return 1;
+			case IS_NULL:
+				return 2;
+			default:
+				return lo != null && hi != null ? 4 : 8;
+			}
+		}
+	}
+	
+	/**
+	 * 登録されたクエリ.
+	 */
+	private static final class Subscription<E> {
+		private final String id;
+		private final int sequence;
+		private final Node<E> node;
+		private final List<Anchor> anchors;
+		private Subscription(final String id, final int sequence, final Node<E> node, final List<Anchor> anchors) {
+			this.id = id;
+			this.sequence = sequence;
+			this.node = node;
+			this.anchors = anchors;
+		}
+	}
+	
+	/**
+	 * プロパティごとの比較式の索引.
+	 * 区間木は要素のプロパティ値のクラスごとに、区間の端点をそのクラスに変換したうえで遅延して構築される。
+	 * 変換の規則は{@link Nodes#coerce(Class, Object)}と同じであるため、区間木は評価ノードと同じ順序で値を比較する。
+	 * ただし評価ノードが数値同士として大小比較するプロパティの区間木は、評価ノードと同じく端点を
+	 * {@link Nodes#numericLiteral(Object)}で数値に変換したうえで一度だけ構築される。
+	 */
+	private static final class PropertyIndex<E> {
+		private final PropertyReader<E> reader;
+		private final Map<String, List<Subscription<E>>> strings = new HashMap<String, List<Subscription<E>>>();
+		private final Map<Object, List<Subscription<E>>> objects = new HashMap<Object, List<Subscription<E>>>();
+		private final List<Subscription<E>> nulls = new ArrayList<Subscription<E>>();
+		private final List<Range<E>> ranges = new ArrayList<Range<E>>();
+		private final Map<Class<?>, Ranges<E>> trees = new ConcurrentHashMap<Class<?>, Ranges<E>>();
+		private volatile NumericRanges<E> numeric = null;
+		private PropertyIndex(final PropertyReader<E> reader) {
+			this.reader = reader;
+		}
+		private void add(final Anchor anchor, final Subscription<E> sub) {
+			switch (anchor.kind) {
+			case EQUALS_STRING:
+				bucket(strings, (String) anchor.lo).add(sub);
+				break;
+			case EQUALS_OBJECT:
+				bucket(objects, anchor.lo).add(sub);
+				break;
+			case IS_NULL:
+				nulls.add(sub);
+				break;
+			default:
+				ranges.add(new Range<E>(anchor, sub));
+				trees.clear();
+				numeric = null;
+			}
+		}
+		/**
+		 * 比較式の登録を解除する.
+		 * @return 索引が空になった場合は{@code true}
+		 */
+		private boolean remove(final Anchor anchor, final Subscription<E> sub) {
+			switch (anchor.kind) {
+			case EQUALS_STRING:
+				unbucket(strings, anchor.lo, sub);
+				break;
+			case EQUALS_OBJECT:
+				unbucket(objects, anchor.lo, sub);
+				break;
+			case IS_NULL:
+				nulls.remove(sub);
+				break;
+			default:
+				for (int i = 0; i < ranges.size(); i ++) {
+					if (ranges.get(i).anchor == anchor) {
+						ranges.remove(i);
+						break;
+					}
+				}
+				trees.clear();
+				numeric = null;
+			}
+			return strings.isEmpty() && objects.isEmpty() && nulls.isEmpty() && ranges.isEmpty();
+		}
+		private static <K, E> List<Subscription<E>> bucket(final Map<K, List<Subscription<E>>> map, final K key) {
+			List<Subscription<E>> list = map.get(key);
+			if (list == null) {
+				list = new ArrayList<Subscription<E>>(1);
+				map.put(key, list);
+			}
+			return list;
+		}
+		private static <K, E> void unbucket(final Map<K, List<Subscription<E>>> map, final Object key, final Subscription<E> sub) {
+			final List<Subscription<E>> list = map.get(key);
+			list.remove(sub);
+			if (list.isEmpty()) {
+				map.remove(key);
+			}
+		}
+		/**
+		 * 要素のプロパティ値で索引を引き、候補となるクエリを収集する.
+		 */
+		private void probe(final E elem, final List<Subscription<E>> candidates) {
+			final Object value = reader.read(elem);
+			if (value == null) {
+				candidates.addAll(nulls);
+				return;
+			}
+			if (!strings.isEmpty()) {
+				final List<Subscription<E>> list = strings.get(value.toString());
+				if (list != null) {
+					candidates.addAll(list);
+				}
+			}
+			if (!objects.isEmpty()) {
+				final List<Subscription<E>> list = objects.get(value);
+				if (list != null) {
+					candidates.addAll(list);
+				}
+			}
+			if (ranges.isEmpty()) {
+				return;
+			}
+			if (Nodes.comparesAsNumber(reader)) {
+				NumericRanges<E> tree = numeric;
+				if (tree == null) {
+					tree = new NumericRanges<E>(((NumericReader<E>) reader).isIntegral(), ranges);
+					numeric = tree;
+				}
+				tree.stab(value, candidates);
+			} else if (value instanceof Comparable) {
+				Ranges<E> tree = trees.get(value.getClass());
+				if (tree == null) {
+					tree = new Ranges<E>(value.getClass(), ranges);
+					trees.put(value.getClass(), tree);
+				}
+				tree.stab((Comparable<?>) value, candidates);
+			}
+		}
+	}
+	
+	/**
+	 * 区間木に登録される区間.
+	 */
+	private static final class Range<E> {
+		private final Anchor anchor;
+		private final Subscription<E> sub;
+		private Range(final Anchor anchor, final Subscription<E> sub) {
+			this.anchor = anchor;
+			this.sub = sub;
+		}
+	}
+	
+	/**
+	 * プロパティ値のクラスに合わせて端点を変換した区間の区間木.
+	 */
+	private static final class Ranges<E> {
+		private final IntervalTree<Subscription<E>> tree;
+		// 端点を値のクラスに変換できたが、変換結果が別のクラスとなった区間（常に評価する）
+		private final List<Subscription<E>> unordered = new ArrayList<Subscription<E>>();
+		@SuppressWarnings("rawtypes")
+		private Ranges(final Class<?> type, final List<Range<E>> ranges) {
+			final List<IntervalTree.Interval<Subscription<E>>> intervals = new ArrayList<IntervalTree.Interval<Subscription<E>>>();
+			for (final Range<E> r : ranges) {
+				final Comparable lo = r.anchor.lo == null ? null : Nodes.coerce(type, r.anchor.lo);
+				final Comparable hi = r.anchor.hi == null ? null : Nodes.coerce(type, r.anchor.hi);
+				if ((r.anchor.lo != null && lo == null) || (r.anchor.hi != null && hi == null)) {
+					// 変換に失敗した比較式はこのクラスの値に対して常に偽となる
+					continue;
+				}
+				if ((lo != null && lo.getClass() != type) || (hi != null && hi.getClass() != type)) {
+					unordered.add(r.sub);
+					continue;
+				}
+				intervals.add(new IntervalTree.Interval<Subscription<E>>(lo, r.anchor.loInclusive, hi, r.anchor.hiInclusive, r.sub));
+			}
+			this.tree = IntervalTree.build(intervals);
+		}
+		@SuppressWarnings("rawtypes")
+		private void stab(final Comparable value, final List<Subscription<E>> candidates) {
+			candidates.addAll(unordered);
+			tree.stab(value, candidates);
+		}
+	}
+	
+	/**
+	 * 評価ノードが数値同士として大小比較するプロパティのための、端点を数値に変換した区間の区間木.
+	 * 評価ノードは整数型のプロパティと整数の右辺を{@code long}値として、それ以外を{@code double}値として比較するため、
+	 * 整数型のプロパティについては整数の端点を持つ区間と小数の端点を持つ区間とで別々の区間木を構築する。
+	 * {@code double}値の区間木では、{@code -0.0}を{@code 0.0}とみなし、{@code NaN}はいずれの区間にも含まれないものとして、
+	 * {@link Double#compareTo(Double)}による順序をJavaの比較演算子の結果に一致させる。
+	 */
+	private static final class NumericRanges<E> {
+		private final IntervalTree<Subscription<E>> longs;
+		private final IntervalTree<Subscription<E>> doubles;
+		// 整数と小数の端点を併せ持つ区間（常に評価する）
+		private final List<Subscription<E>> unordered = new ArrayList<Subscription<E>>();
+		// 登録されたすべての区間（値が数値でなかった場合に評価する）
+		private final List<Subscription<E>> all = new ArrayList<Subscription<E>>();
+		private NumericRanges(final boolean integral, final List<Range<E>> ranges) {
+			final List<IntervalTree.Interval<Subscription<E>>> longIntervals = new ArrayList<IntervalTree.Interval<Subscription<E>>>();
+			final List<IntervalTree.Interval<Subscription<E>>> doubleIntervals = new ArrayList<IntervalTree.Interval<Subscription<E>>>();
+			for (final Range<E> r : ranges) {
+				all.add(r.sub);
+				final Number lo = r.anchor.lo == null ? null : Nodes.numericLiteral(r.anchor.lo);
+				final Number hi = r.anchor.hi == null ? null : Nodes.numericLiteral(r.anchor.hi);
+				if ((r.anchor.lo != null && lo == null) || (r.anchor.hi != null && hi == null)) {
+					// 数値に変換できない右辺を持つ比較式は常に偽となる
+					continue;
+				}
+				if (integral && !(lo instanceof Double) && !(hi instanceof Double)) {
+					longIntervals.add(new IntervalTree.Interval<Subscription<E>>((Long) lo, r.anchor.loInclusive,
+							(Long) hi, r.anchor.hiInclusive, r.sub));
+					continue;
+				} else if (integral && (lo instanceof Long || hi instanceof Long)) {
+					unordered.add(r.sub);
+					continue;
+				}
+				final Double dlo = lo == null ? null : normalize(lo.doubleValue());
+				final Double dhi = hi == null ? null : normalize(hi.doubleValue());
+				if ((lo != null && dlo.isNaN()) || (hi != null && dhi.isNaN())) {
+					// NaNとの大小比較は常に偽となる
+					continue;
+				}
+				doubleIntervals.add(new IntervalTree.Interval<Subscription<E>>(dlo, r.anchor.loInclusive,
+						dhi, r.anchor.hiInclusive, r.sub));
+			}
+			this.longs = IntervalTree.build(longIntervals);
+			this.doubles = IntervalTree.build(doubleIntervals);
+		}
+		private static Double normalize(final double d) {
+			return Double.valueOf(d == 0.0 ? 0.0 : d);
+		}
+		private void stab(final Object value, final List<Subscription<E>> candidates) {
+			if (!(value instanceof Number)) {
+				candidates.addAll(all);
+				return;
+			}
+			candidates.addAll(unordered);
+			final Number n = (Number) value;
+			longs.stab(Long.valueOf(n.longValue()), candidates);
+			final double d = n.doubleValue();
+			if (!Double.isNaN(d)) {
+				doubles.stab(normalize(d), candidates);
+			}
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.m12i.minque;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 配列として表現された行の列にアクセスするアクセサ.
+ * プロパティ名は列名として解釈され、列名と列の添字の対応はアクセサの初期化時に一度だけ作成されます。
+ * 解決済みのリーダーは配列の添字によって値を取得するため、要素の評価時にハッシュ値の計算やオブジェクトの生成は行われません。
+ * 該当する列が存在しないプロパティや、行の長さを超える添字の列の値は{@code null}となります。
+ * {@code .}を含むプロパティ名は、同名の列が存在すればその列に、存在しなければ列の値をたどるパスとして解釈されます。
+ */
+final class RowAccessor implements Accessor<Object[]>, PropertyResolver<Object[]> {
+	// 列名と列の添字の対応
+	private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+	
+	/**
+	 * アクセサを初期化する.
+	 * @param columnNames 列名
+	 * @throws IllegalArgumentException 列名に{@code null}や重複が含まれる場合
+	 */
+	RowAccessor(final String... columnNames) {
+		if (columnNames == null) {
+			throw new IllegalArgumentException();
+		}
+		for (int i = 0; i < columnNames.length; i ++) {
+			if (columnNames[i] == null || indexes.put(columnNames[i], i) != null) {
+				throw new IllegalArgumentException("Column names must be non-null and unique.");
+			}
+		}
+	}
+	
+	@Override
+	public PropertyReader<Object[]> resolve(final String prop) {
+		final Integer index = indexes.get(prop);
+		if (index != null) {
+			return new ColumnReader(index);
+		}
+		// 列名として存在しない場合に限り、.を含む名前を列の値をたどるパスとして解釈する
+		return Paths.isPath(prop) ? Paths.reader(prop, this, Paths.BEANS) : Nodes.<Object[]>nullReader();
+	}
+	
+	@Override
+	public Object accsess(final Object[] elem, final String prop) {
+		return resolve(prop).read(elem);
+	}
+	
+	/**
+	 * 行の特定の列を読み取るリーダー.
+	 */
+	private static final class ColumnReader implements PropertyReader<Object[]> {
+		private final int index;
+		private ColumnReader(final int index) {
+			this.index = index;
+		}
+		@Override
+		public Object read(final Object[] elem) {
+			return index < elem.length ? elem[index] : null;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.m12i.minque;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 行番号の集合で指定された行だけからなるビュー.
+ * 索引や列指向のテーブルによって絞り込まれた検索対象として使用されます。
+ * @param <E> 要素型
+ */
+final class RowList<E> extends AbstractList<E> implements RandomAccess {
+	private final List<E> rows;
+	private final int[] found;
+	private final boolean exact;
+	
+	/**
+	 * ビューを初期化する.
+	 * @param rows 行のリスト
+	 * @param found 行番号の集合（重複のない昇順の配列）
+	 * @param exact 集合が式にマッチする行だけからなる場合は{@code true}
+	 */
+	RowList(final List<E> rows, final int[] found, final boolean exact) {
+		this.rows = rows;
+		this.found = found;
+		this.exact = exact;
+	}
+	
+	/**
+	 * 検索対象が式にマッチする要素だけからなるかどうかを返す.
+	 * 列ごとの走査によって遅延して求められる要素（{@link Columns.Scan}）も式にマッチする要素だけからなる。
+	 * @param candidates 検索対象
+	 * @return 再評価が不要な場合は{@code true}
+	 */
+	static boolean isExact(final Iterable<?> candidates) {
+		return candidates instanceof Columns.Scan
+				|| candidates instanceof RowList && ((RowList<?>) candidates).exact;
+	}
+	
+	@Override
+	public E get(final int index) {
+		return rows.get(found[index]);
+	}
+	
+	@Override
+	public int size() {
+		return found.length;
+	}
+}
@@ -0,0 +1,109 @@
+package com.m12i.minque;
+
+import java.util.Arrays;
+
+/**
+ * 行番号の集合を操作するためのユーティリティ.
+ * 行番号の集合は重複のない昇順の{@code int}配列として表現します。
+ */
+final class Rows {
+	private Rows() {}
+	
+	static final int[] EMPTY = new int[0];
+	
+	/**
+	 * 2つの集合の積集合を返す.
+	 * @param a 集合
+	 * @param b 集合
+	 * @return 積集合
+	 */
+	static int[] intersect(final int[] a, final int[] b) {
+		final int[] result = new int[Math.min(a.length, b.length)];
+		int i = 0, j = 0, k = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i ++;
+			} else if (a[i] > b[j]) {
+				j ++;
+			} else {
+				result[k ++] = a[i];
+				i ++;
+				j ++;
+			}
+		}
+		return k == result.length ? result : Arrays.copyOf(result, k);
+	}
+	
+	/**
+	 * 2つの集合の和集合を返す.
+	 * @param a 集合
+	 * @param b 集合
+	 * @return 和集合
+	 */
+	static int[] union(final int[] a, final int[] b) {
+		final int[] result = new int[a.length + b.length];
+		int i = 0, j = 0, k = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				result[k ++] = a[i ++];
+			} else if (a[i] > b[j]) {
+				result[k ++] = b[j ++];
+			} else {
+				result[k ++] = a[i];
+				i ++;
+				j ++;
+			}
+		}
+		while (i < a.length) {
+			result[k ++] = a[i ++];
+		}
+		while (j < b.length) {
+			result[k ++] = b[j ++];
+		}
+		return k == result.length ? result : Arrays.copyOf(result, k);
+	}
+	
+	/**
+	 * {@code 0}から{@code size - 1}までの行番号のうち集合に含まれないものを返す.
+	 * @param a 集合
+	 * @param size 行数
+	 * @return 補集合
+	 */
+	static int[] complement(final int[] a, final int size) {
+		final int[] result = new int[size - a.length];
+		int j = 0, k = 0;
+		for (int i = 0; i < size; i ++) {
+			if (j < a.length && a[j] == i) {
+				j ++;
+			} else {
+				result[k ++] = i;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * 行番号の集合を組み立てるためのビルダー.
+	 * 行番号は昇順に追加する必要があります。
+	 * 直前に追加したものと同じ行番号は無視されます。
+	 */
+	static final class Builder {
+		private int[] rows = new int[4];
+		private int size = 0;
+		void add(final int row) {
+			if (size > 0 && rows[size - 1] == row) {
+				return;
+			}
+			if (size == rows.length) {
+				rows = Arrays.copyOf(rows, size * 2);
+			}
+			rows[size ++] = row;
+		}
+		int size() {
+			return size;
+		}
+		int[] toArray() {
+			return Arrays.copyOf(rows, size);
+		}
+	}
+}
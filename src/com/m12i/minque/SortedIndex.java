@@ -0,0 +1,177 @@
+package com.m12i.minque;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * プロパティの値の順序で行番号を保持するソート済み索引.
+ * {@code <}・{@code <=}・{@code >}・{@code >=}に対応します。
+ * {@code null}でないプロパティ値はすべて同じクラスの{@link Comparable}である必要があります。
+ * 右辺の値は比較ノードと同じ規則でそのクラスの値に変換されたうえで二分探索に使用されます。
+ * 
+ * <p>比較ノードがJavaの比較演算子で比較する{@code double}型のプロパティ（{@link Nodes#comparesAsNumber(PropertyReader)}）では、
+ * {@code -0.0}と{@code 0.0}を同じ値とみなし、いずれの比較式にもマッチしない{@code NaN}の行は索引に含めません。</p>
+ */
+final class SortedIndex implements Index {
+	private final Class<?> type;
+	// -0.0を0.0とみなし、右辺の値をNodes#numericLiteralで変換する場合はtrue
+	private final boolean numeric;
+	@SuppressWarnings("rawtypes")
+	private final Comparable[] keys;
+	private final int[] rows;
+	
+	/**
+	 * 索引を初期化する.
+	 * @param rows 行のリスト
+	 * @param reader プロパティを読み取るためのリーダー
+	 * @throws IllegalArgumentException プロパティ値が{@link Comparable}でない場合、もしくは複数のクラスの値が混在している場合
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	<E> SortedIndex(final List<E> rows, final PropertyReader<E> reader) {
+		final List<Entry> entries = new ArrayList<Entry>();
+		final boolean numeric = Nodes.comparesAsNumber(reader) && !((NumericReader<E>) reader).isIntegral();
+		Class<?> type = null;
+		final int size = rows.size();
+		for (int i = 0; i < size; i ++) {
+			final Object value = numeric ? readDouble((NumericReader<E>) reader, rows.get(i)) : reader.read(rows.get(i));
+			if (value == null) {
+				continue;
+			}
+			if (type == null) {
+				type = value.getClass();
+			}
+			if (!(value instanceof Comparable) || value.getClass() != type) {
+				throw new IllegalArgumentException("Values must be instances of the same Comparable class.");
+			}
+			entries.add(new Entry((Comparable) value, i));
+		}
+		// 同じ値の行は行番号順に並ぶ（Collections#sortは安定ソート）
+		Collections.sort(entries);
+		this.type = numeric ? Double.class : type;
+		this.numeric = numeric;
+		this.keys = new Comparable[entries.size()];
+		this.rows = new int[entries.size()];
+		for (int i = 0; i < keys.length; i ++) {
+			keys[i] = entries.get(i).key;
+			this.rows[i] = entries.get(i).row;
+		}
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	public int[] lookup(final Operator op, final Object expected) {
+		if (!op.forOrdered) {
+			return null;
+		}
+		if (type == null) {
+			// 非nullの値が1つもなければどの行も大小比較にマッチしない
+			return Rows.EMPTY;
+		}
+		final Comparable lit = numeric ? numericLiteral(expected) : Nodes.coerce(type, expected);
+		if (numeric && lit == null) {
+			// 比較ノードは数値に変換できない右辺やNaNとの比較を常に偽とする
+			return Rows.EMPTY;
+		} else if (lit == null) {
+			// 右辺の値を変換できない場合は索引を使わず評価させる
+			return null;
+		}
+		try {
+			switch (op) {
+			case LESS_THAN:
+				return range(0, lowerBound(lit));
+			case LESS_THAN_EQUAL:
+				return range(0, upperBound(lit));
+			case GREATER_THAN:
+				return range(upperBound(lit), keys.length);
+			default:
+				return range(lowerBound(lit), keys.length);
+			}
+		} catch (final ClassCastException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * プロパティを{@code double}値として読み取り、{@code -0.0}を{@code 0.0}に揃えて返す.
+	 * @return 読み取り結果（{@code NaN}の場合や値を読み取れなかった場合は{@code null}）
+	 */
+	private static <E> Double readDouble(final NumericReader<E> reader, final E elem) {
+		final double value;
+		try {
+			value = reader.readDouble(elem);
+		} catch (final NumericReader.Unreadable e) {
+			return null;
+		}
+		return Double.isNaN(value) ? null : Double.valueOf(value == 0.0 ? 0.0 : value);
+	}
+	
+	/**
+	 * 右辺の値を{@code double}値に変換し、{@code -0.0}を{@code 0.0}に揃えて返す.
+	 * @return 変換結果（変換できない場合や{@code NaN}の場合は{@code null}）
+	 */
+	private static Double numericLiteral(final Object expected) {
+		final Number n = Nodes.numericLiteral(expected);
+		if (n == null || Double.isNaN(n.doubleValue())) {
+			return null;
+		}
+		final double d = n.doubleValue();
+		return Double.valueOf(d == 0.0 ? 0.0 : d);
+	}
+	
+	/**
+	 * 値が右辺の値以上である最初の位置を返す.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private int lowerBound(final Comparable lit) {
+		int lo = 0, hi = keys.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (keys[mid].compareTo(lit) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+	
+	/**
+	 * 値が右辺の値より大きい最初の位置を返す.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private int upperBound(final Comparable lit) {
+		int lo = 0, hi = keys.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (keys[mid].compareTo(lit) <= 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+	
+	private int[] range(final int from, final int to) {
+		final int[] result = Arrays.copyOfRange(rows, from, to);
+		Arrays.sort(result);
+		return result;
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static final class Entry implements Comparable<Entry> {
+		private final Comparable key;
+		private final int row;
+		private Entry(final Comparable key, final int row) {
+			this.key = key;
+			this.row = row;
+		}
+		@Override
+		@SuppressWarnings("unchecked")
+		public int compareTo(final Entry o) {
+			return key.compareTo(o.key);
+		}
+	}
+}
@@ -0,0 +1,320 @@
+package com.m12i.minque;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ColumnarTableTest {
+	
+	// 評価された回数を数えるアクセサ
+	private static final int[] evaluated = {0};
+	private static final Accessor<Map<String, Object>> accessor = new Accessor<Map<String,Object>>() {
+		@Override
+		public Object accsess(Map<String, Object> elem, String prop) {
+			evaluated[0] ++;
+			return elem.get(prop);
+		}
+	};
+	private static final QueryFactory<Map<String, Object>> factory = new QueryFactory<Map<String,Object>>(accessor);
+	
+	private static final List<Map<String, Object>> list = new ArrayList<Map<String,Object>>();
+	
+	private static ColumnarTable<Map<String, Object>> table;
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		final String[] names = {"foo", "bar", "baz", "qux", "foobar"};
+		final double[] doubles = {0.5, -0.0, 0.0, Double.NaN, 1.0, 100.25};
+		for (int i = 0; i < 1000; i ++) {
+			final Map<String, Object> m = new HashMap<String, Object>();
+			m.put("i", i % 7 == 0 ? null : Integer.valueOf(i % 50 - 25));
+			m.put("l", Long.valueOf(i * 1000000000L));
+			m.put("d", i % 11 == 0 ? null : Double.valueOf(doubles[i % doubles.length]));
+			m.put("s", i % 13 == 0 ? null : names[i % names.length]);
+			m.put("o", i % 2 == 0 ? (Object) Integer.valueOf(i % 10) : (Object) ("x" + i % 10));
+			m.put("b", i % 3 == 0);
+			list.add(m);
+		}
+		table = new ColumnarTable<Map<String,Object>>(list, accessor);
+	}
+	
+	private static void assertSameResult(String query, Object... vars) throws QueryParseException {
+		final BoundQuery<Map<String, Object>> q = factory.create(query).bind(vars);
+		assertThat(query, q.selectFrom(table), is(q.selectFrom(list)));
+		assertThat(query, q.countIn(table), is(q.countIn(list)));
+		assertThat(query, q.selectFromParallel(table), is(q.selectFrom(list)));
+	}
+
+	@Test
+	public void selectFromTest00() throws QueryParseException {
+		assertSameResult("i == 1");
+		assertSameResult("i == -1");
+		assertSameResult("i == 01");
+		assertSameResult("i == ?", 1);
+		assertSameResult("i == ?", 1L);
+		assertSameResult("i != 1");
+		assertSameResult("i != ?", 1L);
+		assertSameResult("i is null");
+		assertSameResult("i is not null");
+		assertSameResult("i < 0");
+		assertSameResult("i <= 0");
+		assertSameResult("i > 10");
+		assertSameResult("i >= ?", 10L);
+		assertSameResult("i >= 1.5");
+		assertSameResult("i >= x");
+		assertSameResult("i ^= 1");
+		assertSameResult("i $= 1");
+		assertSameResult("i *= -");
+	}
+
+	@Test
+	public void selectFromTest01() throws QueryParseException {
+		assertSameResult("l == 1000000000");
+		assertSameResult("l == ?", 2000000000L);
+		assertSameResult("l == ?", 1);
+		assertSameResult("l != 1000000000");
+		assertSameResult("l < 100000000000");
+		assertSameResult("l >= ?", 500000000000L);
+		assertSameResult("l > ?", 5);
+		assertSameResult("l $= 000");
+	}
+
+	@Test
+	public void selectFromTest02() throws QueryParseException {
+		assertSameResult("d == 0.5");
+		assertSameResult("d == 0.0");
+		assertSameResult("d == -0.0");
+		assertSameResult("d == NaN");
+		assertSameResult("d == 1");
+		assertSameResult("d == ?", 1.0);
+		assertSameResult("d == ?", Double.NaN);
+		assertSameResult("d != 0.5");
+		assertSameResult("d is null");
+		assertSameResult("d < 0.0");
+		assertSameResult("d <= 0");
+		assertSameResult("d > 0.5");
+		assertSameResult("d >= ?", -0.0);
+		assertSameResult("d > ?", 100);
+		assertSameResult("d < NaN");
+		assertSameResult("d >= NaN");
+	}
+
+	@Test
+	public void selectFromTest03() throws QueryParseException {
+		assertSameResult("s == foo");
+		assertSameResult("s == none");
+		assertSameResult("s == ?", 1);
+		assertSameResult("s != foo");
+		assertSameResult("s != ?", 1);
+		assertSameResult("s is null");
+		assertSameResult("s ^= foo");
+		assertSameResult("s $= r");
+		assertSameResult("s *= a");
+		assertSameResult("s < bar");
+		assertSameResult("s >= foo");
+		assertSameResult("s ^= foob");
+		assertSameResult("s ^= zzz");
+		assertSameResult("s *= ''");
+		assertSameResult("!(s $= ?)", "ar");
+		assertSameResult("o == 1");
+		assertSameResult("o == x1");
+		assertSameResult("o < 5");
+		assertSameResult("o ^= x");
+		assertSameResult("b == true");
+		assertSameResult("b != true");
+	}
+
+	@Test
+	public void selectFromTest04() throws QueryParseException {
+		assertSameResult("i < 0 and s == foo");
+		assertSameResult("i < 0 or s == foo");
+		assertSameResult("!(i < 0)");
+		assertSameResult("d is not null and !(s ^= foo or l > ?)", 100000000000L);
+		assertSameResult("(i > 10 or d < 0.5) and s *= ba and b == false");
+	}
+
+	@Test
+	public void selectFromTest05() throws QueryParseException {
+		final ColumnarTable<Map<String, Object>> t = new ColumnarTable<Map<String,Object>>(list, accessor);
+		assertThat(factory.create("i < 0 and s == foo").countIn(t), is(factory.create("i < 0 and s == foo").countIn(list)));
+		evaluated[0] = 0;
+		factory.create("i < 0 and s == foo").countIn(t);
+		factory.create("i >= 0 or s ^= b").selectFrom(t);
+		// 作成済みの列だけで評価できるクエリではアクセサが呼び出されない
+		assertThat(evaluated[0], is(0));
+		t.createColumn("d");
+		assertThat(evaluated[0], is(1000));
+		t.createColumn("d");
+		assertThat(evaluated[0], is(1000));
+	}
+
+	@Test
+	public void selectFromTest06() throws QueryParseException {
+		// プリミティブ値として読み取られる列では数値として大小比較される
+		final PrimitiveAccessor<int[]> pa = new PrimitiveAccessor<int[]>() {
+			@Override
+			public Object accsess(int[] elem, String prop) {
+				return prop.equals("i") ? (Object) getInt(elem, prop) : prop.equals("l") ? (Object) getLong(elem, prop) : (Object) getDouble(elem, prop);
+			}
+			@Override
+			public Class<?> typeOf(String prop) {
+				return prop.equals("i") ? int.class : prop.equals("l") ? long.class : double.class;
+			}
+			@Override
+			public int getInt(int[] elem, String prop) {
+				return elem[0];
+			}
+			@Override
+			public long getLong(int[] elem, String prop) {
+				return elem[0];
+			}
+			@Override
+			public double getDouble(int[] elem, String prop) {
+				return elem[0] / 2.0;
+			}
+		};
+		final List<int[]> ints = new ArrayList<int[]>();
+		for (int i = 0; i < 100; i ++) {
+			ints.add(new int[]{i});
+		}
+		final ColumnarTable<int[]> t = new ColumnarTable<int[]>(ints, pa);
+		final QueryFactory<int[]> f = new QueryFactory<int[]>(pa);
+		final String[] queries = {"i < 10.5", "i >= 10", "l > 9.5", "l == 10", "d <= 10", "d == 10.0", "d != 1", "i < x"};
+		for (final String query : queries) {
+			final Query<int[]> q = f.create(query);
+			assertThat(query, q.selectFrom(t), is(q.selectFrom(ints)));
+		}
+		assertThat(f.create("i < 10.5").countIn(t), is(11));
+	}
+
+	public static final class NumberBean {
+		private final int i;
+		NumberBean(int i) {
+			this.i = i;
+		}
+		public int getAge() {
+			return i;
+		}
+		public long getSize() {
+			return i;
+		}
+		public double getRatio() {
+			return i / 2.0;
+		}
+	}
+
+	@Test
+	public void selectFromTest07() throws QueryParseException {
+		// 数値型のgetterの列もリストと同じ規則で大小比較される
+		final List<NumberBean> beans = new ArrayList<NumberBean>();
+		for (int i = 0; i < 100; i ++) {
+			beans.add(new NumberBean(i));
+		}
+		final BeanAccessor<NumberBean> ba = new BeanAccessor<NumberBean>(NumberBean.class);
+		final ColumnarTable<NumberBean> t = new ColumnarTable<NumberBean>(beans, ba);
+		final QueryFactory<NumberBean> f = QueryFactory.createBeanQueryFactory(NumberBean.class);
+		final String[] queries = {"age < 30.5", "age >= 30", "size > 9.5", "size == 10", "ratio <= 10", "ratio < 10.25", "age < x"};
+		for (final String query : queries) {
+			final Query<NumberBean> q = f.create(query);
+			assertThat(query, q.selectFrom(t), is(q.selectFrom(beans)));
+		}
+		assertThat(f.create("age < 30").countIn(t), is(30));
+		// int型のgetterと小数の右辺との大小比較はInteger型のgetterと同じく成立しない
+		assertThat(f.create("age < 30.5").countIn(t), is(0));
+	}
+
+	@Test
+	public void selectFromParallelTest00() throws QueryParseException {
+		// 複数のモーセルに分割されるテーブル
+		final List<Map<String, Object>> large = new ArrayList<Map<String,Object>>();
+		for (int i = 0; i < Morsels.MORSEL_SIZE * 3 + 100; i ++) {
+			final Map<String, Object> m = new HashMap<String, Object>();
+			m.put("i", i % 7 == 0 ? null : Integer.valueOf(i % 50 - 25));
+			m.put("d", Double.valueOf(i % 9 * 0.5));
+			m.put("s", i % 13 == 0 ? null : "s" + i % 100);
+			large.add(m);
+		}
+		final ColumnarTable<Map<String, Object>> columnar = new ColumnarTable<Map<String,Object>>(large, accessor);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (final String query : new String[]{"i > 0 and s ^= s1", "i is null or d >= 3.5", "d < 1 and !(s $= 7)"}) {
+				final BoundQuery<Map<String, Object>> q = factory.create(query).bind();
+				final List<Map<String, Object>> expected = q.selectFrom(large);
+				assertThat(query, q.selectFromParallel(columnar, pool), is(expected));
+				assertThat(query, q.selectFromParallel(large, pool), is(expected));
+				assertThat(query, q.countInParallel(columnar, pool), is((long) expected.size()));
+				assertThat(query, q.countInParallel(large, pool), is((long) expected.size()));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void scanTest00() throws QueryParseException {
+		// 複数のモーセルに分割されるテーブル
+		final List<Map<String, Object>> large = new ArrayList<Map<String,Object>>();
+		for (int i = 0; i < Morsels.MORSEL_SIZE * 3 + 100; i ++) {
+			final Map<String, Object> m = new HashMap<String, Object>();
+			m.put("i", Integer.valueOf(i % 50));
+			large.add(m);
+		}
+		final ColumnarTable<Map<String, Object>> columnar = new ColumnarTable<Map<String,Object>>(large, accessor);
+		for (final String query : new String[]{"i == 3", "i > 48", "i == 100"}) {
+			final BoundQuery<Map<String, Object>> q = factory.create(query).bind();
+			assertThat(query, q.existsIn(columnar), is(q.existsIn(large)));
+			assertThat(query, q.selectOneFrom(columnar), is(q.selectOneFrom(large)));
+			assertThat(query, q.selectFrom(columnar, 10), is(q.selectFrom(large, 10)));
+			assertThat(query, q.selectFrom(columnar, 20, 10), is(q.selectFrom(large, 20, 10)));
+			assertThat(query, q.countIn(columnar, 5), is(q.countIn(large, 5)));
+			assertThat(query, q.selectFrom(columnar), is(q.selectFrom(large)));
+		}
+	}
+
+	@Test
+	public void scanTest01() {
+		// 走査されたモーセルの数を数える
+		final int[] scanned = {0};
+		final Columns.Selector everyOther = new Columns.Selector() {
+			@Override
+			public long[] select(final int from, final int to) {
+				scanned[0] ++;
+				final long[] words = new long[(to - from + 63) >>> 6];
+				for (int i = 0; i < to - from; i += 2) {
+					words[i >>> 6] |= 1L << i;
+				}
+				return words;
+			}
+		};
+		final List<Integer> rows = new ArrayList<Integer>();
+		for (int i = 0; i < Morsels.MORSEL_SIZE * 3 + 100; i ++) {
+			rows.add(i);
+		}
+		final Iterable<Integer> scan = Columns.scan(rows, everyOther);
+		assertThat(RowList.isExact(scan), is(true));
+		
+		final Iterator<Integer> iter = scan.iterator();
+		assertThat(scanned[0], is(0));
+		assertThat(iter.next(), is(0));
+		assertThat(iter.next(), is(2));
+		assertThat(scanned[0], is(1));
+		
+		scanned[0] = 0;
+		int count = 0;
+		for (final Integer i : scan) {
+			assertThat(i, is(count * 2));
+			count ++;
+		}
+		assertThat(count, is((rows.size() + 1) / 2));
+		assertThat(scanned[0], is(4));
+	}
+}
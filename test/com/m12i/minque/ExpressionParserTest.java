@@ -266,4 +266,23 @@ public class ExpressionParserTest {
 		//	        value(4)
 		assertTrue(expr0.toString().equals(expr1.toString()));
 	}
+
+	@Test
+	public void parseTest19() {
+		assertThat(parse("a < 1").getOperator(), is(Operator.LESS_THAN));
+		assertThat(parse("a <= 1").getOperator(), is(Operator.LESS_THAN_EQUAL));
+		assertThat(parse("a > 1").getOperator(), is(Operator.GREATER_THAN));
+		assertThat(parse("a >= 1").getOperator(), is(Operator.GREATER_THAN_EQUAL));
+		assertThat(parse("a >= 1").getValue().toString(), is("1"));
+	}
+
+	@Test
+	public void parseTest20() {
+		final ExpressionAndPlaceholders r = parser.parse("a == ? and (b == 1 or c < ?)");
+		assertThat(r.placeholders.amount(), is(2));
+		assertTrue(r.expression.getLeft().getRight().isPlaceholder());
+		assertThat(r.expression.getLeft().getPlaceholderIndex(), is(0));
+		assertFalse(r.expression.getRight().getLeft().getRight().isPlaceholder());
+		assertThat(r.expression.getRight().getRight().getPlaceholderIndex(), is(1));
+	}
 }
@@ -0,0 +1,340 @@
+package com.m12i.minque;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class IndexedCollectionTest {
+	
+	private static final QueryFactory<Map<String, Object>> factory = QueryFactory.createMapQueryFactory();
+	
+	// 評価された回数を数えるアクセサ
+	private static final int[] evaluated = {0};
+	private static final QueryFactory<Map<String, Object>> countingFactory = new QueryFactory<Map<String,Object>>(new Accessor<Map<String,Object>>() {
+		@Override
+		public Object accsess(Map<String, Object> elem, String prop) {
+			evaluated[0] ++;
+			return elem.get(prop);
+		}
+	});
+	
+	private static final List<Map<String, Object>> list = new ArrayList<Map<String,Object>>();
+	
+	private static IndexedCollection<Map<String, Object>> indexed;
+	
+	private static Map<String, Object> makeMap(int id, String name, Integer age) {
+		final Map<String, Object> result = new HashMap<String, Object>();
+		result.put("id", id);
+		result.put("name", name);
+		result.put("age", age);
+		return result;
+	}
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		final String[] names = {"foo", "bar", "baz", "qux"};
+		for (int i = 0; i < 1000; i ++) {
+			list.add(makeMap(i, names[i % names.length], i % 10 == 0 ? null : Integer.valueOf(i % 90)));
+		}
+		indexed = new IndexedCollection<Map<String,Object>>(list, new Accessor<Map<String,Object>>() {
+			@Override
+			public Object accsess(Map<String, Object> elem, String prop) {
+				return elem.get(prop);
+			}
+		});
+		indexed.createHashIndex("id");
+		indexed.createHashIndex("name");
+		indexed.createHashIndex("age");
+		indexed.createSortedIndex("age");
+		indexed.createPrefixIndex("name");
+		indexed.createSuffixIndex("name");
+		indexed.createNgramIndex("name");
+	}
+	
+	private static void assertSameResult(String query, Object... vars) throws QueryParseException {
+		final BoundQuery<Map<String, Object>> q = factory.create(query).bind(vars);
+		assertThat(query, q.selectFrom(indexed), is(q.selectFrom(list)));
+		assertThat(query, q.countIn(indexed), is(q.countIn(list)));
+		assertThat(query, q.selectFromParallel(indexed), is(q.selectFrom(list)));
+	}
+
+	@Test
+	public void selectFromTest00() throws QueryParseException {
+		assertSameResult("id == 10");
+		assertSameResult("id == ?", 10);
+		assertSameResult("id == ?", 10L);
+		assertSameResult("id != 10");
+		assertSameResult("name == foo");
+		assertSameResult("name != foo");
+		assertSameResult("name == none");
+		assertSameResult("age is null");
+		assertSameResult("age is not null");
+		assertSameResult("age < 10");
+		assertSameResult("age <= 10");
+		assertSameResult("age > 80");
+		assertSameResult("age >= 80");
+		assertSameResult("age >= ?", 80);
+		assertSameResult("age >= x");
+		assertSameResult("age < 10 and name == foo");
+		assertSameResult("age < 10 or name == foo");
+		assertSameResult("age < 10 and id *= 1");
+		assertSameResult("age < 10 or id *= 1");
+		assertSameResult("!(name == foo)");
+		assertSameResult("(age > 80 or age < 5) and !(name == foo)");
+	}
+
+	@Test
+	public void selectFromTest01() throws QueryParseException {
+		evaluated[0] = 0;
+		assertThat(countingFactory.create("id == 10").selectOneFrom(indexed).get("id"), is((Object) 10));
+		assertThat(evaluated[0], is(1));
+		
+		evaluated[0] = 0;
+		assertThat(countingFactory.create("age < 3 and name == bar").countIn(indexed), is(6));
+		// 索引で絞り込まれた候補だけが評価される
+		assertThat(evaluated[0], is(12));
+		
+		evaluated[0] = 0;
+		countingFactory.create("!(id == 10)").countIn(indexed);
+		assertThat(evaluated[0], is(1000));
+	}
+
+	@Test
+	public void selectFromTest10() throws QueryParseException {
+		assertSameResult("name ^= f");
+		assertSameResult("name ^= ba");
+		assertSameResult("name ^= bar");
+		assertSameResult("name ^= barr");
+		assertSameResult("name ^= ''");
+		assertSameResult("name $= z");
+		assertSameResult("name $= ux");
+		assertSameResult("name $= ?", "qux");
+		assertSameResult("name *= a");
+		assertSameResult("name *= ar");
+		assertSameResult("name *= qux");
+		assertSameResult("name *= ?", "quxx");
+		assertSameResult("name *= ''");
+		assertSameResult("name ^= b and name $= r");
+		assertSameResult("name *= u or age < 2");
+	}
+
+	@Test
+	public void selectFromTest11() throws QueryParseException {
+		final List<Map<String, Object>> words = new ArrayList<Map<String,Object>>();
+		final String[] names = {"abcdabce", "xabcdx", "abcabc", "dabc", "bcda", "abcd"};
+		for (int i = 0; i < names.length; i ++) {
+			words.add(makeMap(i, names[i], null));
+		}
+		final IndexedCollection<Map<String, Object>> c = new IndexedCollection<Map<String,Object>>(words, new Accessor<Map<String,Object>>() {
+			@Override
+			public Object accsess(Map<String, Object> elem, String prop) {
+				evaluated[0] ++;
+				return elem.get(prop);
+			}
+		});
+		c.createNgramIndex("name");
+		evaluated[0] = 0;
+		final List<Map<String, Object>> res = countingFactory.create("name *= abcd").selectFrom(c);
+		assertThat(res.size(), is(3));
+		// 3-gramの積集合に含まれる"abcabc"以外の候補のみが評価される（"abcabc"は"bcd"を含まない）
+		assertThat(evaluated[0], is(3));
+		evaluated[0] = 0;
+		assertThat(countingFactory.create("name *= cabc").countIn(c), is(1));
+		// "cab"と"abc"をともに含む"abcabc"が評価され、"bca"を含まない"abcdabce"も評価されない
+		assertThat(evaluated[0], is(1));
+	}
+
+	@Test
+	public void selectFromTest20() throws QueryParseException {
+		final IndexedCollection<Map<String, Object>> c = new IndexedCollection<Map<String,Object>>(list, new Accessor<Map<String,Object>>() {
+			@Override
+			public Object accsess(Map<String, Object> elem, String prop) {
+				evaluated[0] ++;
+				return elem.get(prop);
+			}
+		});
+		c.createBitmapIndex("name");
+		c.createBitmapIndex("age");
+		c.createHashIndex("id");
+		final String[] queries = {
+				"name == foo",
+				"name != foo",
+				"name == none",
+				"age is null",
+				"age is not null",
+				"name == foo or name == bar",
+				"!(name == foo) and age is not null",
+				"!(name == foo or age == '1')",
+				"name == foo and age == ?",
+				"name == foo and id == 40",
+				"!(id == 40)",
+				"!(name == bar and age < 3)",
+		};
+		for (final String query : queries) {
+			final BoundQuery<Map<String, Object>> q = countingFactory.create(query).bind(query.contains("?") ? new Object[]{ 4 } : new Object[0]);
+			assertThat(query, q.selectFrom(c), is(q.selectFrom(list)));
+			assertThat(query, q.countIn(c), is(q.countIn(list)));
+			assertThat(query, q.selectFromParallel(c), is(q.selectFrom(list)));
+		}
+		
+		// ビットマップ索引だけで正確に評価できる式では要素が再評価されない
+		evaluated[0] = 0;
+		assertThat(countingFactory.create("age is not null and !(name == foo or name == bar)").countIn(c), is(450));
+		assertThat(evaluated[0], is(0));
+		
+		// 右辺が文字列以外の場合や、索引で評価できない式を含む場合は候補が再評価される
+		evaluated[0] = 0;
+		assertThat(countingFactory.create("name == foo and age == ?").countIn(c, 4), is(6));
+		assertThat(evaluated[0], is(12));
+	}
+
+	@Test
+	public void selectFromTest30() throws QueryParseException {
+		final List<Map<String, Object>> words = new ArrayList<Map<String,Object>>();
+		final String[] names = {"foo", "bar", "baz", "qux", "foobar"};
+		for (int i = 0; i < 1000; i ++) {
+			words.add(makeMap(i, i % 9 == 0 ? null : names[i % names.length], i % 90));
+		}
+		final IndexedCollection<Map<String, Object>> c = new IndexedCollection<Map<String,Object>>(words, new Accessor<Map<String,Object>>() {
+			@Override
+			public Object accsess(Map<String, Object> elem, String prop) {
+				evaluated[0] ++;
+				return elem.get(prop);
+			}
+		});
+		c.createDictionaryIndex("name");
+		final String[] queries = {
+				"name == foo",
+				"name == ?",
+				"name != foo",
+				"name != ?",
+				"name is null",
+				"name is not null",
+				"name ^= foo",
+				"name $= ?",
+				"name *= a",
+				"name < baz",
+				"name >= ?",
+				"!(name *= o)",
+				"name ^= b and !(name $= z)",
+				"name ^= q or age < 3",
+		};
+		for (final String query : queries) {
+			final BoundQuery<Map<String, Object>> q = countingFactory.create(query).bind(query.contains("?") ? new Object[]{ "bar" } : new Object[0]);
+			assertThat(query, q.selectFrom(c), is(q.selectFrom(words)));
+			assertThat(query, q.countIn(c), is(q.countIn(words)));
+		}
+		assertThat(countingFactory.create("name == ?").countIn(c, 1), is(0));
+		
+		// 辞書索引だけで評価できる式では要素が再評価されない
+		evaluated[0] = 0;
+		assertThat(countingFactory.create("name *= ba and !(name $= z)").countIn(c), is(355));
+		assertThat(evaluated[0], is(0));
+		
+		try {
+			c.createDictionaryIndex("age");
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// Ok.
+		}
+	}
+
+	@Test
+	public void bitmapTest00() {
+		final int[] rows = {0, 3, 63, 64, 65, 129};
+		final Bitmap b = Bitmap.of(rows, 130);
+		assertThat(b.toRows(), is(rows));
+		assertThat(b.cardinality(), is(6));
+		assertThat(b.not().cardinality(), is(124));
+		assertThat(b.not().not().toRows(), is(rows));
+		assertThat(b.and(Bitmap.of(new int[]{3, 64, 100}, 130)).toRows(), is(new int[]{3, 64}));
+		assertThat(b.or(Bitmap.of(new int[]{1, 100}, 130)).toRows(), is(new int[]{0, 1, 3, 63, 64, 65, 100, 129}));
+		assertThat(Bitmap.empty(128).not().cardinality(), is(128));
+	}
+
+	@Test
+	public void createSortedIndexTest00() {
+		final List<Map<String, Object>> mixed = new ArrayList<Map<String,Object>>();
+		mixed.add(makeMap(0, "foo", 1));
+		final Map<String, Object> m = makeMap(1, "bar", null);
+		m.put("age", "1");
+		mixed.add(m);
+		final IndexedCollection<Map<String, Object>> c = new IndexedCollection<Map<String,Object>>(mixed, new Accessor<Map<String,Object>>() {
+			@Override
+			public Object accsess(Map<String, Object> elem, String prop) {
+				return elem.get(prop);
+			}
+		});
+		try {
+			c.createSortedIndex("age");
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// Ok.
+		}
+	}
+
+	public static final class DoubleBean {
+		private final double x;
+		DoubleBean(double x) {
+			this.x = x;
+		}
+		public double getX() {
+			return x;
+		}
+	}
+
+	@Test
+	public void createSortedIndexTest01() throws QueryParseException {
+		// double型のプロパティでも索引を使った結果はリストを走査した結果と一致する
+		final double[] values = {-0.0, 0.0, 1.0, -1.0, Double.NaN};
+		final PrimitiveAccessor<double[]> pa = new PrimitiveAccessor<double[]>() {
+			@Override
+			public Object accsess(double[] elem, String prop) {
+				return elem[0];
+			}
+			@Override
+			public Class<?> typeOf(String prop) {
+				return double.class;
+			}
+			@Override
+			public int getInt(double[] elem, String prop) {
+				return (int) elem[0];
+			}
+			@Override
+			public long getLong(double[] elem, String prop) {
+				return (long) elem[0];
+			}
+			@Override
+			public double getDouble(double[] elem, String prop) {
+				return elem[0];
+			}
+		};
+		final List<double[]> rows = new ArrayList<double[]>();
+		final List<DoubleBean> beans = new ArrayList<DoubleBean>();
+		for (final double value : values) {
+			rows.add(new double[]{value});
+			beans.add(new DoubleBean(value));
+		}
+		final IndexedCollection<double[]> c0 = new IndexedCollection<double[]>(rows, pa);
+		c0.createSortedIndex("x");
+		final QueryFactory<double[]> f0 = new QueryFactory<double[]>(pa);
+		final IndexedCollection<DoubleBean> c1 = new IndexedCollection<DoubleBean>(beans, new BeanAccessor<DoubleBean>(DoubleBean.class));
+		c1.createSortedIndex("x");
+		final QueryFactory<DoubleBean> f1 = QueryFactory.createBeanQueryFactory(DoubleBean.class);
+		final String[] queries = {"x >= 0", "x <= -0.0", "x < 0", "x > -0.0", "x < 2", "x > -2", "x >= NaN", "x < foo"};
+		for (final String query : queries) {
+			assertThat(query, f0.create(query).countIn(c0), is(f0.create(query).countIn(rows)));
+			assertThat(query, f1.create(query).countIn(c1), is(f1.create(query).countIn(beans)));
+		}
+		// Javaの比較演算子で比較するプロパティでは-0.0と0.0は等しい
+		assertThat(f0.create("x >= 0").countIn(c0), is(3));
+		assertThat(f0.create("x <= -0.0").countIn(c0), is(3));
+	}
+}
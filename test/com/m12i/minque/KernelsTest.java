@@ -0,0 +1,128 @@
+package com.m12i.minque;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class KernelsTest {
+	
+	private static final Operator[] ops = {
+		Operator.EQUALS, Operator.NOT_EQUALS,
+		Operator.LESS_THAN, Operator.LESS_THAN_EQUAL,
+		Operator.GREATER_THAN, Operator.GREATER_THAN_EQUAL,
+	};
+	
+	private static boolean accept(Operator op, int comparison) {
+		switch (op) {
+		case EQUALS: return comparison == 0;
+		case NOT_EQUALS: return comparison != 0;
+		case LESS_THAN: return comparison < 0;
+		case LESS_THAN_EQUAL: return comparison <= 0;
+		case GREATER_THAN: return comparison > 0;
+		default: return comparison >= 0;
+		}
+	}
+	
+	private static boolean accept(Operator op, double v, double b) {
+		switch (op) {
+		case EQUALS: return v == b;
+		case NOT_EQUALS: return v != b;
+		case LESS_THAN: return v < b;
+		case LESS_THAN_EQUAL: return v <= b;
+		case GREATER_THAN: return v > b;
+		default: return v >= b;
+		}
+	}
+	
+	private static void assertBits(String message, long[] words, int offset, boolean[] expected) {
+		for (int i = 0; i < expected.length; i ++) {
+			final int row = offset + i;
+			assertThat(message + " at " + i, (words[row >>> 6] & (1L << row)) != 0, is(expected[i]));
+		}
+		// 範囲外のビットは立たない
+		for (int row = 0; row < words.length * 64; row ++) {
+			if (row < offset || row >= offset + expected.length) {
+				assertThat(message + " outside " + row, (words[row >>> 6] & (1L << row)) != 0, is(false));
+			}
+		}
+	}
+
+	@Test
+	public void compareTest00() {
+		final Random random = new Random(0);
+		final int[] ints = new int[1000];
+		final long[] longs = new long[ints.length];
+		for (int i = 0; i < ints.length; i ++) {
+			ints[i] = i % 17 == 0 ? Integer.MIN_VALUE : i % 19 == 0 ? Integer.MAX_VALUE : random.nextInt(20) - 10;
+			longs[i] = i % 17 == 0 ? Long.MIN_VALUE : i % 19 == 0 ? Long.MAX_VALUE : random.nextInt(20) - 10;
+		}
+		final long[] bounds = {0, -10, 9, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE};
+		for (final Operator op : ops) {
+			for (final long bound : bounds) {
+				for (final int length : new int[]{0, 1, 63, 64, 65, 1000}) {
+					final long[] words = new long[20];
+					Kernels.compare(ints, 0, length, op, bound, words, 128);
+					final boolean[] expected = new boolean[length];
+					for (int i = 0; i < length; i ++) {
+						expected[i] = accept(op, Long.compare(ints[i], bound));
+					}
+					assertBits("int " + op + " " + bound, words, 128, expected);
+					
+					final long[] words2 = new long[20];
+					Kernels.compare(longs, 0, length, op, bound, words2, 64);
+					for (int i = 0; i < length; i ++) {
+						expected[i] = accept(op, Long.compare(longs[i], bound));
+					}
+					assertBits("long " + op + " " + bound, words2, 64, expected);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void compareTest01() {
+		final double[] specials = {Double.NaN, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.MIN_VALUE, -Double.MAX_VALUE, Double.longBitsToDouble(0xfff8000000000001L), 1.5, -1.5};
+		final double[] doubles = new double[300];
+		for (int i = 0; i < doubles.length; i ++) {
+			doubles[i] = specials[i % specials.length];
+		}
+		for (final Operator op : ops) {
+			for (final double bound : specials) {
+				final long[] words = new long[5];
+				Kernels.compare(doubles, 0, doubles.length, op, bound, words, 0);
+				final boolean[] expected = new boolean[doubles.length];
+				for (int i = 0; i < doubles.length; i ++) {
+					expected[i] = accept(op, doubles[i], bound);
+				}
+				assertBits("double " + op + " " + bound, words, 0, expected);
+				
+				final long[] words2 = new long[5];
+				Kernels.compareTotal(doubles, 0, doubles.length, op, bound, words2, 0);
+				for (int i = 0; i < doubles.length; i ++) {
+					expected[i] = accept(op, Double.compare(doubles[i], bound));
+				}
+				assertBits("total " + op + " " + bound, words2, 0, expected);
+			}
+		}
+	}
+
+	@Test
+	public void probeTest00() {
+		final int[] codes = new int[200];
+		for (int i = 0; i < codes.length; i ++) {
+			codes[i] = i % 5 == 0 ? -1 : i % 70;
+		}
+		final long[] codeBits = {1L << 3 | 1L << 0, 1L << 1};
+		final long[] words = new long[4];
+		Kernels.probe(codes, 0, codes.length, codeBits, words, 0);
+		final boolean[] expected = new boolean[codes.length];
+		for (int i = 0; i < codes.length; i ++) {
+			expected[i] = codes[i] == 0 || codes[i] == 3 || codes[i] == 65;
+		}
+		assertBits("probe", words, 0, expected);
+	}
+}
@@ -0,0 +1,133 @@
+package com.m12i.minque;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LiveQueryTest {
+
+	// 評価された回数を数えるアクセサ
+	private final int[] evaluated = {0};
+	private final QueryFactory<Map<String, Object>> factory = new QueryFactory<Map<String,Object>>(new Accessor<Map<String,Object>>() {
+		@Override
+		public Object accsess(Map<String, Object> elem, String prop) {
+			evaluated[0] ++;
+			return elem.get(prop);
+		}
+	});
+
+	private final List<String> events = new ArrayList<String>();
+	private final LiveQuery.Listener<Map<String, Object>> listener = new LiveQuery.Listener<Map<String,Object>>() {
+		@Override
+		public void entered(Map<String, Object> elem) {
+			events.add("+" + elem.get("id"));
+		}
+		@Override
+		public void exited(Map<String, Object> elem) {
+			events.add("-" + elem.get("id"));
+		}
+	};
+
+	private ObservableCollection<Map<String, Object>> source;
+
+	private static Map<String, Object> makeMap(int id, int age) {
+		final Map<String, Object> result = new HashMap<String, Object>();
+		result.put("id", id);
+		result.put("age", age);
+		return result;
+	}
+
+	@Before
+	public void setUp() {
+		source = new ObservableCollection<Map<String,Object>>();
+		for (int i = 0; i < 100; i ++) {
+			source.add(makeMap(i, i % 10));
+		}
+	}
+
+	@Test
+	public void liveTest00() throws QueryParseException {
+		final LiveQuery<Map<String, Object>> live = factory.create("age >= 8").live(source);
+		live.addListener(listener);
+		assertThat(live.size(), is(20));
+		assertThat(evaluated[0], is(100));
+
+		// 追加・削除・更新された要素だけが評価される
+		evaluated[0] = 0;
+		source.add(makeMap(100, 9));
+		source.add(makeMap(101, 1));
+		source.remove(8);
+		source.remove(0);
+		byId(12).put("age", 8);
+		source.update(source.indexOf(byId(12)));
+		byId(19).put("age", 0);
+		source.update(source.indexOf(byId(19)));
+		assertThat(evaluated[0], is(4));
+		assertThat(events.toString(), is("[+100, -8, +12, -19]"));
+		assertThat(live.size(), is(20));
+		assertThat(live.contains(byId(12)), is(true));
+		assertThat(live.contains(byId(19)), is(false));
+		assertThat(idsOf(live.getResults()), is(idsOf(factory.create("age >= 8").selectFrom(source))));
+	}
+
+	@Test
+	public void liveTest01() throws QueryParseException {
+		final LiveQuery<Map<String, Object>> live = factory.create("age == ?").bind(3).live(source);
+		live.addListener(listener);
+		assertThat(live.size(), is(10));
+
+		// 要素の置換は削除と追加として扱われ、同じ要素の置換は更新として扱われる
+		source.set(3, makeMap(200, 4));
+		source.set(4, makeMap(201, 3));
+		source.get(13).put("age", 4);
+		source.set(13, source.get(13));
+		assertThat(events.toString(), is("[-3, +201, -13]"));
+		assertThat(live.size(), is(9));
+
+		// 同じ要素を重複して追加した場合は重複した数だけ数えられる
+		events.clear();
+		source.add(source.get(4));
+		assertThat(live.size(), is(10));
+		source.get(4).put("age", 5);
+		source.update(4);
+		assertThat(events.toString(), is("[+201, -201, -201]"));
+		assertThat(live.size(), is(8));
+
+		events.clear();
+		source.clear();
+		assertThat(live.size(), is(0));
+		assertThat(events.size(), is(8));
+
+		// 結び付きを解除した後の変更は反映されない
+		live.close();
+		source.add(makeMap(300, 3));
+		assertThat(live.size(), is(0));
+		assertThat(events.size(), is(8));
+	}
+
+	private Map<String, Object> byId(int id) {
+		for (final Map<String, Object> m : source) {
+			if (m.get("id").equals(id)) {
+				return m;
+			}
+		}
+		return null;
+	}
+
+	private static Set<Object> idsOf(List<Map<String, Object>> rows) {
+		final Set<Object> result = new HashSet<Object>();
+		for (final Map<String, Object> row : rows) {
+			result.add(row.get("id"));
+		}
+		return result;
+	}
+}
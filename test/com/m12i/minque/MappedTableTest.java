@@ -0,0 +1,215 @@
+package com.m12i.minque;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedTableTest {
+	
+	@ClassRule
+	public static final TemporaryFolder classFolder = new TemporaryFolder();
+	
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	private static final QueryFactory<Map<String, Object>> factory = QueryFactory.createMapQueryFactory();
+	private static final Accessor<Map<String, Object>> accessor = new Accessor<Map<String,Object>>() {
+		@Override
+		public Object accsess(Map<String, Object> elem, String prop) {
+			return elem.get(prop);
+		}
+	};
+	
+	private static final List<Map<String, Object>> list = new ArrayList<Map<String,Object>>();
+	
+	private static MappedTable table;
+	// セグメントとチャンクの境界をまたぐよう小さなセグメントでマップしたテーブル
+	private static MappedTable segmented;
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		final String[] names = {"foo", "bar", "baz", "qux", "ふー"};
+		final double[] doubles = {0.5, -0.0, 0.0, Double.NaN, 1.0, 100.25};
+		for (int i = 0; i < 10000; i ++) {
+			final Map<String, Object> m = new HashMap<String, Object>();
+			m.put("id", i);
+			m.put("i", i % 7 == 0 ? null : Integer.valueOf(i % 50 - 25));
+			m.put("l", Long.valueOf(i * 1000000000L));
+			m.put("d", i % 11 == 0 ? null : Double.valueOf(doubles[i % doubles.length]));
+			m.put("s", i % 13 == 0 ? null : names[i % names.length]);
+			m.put("n", i < 100 ? null : "late");
+			m.put("x", null);
+			list.add(m);
+		}
+		final File file = classFolder.newFile();
+		MappedTable.write(file, list, accessor, "id", "i", "l", "d", "s", "n", "x");
+		table = MappedTable.open(file);
+		segmented = MappedTable.open(file, 128);
+	}
+	
+	private static List<Object> ids(List<Map<String, Object>> rows) {
+		final List<Object> result = new ArrayList<Object>();
+		for (final Map<String, Object> row : rows) {
+			result.add(row.get("id"));
+		}
+		return result;
+	}
+	
+	private static void assertSameResult(String query, Object... vars) throws QueryParseException {
+		final BoundQuery<Map<String, Object>> q = factory.create(query).bind(vars);
+		final List<Object> expected = ids(q.selectFrom(list));
+		assertThat(query, ids(q.selectFrom(table)), is(expected));
+		assertThat(query, ids(q.selectFrom(segmented)), is(expected));
+		assertThat(query, q.countIn(table), is(expected.size()));
+		assertThat(query, ids(q.selectFromParallel(segmented)), is(expected));
+	}
+
+	@Test
+	public void openTest00() {
+		assertThat(table.size(), is(10000));
+		assertThat(table.getColumnNames(), is(Arrays.asList("id", "i", "l", "d", "s", "n", "x")));
+		for (int i = 0; i < list.size(); i += 97) {
+			assertThat(table.get(i), is(list.get(i)));
+			assertThat(segmented.get(i), is(list.get(i)));
+		}
+		assertThat(table.get(0).get("none"), nullValue());
+	}
+
+	@Test
+	public void selectFromTest00() throws QueryParseException {
+		assertSameResult("id == 4097");
+		assertSameResult("id >= ?", 9990);
+		assertSameResult("i == 1");
+		assertSameResult("i != ?", 1);
+		assertSameResult("i is null");
+		assertSameResult("i < 0");
+		assertSameResult("i >= 1.5");
+		assertSameResult("i $= 5");
+		assertSameResult("l == 1000000000");
+		assertSameResult("l > ?", 5000000000000L);
+		assertSameResult("l < 10.5");
+		assertSameResult("d == 0.5");
+		assertSameResult("d == -0.0");
+		assertSameResult("d < 0.0");
+		assertSameResult("d >= NaN");
+		assertSameResult("s == foo");
+		assertSameResult("s == ふー");
+		assertSameResult("s != foo");
+		assertSameResult("s ^= ba");
+		assertSameResult("s > bar");
+		assertSameResult("n is null");
+		assertSameResult("n == late");
+		assertSameResult("x is null");
+		assertSameResult("x == 1");
+		assertSameResult("none is null");
+		assertSameResult("none == 1");
+		assertSameResult("i < 0 and s == foo or d is null");
+		assertSameResult("!(s ^= ba) and id < 5000");
+	}
+
+	@Test
+	public void selectFromParallelTest00() throws IOException, QueryParseException {
+		// 複数のモーセルに分割され、モーセルの中でセグメントの境界をまたぐテーブル
+		final List<Map<String, Object>> large = new ArrayList<Map<String,Object>>();
+		for (int i = 0; i < Morsels.MORSEL_SIZE * 3 + 100; i ++) {
+			final Map<String, Object> m = new HashMap<String, Object>();
+			m.put("id", i);
+			m.put("i", i % 7 == 0 ? null : Integer.valueOf(i % 50 - 25));
+			m.put("s", i % 13 == 0 ? null : "s" + i % 100);
+			large.add(m);
+		}
+		final File file = folder.newFile();
+		MappedTable.write(file, large, accessor, "id", "i", "s");
+		final MappedTable mapped = MappedTable.open(file, 1 << 10);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (final String query : new String[]{"i > 0 and s ^= s1", "i is null or s == s42", "id >= 20000 and !(s $= 7)"}) {
+				final BoundQuery<Map<String, Object>> q = factory.create(query).bind();
+				final List<Object> expected = ids(q.selectFrom(large));
+				assertThat(query, ids(q.selectFromParallel(mapped, pool)), is(expected));
+				assertThat(query, q.countInParallel(mapped, pool), is((long) expected.size()));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void writeTest00() throws IOException {
+		final List<Map<String, Object>> mixed = new ArrayList<Map<String,Object>>();
+		final Map<String, Object> m0 = new HashMap<String, Object>();
+		m0.put("a", 1);
+		m0.put("b", true);
+		final Map<String, Object> m1 = new HashMap<String, Object>();
+		m1.put("a", "1");
+		mixed.add(m0);
+		mixed.add(m1);
+		try {
+			MappedTable.write(folder.newFile(), mixed, accessor, "a");
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// Ok.
+		}
+		try {
+			MappedTable.write(folder.newFile(), mixed, accessor, "b");
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// Ok.
+		}
+		// 一時ファイルは削除されている
+		assertThat(folder.getRoot().list().length, is(2));
+	}
+
+	@Test
+	public void openTest01() throws IOException {
+		try {
+			MappedTable.open(folder.newFile());
+			fail();
+		} catch (final IOException e) {
+			// Ok.
+		}
+	}
+
+	@Test
+	public void scanTest00() throws IOException, QueryParseException {
+		// 複数のモーセルに分割されるテーブル
+		final List<Map<String, Object>> large = new ArrayList<Map<String,Object>>();
+		for (int i = 0; i < Morsels.MORSEL_SIZE * 3 + 100; i ++) {
+			final Map<String, Object> m = new HashMap<String, Object>();
+			m.put("id", i);
+			m.put("i", Integer.valueOf(i % 50));
+			large.add(m);
+		}
+		final File file = folder.newFile();
+		MappedTable.write(file, large, accessor, "id", "i");
+		final MappedTable mapped = MappedTable.open(file, 1 << 10);
+		for (final String query : new String[]{"i == 3", "i > 48", "i == 100"}) {
+			final BoundQuery<Map<String, Object>> q = factory.create(query).bind();
+			final Iterable<Map<String, Object>> scan = mapped.scan(((BoundQueryImpl<Map<String, Object>>) q).expression());
+			assertThat(query, RowList.isExact(scan), is(true));
+			assertThat(query, scan.iterator().hasNext(), is(q.existsIn(large)));
+			assertThat(query, q.existsIn(mapped), is(q.existsIn(large)));
+			final Map<String, Object> one = q.selectOneFrom(mapped);
+			final Map<String, Object> expected = q.selectOneFrom(large);
+			assertThat(query, one == null ? null : one.get("id"), is(expected == null ? null : expected.get("id")));
+			assertThat(query, ids(q.selectFrom(mapped, 10)), is(ids(q.selectFrom(large, 10))));
+			assertThat(query, ids(q.selectFrom(mapped, 20, 10)), is(ids(q.selectFrom(large, 20, 10))));
+			assertThat(query, q.countIn(mapped, 5), is(q.countIn(large, 5)));
+			assertThat(query, ids(q.selectFrom(mapped)), is(ids(q.selectFrom(large))));
+		}
+	}
+}
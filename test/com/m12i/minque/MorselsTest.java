@@ -0,0 +1,138 @@
+package com.m12i.minque;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MorselsTest {
+
+	private static final int SIZE = Morsels.MORSEL_SIZE * 5 + 1;
+	private static final int MORSELS = 6;
+
+	private static ForkJoinPool pool;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		pool.shutdown();
+	}
+
+	// 3の倍数の行を選択し、モーセルごとに走査された回数を記録するタスク
+	private static Morsels.Task multiplesOf3(final AtomicIntegerArray scanned) {
+		return new Morsels.Task() {
+			@Override
+			public boolean scan(int from, int to, Morsels.Buffer buffer) {
+				assertThat(from % Morsels.MORSEL_SIZE, is(0));
+				scanned.incrementAndGet(from / Morsels.MORSEL_SIZE);
+				for (int i = from; i < to; i ++) {
+					if (i % 3 == 0) {
+						buffer.add(i);
+					}
+				}
+				return true;
+			}
+		};
+	}
+
+	private static void assertMultiplesOf3(int[] rows) {
+		assertThat(rows.length, is((SIZE + 2) / 3));
+		for (int i = 0; i < rows.length; i ++) {
+			assertThat(rows[i], is(i * 3));
+		}
+	}
+
+	@Test
+	public void selectTest00() {
+		final AtomicIntegerArray scanned = new AtomicIntegerArray(MORSELS);
+		assertMultiplesOf3(Morsels.select(pool, SIZE, multiplesOf3(scanned)));
+		// すべてのモーセルはちょうど1回ずつ走査される
+		for (int m = 0; m < MORSELS; m ++) {
+			assertThat(scanned.get(m), is(1));
+		}
+	}
+
+	@Test
+	public void selectTest01() {
+		final AtomicIntegerArray scanned = new AtomicIntegerArray(MORSELS);
+		assertMultiplesOf3(Morsels.select(null, SIZE, multiplesOf3(scanned)));
+		assertThat(Morsels.select(pool, 0, multiplesOf3(scanned)).length, is(0));
+	}
+
+	@Test
+	public void selectTest02() {
+		// プールがタスクを受け付けない場合は呼び出し元のスレッドだけで走査する
+		final ForkJoinPool closed = new ForkJoinPool(2);
+		closed.shutdown();
+		final AtomicIntegerArray scanned = new AtomicIntegerArray(MORSELS);
+		assertMultiplesOf3(Morsels.select(closed, SIZE, multiplesOf3(scanned)));
+	}
+
+	@Test
+	public void runTest00() {
+		// 走査を打ち切った後のモーセルは走査されない
+		final AtomicIntegerArray scanned = new AtomicIntegerArray(MORSELS);
+		Morsels.run(null, SIZE, new Morsels.Task() {
+			@Override
+			public boolean scan(int from, int to, Morsels.Buffer buffer) {
+				scanned.incrementAndGet(from / Morsels.MORSEL_SIZE);
+				return from < Morsels.MORSEL_SIZE * 2;
+			}
+		});
+		assertThat(scanned.toString(), is("[1, 1, 1, 0, 0, 0]"));
+	}
+
+	@Test
+	public void runTest01() {
+		// ワーカーで発生した例外は呼び出し元に伝播する
+		try {
+			Morsels.run(pool, SIZE, new Morsels.Task() {
+				@Override
+				public boolean scan(int from, int to, Morsels.Buffer buffer) {
+					if (from == Morsels.MORSEL_SIZE * 3) {
+						throw new IllegalStateException("morsel 3");
+					}
+					return true;
+				}
+			});
+			fail();
+		} catch (final IllegalStateException e) {
+			assertThat(e.getMessage(), is("morsel 3"));
+		}
+	}
+
+	@Test
+	public void runTest02() {
+		// Integer.MAX_VALUEに近い行数でも行番号があふれずにすべてのモーセルが走査される
+		final long[] scanned = {0, 0};
+		final int size = Integer.MAX_VALUE - 100;
+		Morsels.run(null, size, new Morsels.Task() {
+			@Override
+			public boolean scan(int from, int to, Morsels.Buffer buffer) {
+				scanned[0] += to - from;
+				scanned[1] = to;
+				return true;
+			}
+		});
+		assertThat(scanned[0], is((long) size));
+		assertThat(scanned[1], is((long) size));
+	}
+
+	@Test
+	public void addAllTest00() {
+		final Morsels.Buffer buffer = new Morsels.Buffer();
+		buffer.add(3);
+		buffer.addAll(new long[]{5L, 1L << 63}, 64);
+		assertThat(buffer.size(), is(4));
+		assertThat(Morsels.merge(new Morsels.Buffer[]{buffer, null}), is(new int[]{3, 64, 66, 191}));
+	}
+}
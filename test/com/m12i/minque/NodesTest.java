@@ -0,0 +1,143 @@
+package com.m12i.minque;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class NodesTest {
+
+	private static final ExpressionParser parser = new ExpressionParser();
+	
+	private static final Accessor<Map<String, Object>> accessor = new Accessor<Map<String,Object>>() {
+		@Override
+		public Object accsess(Map<String, Object> elem, String prop) {
+			return elem.get(prop);
+		}
+	};
+	
+	private static Node<Map<String, Object>> compile(String expr) {
+		return Nodes.compile(parser.parse(expr).expression, accessor);
+	}
+	
+	private static Map<String, Object> makeMap(Object... keysAndValues) {
+		final Map<String, Object> result = new HashMap<String, Object>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			result.put(keysAndValues[i].toString(), keysAndValues[i + 1]);
+		}
+		return result;
+	}
+
+	@Test
+	public void compileTest00() {
+		assertThat(compile("a == 1"), instanceOf(Nodes.EqualsString.class));
+		assertThat(compile("a != 1"), instanceOf(Nodes.NotEqualsString.class));
+		assertThat(compile("a ^= 1"), instanceOf(Nodes.StartsWith.class));
+		assertThat(compile("a $= 1"), instanceOf(Nodes.EndsWith.class));
+		assertThat(compile("a *= 1"), instanceOf(Nodes.Contains.class));
+		assertThat(compile("a < 1"), instanceOf(Nodes.LessThan.class));
+		assertThat(compile("a > 1"), instanceOf(Nodes.GreaterThan.class));
+		assertThat(compile("a is null"), instanceOf(Nodes.IsNull.class));
+		assertThat(compile("a is not null"), instanceOf(Nodes.IsNotNull.class));
+		assertThat(compile("a"), instanceOf(Nodes.EqualsObject.class));
+		assertThat(compile("!a"), instanceOf(Nodes.Not.class));
+		assertThat(compile("a == 1 and b == 2"), instanceOf(Nodes.And.class));
+		assertThat(compile("a == 1 or b == 2"), instanceOf(Nodes.Or.class));
+	}
+
+	@Test
+	public void testTest00() {
+		final Map<String, Object> m0 = makeMap("a", 123, "b", "foo");
+		final Map<String, Object> m1 = makeMap("b", "bar");
+		assertTrue(compile("a == 123").test(m0));
+		assertFalse(compile("a == 123").test(m1));
+		assertFalse(compile("a != 123").test(m1));
+		assertTrue(compile("a is not null").test(m0));
+		assertFalse(compile("a is not null").test(m1));
+		assertTrue(compile("a is null").test(m1));
+		assertTrue(compile("a > 100 and b ^= f").test(m0));
+		assertTrue(compile("a > 200 or b $= o").test(m0));
+		assertFalse(compile("!(b *= a)").test(m1));
+		assertFalse(compile("a < x").test(m0));
+	}
+
+	@Test
+	public void coerceTest00() {
+		assertThat(Nodes.coerce(Integer.class, "12"), is((Object) 12));
+		assertThat(Nodes.coerce(Long.class, "12"), is((Object) 12L));
+		assertThat(Nodes.coerce(Long.class, 12L), is((Object) 12L));
+		assertThat(Nodes.coerce(String.class, 12), is((Object) "12"));
+		assertNull(Nodes.coerce(Integer.class, "foo"));
+		assertNull(Nodes.coerce(Object.class, "foo"));
+	}
+
+	@Test
+	public void testTest10() {
+		// 左辺の型が要素ごとに異なっても右辺の値はその型に合わせて変換される
+		final Node<Map<String, Object>> node = compile("a < 10");
+		assertTrue(node.test(makeMap("a", 9)));
+		assertFalse(node.test(makeMap("a", 10L)));
+		assertTrue(node.test(makeMap("a", 9.5)));
+		assertFalse(node.test(makeMap("a", "2")));
+		assertTrue(node.test(makeMap("a", 9)));
+	}
+
+	private static final PrimitiveAccessor<long[]> primitiveAccessor = new PrimitiveAccessor<long[]>() {
+		@Override
+		public Object accsess(long[] elem, String prop) {
+			return prop.equals("i") ? (Object) (int) elem[0] : prop.equals("l") ? (Object) elem[1] : (Object) (elem[2] / 10.0);
+		}
+		@Override
+		public Class<?> typeOf(String prop) {
+			return prop.equals("i") ? int.class : prop.equals("l") ? long.class : double.class;
+		}
+		@Override
+		public int getInt(long[] elem, String prop) {
+			return (int) elem[0];
+		}
+		@Override
+		public long getLong(long[] elem, String prop) {
+			return elem[1];
+		}
+		@Override
+		public double getDouble(long[] elem, String prop) {
+			return elem[2] / 10.0;
+		}
+	};
+	
+	private static Node<long[]> compilePrimitive(String expr, Object... vars) {
+		final ExpressionParser.ExpressionAndPlaceholders r = parser.parse(expr);
+		return Nodes.compile(r.expression, primitiveAccessor, vars);
+	}
+
+	@Test
+	public void compileTest10() {
+		assertThat(compilePrimitive("i < 1"), instanceOf(Nodes.LessThanLong.class));
+		assertThat(compilePrimitive("l <= 1"), instanceOf(Nodes.LessThanEqualLong.class));
+		assertThat(compilePrimitive("i > 1.5"), instanceOf(Nodes.GreaterThanDouble.class));
+		assertThat(compilePrimitive("d >= 1"), instanceOf(Nodes.GreaterThanEqualDouble.class));
+		assertThat(compilePrimitive("d >= foo"), instanceOf(Nodes.Constant.class));
+		assertThat(compilePrimitive("i == 1"), instanceOf(Nodes.EqualsString.class));
+	}
+
+	@Test
+	public void testTest20() {
+		final long[] elem = new long[]{ 5, 3000000000L, 15 };
+		assertTrue(compilePrimitive("i < 6").test(elem));
+		assertTrue(compilePrimitive("i <= 5").test(elem));
+		assertFalse(compilePrimitive("i > 5").test(elem));
+		assertTrue(compilePrimitive("i >= 5").test(elem));
+		assertTrue(compilePrimitive("i < 5.5").test(elem));
+		// 整数型のプロパティとより広い型の値との比較
+		assertTrue(compilePrimitive("i < ?", 3000000000L).test(elem));
+		assertTrue(compilePrimitive("l > ?", 5).test(elem));
+		assertTrue(compilePrimitive("l >= ?", 3000000000L).test(elem));
+		// 小数型のプロパティと整数・単精度小数との比較
+		assertTrue(compilePrimitive("d > ?", 1).test(elem));
+		assertTrue(compilePrimitive("d <= ?", 1.5f).test(elem));
+		assertFalse(compilePrimitive("d < foo").test(elem));
+	}
+}
@@ -0,0 +1,172 @@
+package com.m12i.minque;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PathsTest {
+
+	static final class Address {
+		private final String city;
+		private final String zip;
+		Address(String city, String zip) {
+			this.city = city;
+			this.zip = zip;
+		}
+		public String getCity() {
+			return city;
+		}
+		public String getZip() {
+			return zip;
+		}
+	}
+
+	static final class Customer {
+		private final String tier;
+		private final Address address;
+		Customer(String tier, Address address) {
+			this.tier = tier;
+			this.address = address;
+		}
+		public String getTier() {
+			return tier;
+		}
+		public Address getAddress() {
+			return address;
+		}
+	}
+
+	static final class Order {
+		static int customerCalls = 0;
+		private final int id;
+		private final Customer customer;
+		Order(int id, Customer customer) {
+			this.id = id;
+			this.customer = customer;
+		}
+		public int getId() {
+			return id;
+		}
+		public Customer getCustomer() {
+			customerCalls ++;
+			return customer;
+		}
+	}
+
+	private static List<Order> makeOrders() {
+		final List<Order> result = new ArrayList<Order>();
+		result.add(new Order(1, new Customer("gold", new Address("Tokyo", "100"))));
+		result.add(new Order(2, new Customer("silver", new Address("Osaka", "530"))));
+		result.add(new Order(3, new Customer("gold", null)));
+		result.add(new Order(4, null));
+		result.add(new Order(5, new Customer("gold", new Address("Tokyo", "150"))));
+		return result;
+	}
+
+	@Test
+	public void isPathTest00() {
+		assertThat(Paths.isPath("a.b"), is(true));
+		assertThat(Paths.isPath("a.b.c"), is(true));
+		assertThat(Paths.isPath("a"), is(false));
+		assertThat(Paths.isPath(".a"), is(false));
+		assertThat(Paths.isPath("a."), is(false));
+		assertThat(Paths.isPath("a..b"), is(false));
+	}
+
+	@Test
+	public void beanTest00() throws QueryParseException {
+		final QueryFactory<Order> factory = QueryFactory.createBeanQueryFactory(Order.class);
+		final List<Order> orders = makeOrders();
+		assertThat(factory.create("customer.tier == gold").countIn(orders), is(3));
+		assertThat(factory.create("customer.address.city == Tokyo and customer.address.zip ^= 1").countIn(orders), is(2));
+		assertThat(factory.create("customer.address.city == Tokyo and customer.address.zip > ?").countIn(orders, "120"), is(1));
+		// 途中のプロパティ値がnullであればパスの値もnull
+		assertThat(factory.create("customer.address.city is null").countIn(orders), is(2));
+		assertThat(factory.create("customer.address.city is null or customer.tier == silver").countIn(orders), is(3));
+		assertThat(factory.create("!(customer.address.city == Tokyo)").countIn(orders), is(3));
+		assertThat(factory.create("id > 2 and customer.tier == gold and customer.address is not null").countIn(orders), is(1));
+	}
+
+	@Test
+	public void fieldTest00() throws QueryParseException {
+		final QueryFactory<Order> factory = QueryFactory.createFieldQueryFactory(Order.class);
+		final List<Order> orders = makeOrders();
+		assertThat(factory.create("customer.address.city == Tokyo and customer.tier == gold").countIn(orders), is(2));
+		assertThat(factory.create("customer.address.zip is null").countIn(orders), is(2));
+	}
+
+	@Test
+	public void groupingTest00() throws QueryParseException {
+		final QueryFactory<Order> factory = QueryFactory.createBeanQueryFactory(Order.class);
+		final Query<Order> query = factory.create("customer.address.city == Tokyo and customer.address.zip != 100");
+		// パスの先頭のプロパティの取得回数を数える
+		Order.customerCalls = 0;
+		assertThat(query.countIn(makeOrders()), is(1));
+		// 同じプロパティを先頭とするパスの先頭のプロパティは要素ごとに一度だけ取得される
+		assertThat(Order.customerCalls, is(5));
+	}
+
+	@Test
+	public void mapTest00() throws QueryParseException {
+		final QueryFactory<Map<String, Object>> factory = QueryFactory.createMapQueryFactory();
+		final List<Map<String, Object>> list = new ArrayList<Map<String,Object>>();
+		for (int i = 0; i < 10; i ++) {
+			final Map<String, Object> address = new HashMap<String, Object>();
+			address.put("city", i % 2 == 0 ? "Tokyo" : "Osaka");
+			address.put("zip", Integer.toString(100 + i));
+			final Map<String, Object> elem = new HashMap<String, Object>();
+			elem.put("address", i == 9 ? null : address);
+			list.add(elem);
+		}
+		assertThat(factory.create("address.city == Tokyo and address.zip != 100").countIn(list), is(4));
+		assertThat(factory.create("address.city is null").countIn(list), is(1));
+		// .を含む名前のキーが存在すればその値がパスより優先される
+		list.get(1).put("address.city", "Tokyo");
+		list.get(2).put("address.city", null);
+		assertThat(factory.create("'address.city' == Tokyo").countIn(list), is(5));
+		assertThat(factory.create("address.city is null").countIn(list), is(2));
+	}
+
+	@Test
+	public void accessorTest00() throws QueryParseException {
+		// ユーザ定義のアクセサには.を含むプロパティ名がそのまま渡される
+		final QueryFactory<String> factory = new QueryFactory<String>(new Accessor<String>() {
+			@Override
+			public Object accsess(String elem, String prop) {
+				return prop.equals("x.len") ? elem.length() : null;
+			}
+		});
+		final List<String> list = new ArrayList<String>();
+		list.add("a");
+		list.add("abc");
+		assertThat(factory.create("x.len == 3").countIn(list), is(1));
+	}
+
+	@Test
+	public void rowTest00() throws QueryParseException {
+		final QueryFactory<Object[]> factory = QueryFactory.createRowQueryFactory("t.id", "customer");
+		final List<Object[]> rows = new ArrayList<Object[]>();
+		for (final Order o : makeOrders()) {
+			rows.add(new Object[]{o.getId(), o.getCustomer()});
+		}
+		// 列名として存在する名前は列に、存在しない名前はパスとして解釈される
+		assertThat(factory.create("'t.id' >= 4").countIn(rows), is(2));
+		assertThat(factory.create("t.id >= 4 and customer.tier == gold").countIn(rows), is(1));
+		assertThat(factory.create("t.name is null").countIn(rows), is(5));
+	}
+
+	@Test
+	public void indexedCollectionTest00() throws QueryParseException {
+		final QueryFactory<Order> factory = QueryFactory.createBeanQueryFactory(Order.class);
+		final IndexedCollection<Order> indexed = new IndexedCollection<Order>(makeOrders(), new BeanAccessor<Order>(Order.class));
+		indexed.createHashIndex("customer.address.city");
+		assertThat(factory.create("customer.address.city == Tokyo").countIn(indexed), is(2));
+		assertThat(factory.create("customer.address.city is null").countIn(indexed), is(2));
+	}
+}
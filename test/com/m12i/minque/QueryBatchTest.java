@@ -0,0 +1,149 @@
+package com.m12i.minque;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class QueryBatchTest {
+
+	// プロパティが取得された回数を数えるアクセサ
+	private final int[] accessed = {0};
+	private final QueryFactory<Map<String, Object>> factory = new QueryFactory<Map<String,Object>>(new Accessor<Map<String,Object>>() {
+		@Override
+		public Object accsess(Map<String, Object> elem, String prop) {
+			accessed[0] ++;
+			return elem.get(prop);
+		}
+	});
+
+	private static Map<String, Object> makeMap(String name, int age) {
+		final Map<String, Object> result = new HashMap<String, Object>();
+		result.put("name", name);
+		result.put("age", age);
+		return result;
+	}
+
+	private static List<Map<String, Object>> makeList(int size) {
+		final List<Map<String, Object>> result = new ArrayList<Map<String,Object>>();
+		for (int i = 0; i < size; i ++) {
+			result.add(makeMap("name" + (i % 10), i % 50));
+		}
+		return result;
+	}
+
+	@Test
+	public void runTest00() throws QueryParseException {
+		final List<Map<String, Object>> list = makeList(1000);
+		final Query<Map<String, Object>> q0 = factory.create("name == name3");
+		final Query<Map<String, Object>> q1 = factory.create("age >= 20 and name != name1");
+		final Query<Map<String, Object>> q2 = factory.create("age < 10 or age > 40");
+		final Query<Map<String, Object>> q3 = factory.create("name == nameX");
+		accessed[0] = 0;
+		final List<List<Map<String, Object>>> result = QueryBatch.run(list, q0, q1, q2, q3);
+		// 要素ごとにnameとageが一度ずつ取得される
+		assertThat(accessed[0], is(2000));
+		assertThat(result.size(), is(4));
+		assertThat(result.get(0), is(q0.selectFrom(list)));
+		assertThat(result.get(1), is(q1.selectFrom(list)));
+		assertThat(result.get(2), is(q2.selectFrom(list)));
+		assertThat(result.get(3).isEmpty(), is(true));
+	}
+
+	@Test
+	public void runTest01() throws QueryParseException {
+		final List<Map<String, Object>> list = makeList(1000);
+		final Query<Map<String, Object>> q0 = factory.create("age == ?");
+		final Query<Map<String, Object>> q1 = factory.create("name ^= ? and age <= ?");
+		final List<List<Map<String, Object>>> result = QueryBatch.run(list,
+				Arrays.asList(q0.bind(3), q0.bind(4), q1.bind("name2", 30)));
+		assertThat(result.get(0), is(q0.selectFrom(list, 3)));
+		assertThat(result.get(1), is(q0.selectFrom(list, 4)));
+		assertThat(result.get(2), is(q1.selectFrom(list, "name2", 30)));
+		try {
+			QueryBatch.run(list, q0);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// Ok.
+		}
+	}
+
+	@Test
+	public void countTest00() throws QueryParseException {
+		// 1つのオブジェクトの内容を書き換えながら返す検索対象
+		final Map<String, Object> cursor = new HashMap<String, Object>();
+		final Iterable<Map<String, Object>> stream = new Iterable<Map<String,Object>>() {
+			@Override
+			public Iterator<Map<String, Object>> iterator() {
+				return new Iterator<Map<String,Object>>() {
+					private int i = 0;
+					@Override
+					public boolean hasNext() {
+						return i < 1000;
+					}
+					@Override
+					public Map<String, Object> next() {
+						cursor.put("name", "name" + (i % 10));
+						cursor.put("age", i % 50);
+						i ++;
+						return cursor;
+					}
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+		final List<Map<String, Object>> list = makeList(1000);
+		final Query<Map<String, Object>> q0 = factory.create("name == name3");
+		final Query<Map<String, Object>> q1 = factory.create("age >= 20 and name != name1");
+		final Query<Map<String, Object>> q2 = factory.create("age < 10 or age > 40");
+		final int[] result = QueryBatch.count(stream, q0, q1, q2);
+		assertThat(result.length, is(3));
+		assertThat(result[0], is(q0.countIn(list)));
+		assertThat(result[1], is(q1.countIn(list)));
+		assertThat(result[2], is(q2.countIn(list)));
+	}
+
+	public static final class Person {
+		static int ageCalls = 0;
+		private final int age;
+		Person(int age) {
+			this.age = age;
+		}
+		public int getAge() {
+			ageCalls ++;
+			if (age < 0) {
+				throw new IllegalStateException();
+			}
+			return age;
+		}
+	}
+
+	@Test
+	public void countTest01() throws QueryParseException {
+		final QueryFactory<Person> factory = QueryFactory.createBeanQueryFactory(Person.class);
+		final List<Person> list = new ArrayList<Person>();
+		list.add(new Person(20));
+		list.add(new Person(40));
+		list.add(new Person(-1));
+		final Query<Person> q0 = factory.create("age < 30");
+		final Query<Person> q1 = factory.create("age >= 30 and age < 50");
+		final Query<Person> q2 = factory.create("age > 10");
+		Person.ageCalls = 0;
+		final int[] result = QueryBatch.count(list, q0, q1, q2);
+		// プリミティブ値として比較される数値型のgetterも要素ごとに一度だけ呼び出される
+		assertThat(Person.ageCalls, is(3));
+		assertThat(result[0], is(1));
+		assertThat(result[1], is(1));
+		assertThat(result[2], is(2));
+	}
+}
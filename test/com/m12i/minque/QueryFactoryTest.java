@@ -4,7 +4,9 @@ import static org.junit.Assert.*;
 import static org.hamcrest.CoreMatchers.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -108,4 +110,340 @@ public class QueryFactoryTest {
 		}
 	}
 
+	static class CheckerBean {
+		private final boolean active;
+		public CheckerBean(boolean active) {
+			this.active = active;
+		}
+		public boolean isActive() {
+			return active;
+		}
+	}
+
+	@Test
+	public void createBeanQueryFactoryTest05() {
+		final QueryFactory<CheckerBean> factory = QueryFactory.createBeanQueryFactory(CheckerBean.class);
+		final List<CheckerBean> list = new ArrayList<CheckerBean>();
+		list.add(new CheckerBean(true));
+		list.add(new CheckerBean(false));
+		list.add(new CheckerBean(true));
+		try {
+			// getActive()がなければisActive()がコールされる
+			final Query<CheckerBean> query0 = factory.create("active");
+			assertThat(query0.countIn(list), is(2));
+			final Query<CheckerBean> query1 = factory.create("active == false");
+			assertThat(query1.countIn(list), is(1));
+		} catch (QueryParseException e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+
+	static class NumberBean {
+		private final int i;
+		private final long l;
+		private final double d;
+		public NumberBean(int i, long l, double d) {
+			this.i = i;
+			this.l = l;
+			this.d = d;
+		}
+		public int getI() {
+			return i;
+		}
+		public long getL() {
+			return l;
+		}
+		public double getD() {
+			return d;
+		}
+		public float getF() {
+			return (float) d;
+		}
+		public String getS() {
+			if (i == 0) {
+				throw new IllegalStateException();
+			}
+			return Integer.toString(i);
+		}
+		public int getN() {
+			if (i == 0) {
+				throw new IllegalStateException();
+			}
+			return i;
+		}
+		public static String getKind() {
+			return "number";
+		}
+	}
+
+	@Test
+	public void createBeanQueryFactoryTest06() throws QueryParseException {
+		final QueryFactory<NumberBean> factory = QueryFactory.createBeanQueryFactory(NumberBean.class);
+		final List<NumberBean> list = new ArrayList<NumberBean>();
+		list.add(new NumberBean(0, 10L, 0.5));
+		list.add(new NumberBean(1, 20L, 1.5));
+		list.add(new NumberBean(2, 30L, 2.5));
+		// 数値型のgetterはボクシングを伴わずに比較される
+		assertThat(factory.create("i >= 1 and l < ?").countIn(list, 30), is(1));
+		assertThat(factory.create("d > ? and f <= 2.5").countIn(list, 1), is(2));
+		assertThat(factory.create("i == ?").countIn(list, 2), is(1));
+		assertThat(factory.create("l == 20").countIn(list), is(1));
+		// 例外をスローしたgetterの値はnullとみなされる
+		assertThat(factory.create("s is null").countIn(list), is(1));
+		assertThat(factory.create("s == 2").countIn(list), is(1));
+		// staticメソッドも要素のgetterとして呼び出される
+		assertThat(factory.create("kind == number").countIn(list), is(3));
+	}
+
+	@Test
+	public void createBeanQueryFactoryTest07() throws QueryParseException {
+		final QueryFactory<NumberBean> factory = QueryFactory.createBeanQueryFactory(NumberBean.class);
+		final List<NumberBean> list = new ArrayList<NumberBean>();
+		list.add(new NumberBean(0, 10L, 0.1));
+		list.add(new NumberBean(1, 20L, 0.1));
+		// floatのgetterの値はdoubleに拡張されずに比較される
+		assertThat(factory.create("f <= 0.1").countIn(list), is(2));
+		assertThat(factory.create("f >= 0.1").countIn(list), is(2));
+		assertThat(factory.create("f == 0.1").countIn(list), is(2));
+		// 例外をスローした数値型のgetterの値はnullとみなされ、大小比較も成立しない
+		assertThat(factory.create("n is null").countIn(list), is(1));
+		assertThat(factory.create("n < 5").countIn(list), is(1));
+		assertThat(factory.create("n <= 5").countIn(list), is(1));
+		assertThat(factory.create("!(n >= 5)").countIn(list), is(2));
+	}
+
+	public static final class IntegerBean {
+		private final int i;
+		private final double d;
+		public IntegerBean(int i, double d) {
+			this.i = i;
+			this.d = d;
+		}
+		public int getPrimitive() {
+			return i;
+		}
+		public Integer getBoxed() {
+			return i;
+		}
+		public double getPrimitiveDouble() {
+			return d;
+		}
+		public Double getBoxedDouble() {
+			return d;
+		}
+	}
+
+	@Test
+	public void createBeanQueryFactoryTest08() throws QueryParseException {
+		// プリミティブ型のgetterとラッパー型のgetterの大小比較は同じ結果になる
+		final QueryFactory<IntegerBean> factory = QueryFactory.createBeanQueryFactory(IntegerBean.class);
+		final List<IntegerBean> list = new ArrayList<IntegerBean>();
+		list.add(new IntegerBean(20, -0.0));
+		list.add(new IntegerBean(30, 0.0));
+		list.add(new IntegerBean(40, Double.NaN));
+		final String[] ints = {"< 30.5", "<= 30", "> 20", ">= 30", "< 3000000000", "> x"};
+		for (final String cond : ints) {
+			assertThat(cond, factory.create("primitive " + cond).countIn(list),
+					is(factory.create("boxed " + cond).countIn(list)));
+		}
+		assertThat(factory.create("primitive < 30.5").countIn(list), is(0));
+		assertThat(factory.create("primitive <= 30").countIn(list), is(2));
+		final String[] doubles = {"< 0", ">= 0", "<= -0.0", "> 1", "< 1.5"};
+		for (final String cond : doubles) {
+			assertThat(cond, factory.create("primitiveDouble " + cond).countIn(list),
+					is(factory.create("boxedDouble " + cond).countIn(list)));
+		}
+	}
+
+	static class BaseHolder {
+		protected final String name;
+		BaseHolder(String name) {
+			this.name = name;
+		}
+	}
+
+	static final class FieldHolder extends BaseHolder {
+		private static final String KIND = "holder";
+		private final int size;
+		private final double ratio;
+		private final String name;
+		FieldHolder(String base, String name, int size, double ratio) {
+			super(base);
+			this.name = name;
+			this.size = size;
+			this.ratio = ratio;
+		}
+	}
+
+	@Test
+	public void createFieldQueryFactoryTest00() throws QueryParseException {
+		final QueryFactory<FieldHolder> factory = QueryFactory.createFieldQueryFactory(FieldHolder.class);
+		final List<FieldHolder> list = new ArrayList<FieldHolder>();
+		list.add(new FieldHolder("base", "foo", 1, 0.5));
+		list.add(new FieldHolder("base", "bar", 2, 1.5));
+		list.add(new FieldHolder("base", "baz", 3, 2.5));
+		// privateフィールドもgetterなしで読み取られる
+		assertThat(factory.create("size >= 2 and ratio < ?").countIn(list, 2.0), is(1));
+		assertThat(factory.create("size == ?").countIn(list, 3), is(1));
+		// スーパークラスと同名のフィールドはサブクラスのものが優先される
+		assertThat(factory.create("name ^= ba").countIn(list), is(2));
+		// staticフィールドや存在しないフィールドはnullとみなされる
+		assertThat(factory.create("KIND is null and foo is null").countIn(list), is(3));
+	}
+
+	static final class RecordLike {
+		private final String name;
+		private final long count;
+		private final String secret;
+		RecordLike(String name, long count, String secret) {
+			this.name = name;
+			this.count = count;
+			this.secret = secret;
+		}
+		public String name() {
+			return name;
+		}
+		public long count() {
+			return count;
+		}
+		public String getSecret() {
+			return secret;
+		}
+	}
+
+	@Test
+	public void createRecordQueryFactoryTest00() throws QueryParseException {
+		final QueryFactory<RecordLike> factory = QueryFactory.createRecordQueryFactory(RecordLike.class);
+		final List<RecordLike> list = new ArrayList<RecordLike>();
+		list.add(new RecordLike("foo", 10L, "x"));
+		list.add(new RecordLike("bar", 20L, "y"));
+		list.add(new RecordLike("baz", 30L, "z"));
+		assertThat(factory.create("name ^= ba and count > ?").countIn(list, 20), is(1));
+		assertThat(factory.create("count <= 20").countIn(list), is(2));
+		// 同名のアクセサ・メソッドを持たないフィールドは構成要素ではない
+		assertThat(factory.create("secret is null").countIn(list), is(3));
+	}
+
+	@Test
+	public void createTest00() throws QueryParseException {
+		final QueryFactory<FooBarBean> factory = new QueryFactory<FooBarBean>(
+				new BeanAccessor<FooBarBean>(FooBarBean.class), 2);
+		final Query<FooBarBean> query0 = factory.create("a == 1");
+		assertThat(factory.create("a == 1"), sameInstance(query0));
+		factory.create("a == 2");
+		factory.create("a == 3");
+		// 上限を超えたため最も古いクエリが破棄されている
+		assertThat(factory.create("a == 1"), not(sameInstance(query0)));
+		final QueryCacheStats stats = factory.cacheStats();
+		assertThat(stats.getCapacity(), is(2));
+		assertThat(stats.getSize(), is(2));
+		assertThat(stats.getHitCount(), is(1L));
+		assertThat(stats.getMissCount(), is(4L));
+		assertThat(stats.getEvictionCount(), is(2L));
+	}
+
+	@Test
+	public void createTest01() throws QueryParseException {
+		final QueryFactory<FooBarBean> factory = new QueryFactory<FooBarBean>(
+				new BeanAccessor<FooBarBean>(FooBarBean.class), 0);
+		assertThat(factory.create("a == 1"), not(sameInstance(factory.create("a == 1"))));
+		assertNull(factory.cacheStats());
+	}
+
+	@Test
+	public void createTest02() throws InterruptedException {
+		final QueryFactory<FooBarBean> factory = new QueryFactory<FooBarBean>(
+				new BeanAccessor<FooBarBean>(FooBarBean.class), 4);
+		final boolean[] failed = {false};
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i ++) {
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int k = 0; k < 500; k ++) {
+						try {
+							final String b = "'" + (k % 6) + "'";
+							if (factory.create("a == 1 and b == " + b + " or foo ^= \"x\"").countIn(beanList)
+									!= (k % 6 == 1 || k % 6 == 2 ? 1 : 0)) {
+								failed[0] = true;
+							}
+						} catch (final Exception e) {
+							failed[0] = true;
+						}
+					}
+				}
+			}));
+		}
+		for (final Thread t : threads) {
+			t.start();
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		assertFalse(failed[0]);
+		assertThat(factory.cacheStats().getHitCount() + factory.cacheStats().getMissCount(), is(4000L));
+	}
+
+	@Test
+	public void createTest03() throws QueryParseException {
+		// プロパティ名はクエリの生成時にプロパティごとに一度だけ解決される
+		final List<String> resolved = new ArrayList<String>();
+		final QueryFactory<FooBarBean> factory = new QueryFactory<FooBarBean>(new PropertyResolver<FooBarBean>() {
+			@Override
+			public PropertyReader<FooBarBean> resolve(final String prop) {
+				resolved.add(prop);
+				return new PropertyReader<FooBarBean>() {
+					@Override
+					public Object read(FooBarBean elem) {
+						return prop.equals("a") ? elem.getA() : prop.equals("b") ? elem.getB() : null;
+					}
+				};
+			}
+		});
+		final Query<FooBarBean> query0 = factory.create("a == ? and (b == 2 or a == 2) and baz is null");
+		assertThat(resolved.size(), is(3));
+		assertThat(query0.countIn(beanList, "1"), is(1));
+		assertThat(query0.countIn(beanList, "2"), is(2));
+		assertThat(resolved.size(), is(3));
+	}
+
+	@Test
+	public void createMapQueryFactoryTest00() throws QueryParseException {
+		final QueryFactory<Map<String, Object>> factory = QueryFactory.createMapQueryFactory();
+		final List<Map<String, Object>> list = new ArrayList<Map<String,Object>>();
+		list.add(new HashMap<String, Object>());
+		list.add(new HashMap<String, Object>());
+		list.get(0).put("foo", "1");
+		list.get(1).put("foo", null);
+		list.get(1).put("bar", "1");
+		assertThat(factory.create("foo == 1").countIn(list), is(1));
+		assertThat(factory.create("foo is null").countIn(list), is(1));
+		assertThat(factory.create("bar is null").countIn(list), is(1));
+		assertThat(factory.create("baz is null").countIn(list), is(2));
+	}
+
+	@Test
+	public void createRowQueryFactoryTest00() throws QueryParseException {
+		final QueryFactory<Object[]> factory = QueryFactory.createRowQueryFactory("id", "name", "score", "attrs");
+		final Map<String, Object> attrs = new HashMap<String, Object>();
+		attrs.put("color", "red");
+		final List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[]{1, "foo", 10, attrs});
+		rows.add(new Object[]{2, "bar", 20, null});
+		rows.add(new Object[]{3, "baz", null, attrs});
+		// 列名より短い行の残りの列の値はnull
+		rows.add(new Object[]{4, "qux"});
+		assertThat(factory.create("name == bar").countIn(rows), is(1));
+		assertThat(factory.create("score >= 10 and id < 3").countIn(rows), is(2));
+		assertThat(factory.create("score is null").countIn(rows), is(2));
+		assertThat(factory.create("attrs.color == red").countIn(rows), is(2));
+		assertThat(factory.create("unknown is null").countIn(rows), is(4));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createRowQueryFactoryTest01() {
+		QueryFactory.createRowQueryFactory("id", "name", "id");
+	}
+
 }
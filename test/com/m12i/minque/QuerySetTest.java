@@ -0,0 +1,198 @@
+package com.m12i.minque;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QuerySetTest {
+
+	// 評価された回数を数えるアクセサ
+	private final int[] evaluated = {0};
+	private final QueryFactory<Map<String, Object>> factory = new QueryFactory<Map<String,Object>>(new Accessor<Map<String,Object>>() {
+		@Override
+		public Object accsess(Map<String, Object> elem, String prop) {
+			evaluated[0] ++;
+			return elem.get(prop);
+		}
+	});
+
+	private static Map<String, Object> makeMap(Object name, Object age, Object score) {
+		final Map<String, Object> result = new HashMap<String, Object>();
+		result.put("name", name);
+		result.put("age", age);
+		result.put("score", score);
+		return result;
+	}
+
+	// 登録されたクエリを個別に評価した結果
+	private List<String> expected(Map<String, List<Object>> queries, Map<String, Object> elem) throws QueryParseException {
+		final List<String> result = new ArrayList<String>();
+		for (final Map.Entry<String, List<Object>> e : queries.entrySet()) {
+			final Object[] vars = e.getValue().subList(1, e.getValue().size()).toArray();
+			if (factory.create((String) e.getValue().get(0)).bind(vars).existsIn(Collections.singletonList(elem))) {
+				result.add(e.getKey());
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void matchTest00() throws QueryParseException {
+		final QuerySet<Map<String, Object>> set = new QuerySet<Map<String,Object>>(factory);
+		set.add("q0", "name == foo");
+		set.add("q1", "name == foo and age > 20");
+		set.add("q2", "age >= 20 and age < 30");
+		set.add("q3", "name is null or age == ?", 40);
+		set.add("q4", "!(name == foo)");
+		set.add("q5", "name ^= ba");
+		set.add("q6", "score > 1.5");
+		assertThat(set.size(), is(7));
+		assertThat(set.match(makeMap("foo", 25, 1.0)), is(Arrays.asList("q0", "q1", "q2")));
+		assertThat(set.match(makeMap("bar", 40, 2.0)), is(Arrays.asList("q3", "q4", "q5", "q6")));
+		assertThat(set.match(makeMap(null, 19, null)), is(Arrays.asList("q3", "q4")));
+
+		// 索引によって候補から外れたクエリは評価されない
+		evaluated[0] = 0;
+		assertThat(set.match(makeMap("qux", 10, 1.0)), is(Arrays.asList("q4")));
+		// 索引を引くためのプロパティの取得（3回）と、q4（1回）・q5（1回）の評価
+		assertThat(evaluated[0], is(5));
+
+		assertThat(set.remove("q4"), is(true));
+		assertThat(set.remove("q4"), is(false));
+		assertThat(set.remove("q2"), is(true));
+		assertThat(set.match(makeMap("foo", 25, 1.0)), is(Arrays.asList("q0", "q1")));
+		assertThat(set.size(), is(5));
+		try {
+			set.add("q0", "name == bar");
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// Ok.
+		}
+	}
+
+	@Test
+	public void matchTest01() throws QueryParseException {
+		// 無作為に生成したクエリと要素で、個別に評価した結果と一致することを確かめる
+		final Random random = new Random(0);
+		final String[] names = {"foo", "bar", "baz", "1", "10"};
+		final String[] ops = {"<", "<=", ">", ">="};
+		final QuerySet<Map<String, Object>> set = new QuerySet<Map<String,Object>>(factory);
+		final Map<String, List<Object>> queries = new HashMap<String, List<Object>>();
+		for (int i = 0; i < 300; i ++) {
+			final String id = "q" + i;
+			final List<Object> q = new ArrayList<Object>();
+			switch (i % 6) {
+			case 0:
+				q.add("name == " + names[random.nextInt(names.length)]);
+				break;
+			case 1:
+				q.add("age " + ops[random.nextInt(4)] + " " + random.nextInt(50));
+				break;
+			case 2:
+				q.add("age " + ops[random.nextInt(2)] + " ? and age " + ops[2 + random.nextInt(2)] + " ?");
+				q.add(random.nextInt(50));
+				q.add(random.nextInt(50));
+				break;
+			case 3:
+				q.add("score " + ops[random.nextInt(4)] + " ? or name == ?");
+				q.add(random.nextInt(10) * 0.5);
+				q.add(names[random.nextInt(names.length)]);
+				break;
+			case 4:
+				q.add("age == ? or score is null");
+				q.add(random.nextInt(50));
+				break;
+			default:
+				q.add("name " + ops[random.nextInt(4)] + " " + names[random.nextInt(names.length)]);
+				break;
+			}
+			queries.put(id, q);
+			set.add(id, (String) q.get(0), q.subList(1, q.size()).toArray());
+		}
+		for (int i = 0; i < 200; i ++) {
+			final Object name = i % 17 == 0 ? null : i % 5 == 0 ? (Object) Integer.valueOf(random.nextInt(20)) : names[random.nextInt(names.length)];
+			final Object age = i % 13 == 0 ? null : i % 7 == 0 ? (Object) Long.valueOf(random.nextInt(50)) : (Object) Integer.valueOf(random.nextInt(50));
+			final Object score = i % 11 == 0 ? null : (Object) Double.valueOf(random.nextInt(10) * 0.5);
+			final Map<String, Object> elem = makeMap(name, age, score);
+			final List<String> actual = new ArrayList<String>(set.match(elem));
+			final List<String> expected = expected(queries, elem);
+			Collections.sort(actual);
+			Collections.sort(expected);
+			assertThat(elem.toString(), actual, is(expected));
+		}
+	}
+
+	public static final class Sample {
+		static int calls = 0;
+		private final int age;
+		private final double score;
+		Sample(int age, double score) {
+			this.age = age;
+			this.score = score;
+		}
+		public int getAge() {
+			calls ++;
+			return age;
+		}
+		public double getScore() {
+			return score;
+		}
+	}
+
+	@Test
+	public void matchTest02() throws QueryParseException {
+		// 数値型のgetterのプロパティも区間木によって候補が絞り込まれる
+		final QueryFactory<Sample> beans = QueryFactory.createBeanQueryFactory(Sample.class);
+		final QuerySet<Sample> set = new QuerySet<Sample>(beans);
+		for (int i = 0; i < 100; i ++) {
+			set.add("q" + i, "age >= ? and age < ?", i, i + 1);
+		}
+		Sample.calls = 0;
+		assertThat(set.match(new Sample(50, 0.0)), is(Arrays.asList("q50")));
+		// 索引を引くためのプロパティの取得（1回）と、q50の2つの比較式（2回）の評価
+		assertThat(Sample.calls, is(3));
+
+		// 整数と小数の端点が混在しても、個別に評価した結果と一致する
+		final Random random = new Random(0);
+		final String[] ops = {"<", "<=", ">", ">="};
+		final Object[] bounds = {10, 10.5, -0.0, 0, "20", "20.5", "x", Double.NaN, Long.MAX_VALUE, 1e20};
+		final QuerySet<Sample> mixed = new QuerySet<Sample>(beans);
+		final List<Query<Sample>> queries = new ArrayList<Query<Sample>>();
+		final List<Object[]> vars = new ArrayList<Object[]>();
+		for (int i = 0; i < 200; i ++) {
+			final String prop = i % 2 == 0 ? "age" : "score";
+			final String query;
+			final Object[] v;
+			if (i % 3 == 0) {
+				query = prop + " " + ops[random.nextInt(2)] + " ? and " + prop + " " + ops[2 + random.nextInt(2)] + " ?";
+				v = new Object[]{bounds[random.nextInt(bounds.length)], bounds[random.nextInt(bounds.length)]};
+			} else {
+				query = prop + " " + ops[random.nextInt(4)] + " ?";
+				v = new Object[]{bounds[random.nextInt(bounds.length)]};
+			}
+			mixed.add("q" + i, query, v);
+			queries.add(beans.create(query));
+			vars.add(v);
+		}
+		final double[] scores = {0.0, -0.0, 10.5, 20.0, 20.5, Double.NaN, 1e30, -5};
+		for (int i = 0; i < 100; i ++) {
+			final Sample elem = new Sample(random.nextInt(30) - 5, scores[random.nextInt(scores.length)]);
+			final List<String> expected = new ArrayList<String>();
+			for (int j = 0; j < queries.size(); j ++) {
+				if (queries.get(j).bind(vars.get(j)).existsIn(Collections.singletonList(elem))) {
+					expected.add("q" + j);
+				}
+			}
+			assertThat(mixed.match(elem), is(expected));
+		}
+	}
+}
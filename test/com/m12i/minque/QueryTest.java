@@ -4,10 +4,15 @@ import static org.junit.Assert.*;
 import static org.hamcrest.CoreMatchers.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -168,6 +173,191 @@ public class QueryTest {
 		assertThat(res1, is(1));
 	}
 	
+	@Test
+	public void bindTest00() {
+		final Query<HashMap<String, String>> q0 = create("key0 == ? or key1 == ?");
+		final BoundQuery<HashMap<String, String>> b0 = q0.bind("foo", "world");
+		final BoundQuery<HashMap<String, String>> b1 = q0.bind("hello", "bar");
+		assertThat(b0.countIn(list1), is(3));
+		assertThat(b1.countIn(list1), is(3));
+		assertThat(q0.bind("0000", "none").selectOneFrom(list1).get("id"), is("map3"));
+		// 後からバインドした変数が先にバインドしたクエリに影響することはない
+		assertThat(b0.selectFrom(list1).get(2).get("id"), is("map2"));
+		try {
+			q0.bind("foo");
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// Ok.
+		}
+	}
+	
+	@Test
+	public void bindTest01() throws InterruptedException {
+		final Query<HashMap<String, String>> q0 = create("key0 == ?");
+		final String[] values = {"foo", "hello", "0000"};
+		final int[] expected = {2, 1, 1};
+		final boolean[] failed = {false};
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 6; i ++) {
+			final int j = i % values.length;
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int k = 0; k < 1000; k ++) {
+						if (q0.countIn(list1, values[j]) != expected[j]) {
+							failed[0] = true;
+						}
+					}
+				}
+			}));
+		}
+		for (final Thread t : threads) {
+			t.start();
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		assertFalse(failed[0]);
+	}
+	
+	@Test
+	public void parallelTest00() {
+		final List<HashMap<String, String>> list = new ArrayList<HashMap<String,String>>();
+		for (int i = 0; i < 10000; i ++) {
+			list.add(makeMap("map" + i, Integer.toString(i % 7), Integer.toString(i)));
+		}
+		final Query<HashMap<String, String>> q0 = create("key0 == 3");
+		final List<HashMap<String, String>> expected = q0.selectFrom(list);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			// 並列に検索しても結果の要素の順序は変わらない
+			assertThat(q0.selectFromParallel(list), is(expected));
+			assertThat(q0.selectFromParallel(list, pool), is(expected));
+			assertThat(q0.countInParallel(list), is((long) expected.size()));
+			assertThat(q0.countInParallel(list, pool), is((long) expected.size()));
+			assertThat(q0.selectOneFromParallel(list, pool).get("key0"), is("3"));
+			assertNull(create("key0 == 7").selectOneFromParallel(list, pool));
+			assertThat(create("key1 == ?").bind("9999").selectOneFromParallel(list, pool).get("id"), is("map9999"));
+			// RandomAccessでない検索対象は逐次的に走査される
+			assertThat(q0.countInParallel(new LinkedList<HashMap<String, String>>(list)), is((long) expected.size()));
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void iteratorTest00() {
+		final Iterator<HashMap<String, String>> iter = create("key0 == foo").iterator(list1);
+		assertTrue(iter.hasNext());
+		assertTrue(iter.hasNext());
+		assertThat(iter.next().get("id"), is("map0"));
+		assertThat(iter.next().get("id"), is("map1"));
+		assertFalse(iter.hasNext());
+		try {
+			iter.next();
+			fail();
+		} catch (final NoSuchElementException e) {
+			// Ok.
+		}
+		assertFalse(create("key0 == foo").iterator(list0).hasNext());
+	}
+	
+	@Test
+	public void iteratorTest01() {
+		// 必要な分だけしか評価されない
+		final int[] evaluated = {0};
+		final QueryFactory<HashMap<String, String>> countingFactory = new QueryFactory<HashMap<String,String>>(new Accessor<HashMap<String,String>>() {
+			@Override
+			public String accsess(HashMap<String, String> elem, String prop) {
+				evaluated[0] ++;
+				return elem.get(prop);
+			}
+		});
+		try {
+			final Iterator<HashMap<String, String>> iter = countingFactory.create("key1 == ?").bind("bar").iterator(list1);
+			assertThat(evaluated[0], is(0));
+			assertThat(iter.next().get("id"), is("map0"));
+			assertThat(evaluated[0], is(1));
+		} catch (final QueryParseException e) {
+			fail();
+		}
+	}
+	
+	@Test
+	public void filterTest00() {
+		final Iterable<HashMap<String, String>> filtered = create("key0 != foo").filter(list1);
+		final List<String> ids = new ArrayList<String>();
+		for (final HashMap<String, String> elem : filtered) {
+			ids.add(elem.get("id"));
+		}
+		for (final HashMap<String, String> elem : filtered) {
+			ids.add(elem.get("id"));
+		}
+		assertThat(ids, is(Arrays.asList("map2", "map3", "map2", "map3")));
+	}
+	
+	@Test
+	public void limitTest00() {
+		final BoundQuery<HashMap<String, String>> q0 = create("key0 *= o").bind();
+		assertThat(q0.selectFrom(list1, 0).size(), is(0));
+		assertThat(q0.selectFrom(list1, 2).size(), is(2));
+		assertThat(q0.selectFrom(list1, 2).get(1).get("id"), is("map1"));
+		assertThat(q0.selectFrom(list1, 5).size(), is(3));
+		assertThat(q0.selectFrom(list1, 1, 1).get(0).get("id"), is("map1"));
+		assertThat(q0.selectFrom(list1, 2, 5).get(0).get("id"), is("map2"));
+		assertThat(q0.selectFrom(list1, 3, 5).size(), is(0));
+		try {
+			q0.selectFrom(list1, -1, 1);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// Ok.
+		}
+	}
+	
+	@Test
+	public void existsTest00() {
+		assertTrue(create("key0 == foo").existsIn(list1));
+		assertFalse(create("key0 == foo").existsIn(list0));
+		assertTrue(create("key1 == ?").existsIn(list1, "world"));
+		assertFalse(create("key1 == ?").existsIn(list1, "foo"));
+	}
+	
+	@Test
+	public void countTest10() {
+		final BoundQuery<HashMap<String, String>> q0 = create("key0 *= o").bind();
+		assertThat(q0.countIn(list1, 0), is(0));
+		assertThat(q0.countIn(list1, 2), is(2));
+		assertThat(q0.countIn(list1, 10), is(3));
+		// 上限に達した時点で走査は打ち切られる
+		final Iterable<HashMap<String, String>> failing = new Iterable<HashMap<String,String>>() {
+			@Override
+			public Iterator<HashMap<String, String>> iterator() {
+				final Iterator<HashMap<String, String>> iter = list1.iterator();
+				return new Iterator<HashMap<String,String>>() {
+					private int count = 0;
+					@Override
+					public boolean hasNext() {
+						return iter.hasNext();
+					}
+					@Override
+					public HashMap<String, String> next() {
+						if (++ count > 2) {
+							throw new IllegalStateException();
+						}
+						return iter.next();
+					}
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+		assertThat(q0.countIn(failing, 2), is(2));
+		assertThat(q0.selectFrom(failing, 1, 1).size(), is(1));
+		assertTrue(q0.existsIn(failing));
+	}
+	
 	public static final class Person {
 		private final int age;
 		private final String firstName;